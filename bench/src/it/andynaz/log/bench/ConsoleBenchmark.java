@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log.bench;
+
+import java.io.PrintStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import it.andynaz.log.Level;
+import it.andynaz.log.LogContext;
+import it.andynaz.log.Logger;
+
+/**
+ * Cost of the logs written by the base {@link Logger}.
+ *
+ * {@code System.out} is replaced by a stream that discards the data, so only
+ * the cost of building, encoding and writing the logs in the stream is
+ * measured. The prefix has the date and the level.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsoleBenchmark{
+
+	/**
+	 * The layout of the logs ({@code text} or {@code json}).
+	 */
+	@Param({"text", "json"})
+	public String layout;
+
+	private Logger logger;
+	private PrintStream stdout;
+	private final Integer value = 42;
+
+	/**
+	 * The context of the thread, with two pairs.
+	 */
+	@State(Scope.Thread)
+	public static class Context{
+		@Setup
+		public void setup(){
+			LogContext.put("request", "r-123456");
+			LogContext.put("tenant", "acme");
+		}
+
+		@TearDown
+		public void tearDown(){
+			LogContext.clear();
+		}
+	}
+
+	@Setup
+	public void setup(){
+		stdout = System.out;
+		System.setOut(Setups.NULL_OUT);
+		Properties p = Setups.props();
+		p.setProperty("log.layout", layout);
+		logger = new Logger("bench", p);
+	}
+
+	@TearDown
+	public void tearDown(){
+		System.setOut(stdout);
+	}
+
+	@Benchmark
+	public void text(){
+		logger.log("an enabled log", Level.INFO);
+	}
+
+	@Benchmark
+	public void pattern(){
+		logger.log(Level.INFO, "an enabled log with {} and {}", value, "a string");
+	}
+
+	@Benchmark
+	public void fields(){
+		logger.logFields(Level.INFO, "an enabled log", "user", "andynaz", "elapsed", value);
+	}
+
+	@Benchmark
+	public void withContext(Context context){
+		logger.log("an enabled log", Level.INFO);
+	}
+}
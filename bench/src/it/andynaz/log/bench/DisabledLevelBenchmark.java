@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import it.andynaz.log.Level;
+import it.andynaz.log.Logger;
+import it.andynaz.log.MessageSupplier;
+
+/**
+ * Cost of the logs with a level lower than the one of the logger.
+ *
+ * These logs should cost only the check of the level, with no allocations.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisabledLevelBenchmark{
+
+	private static final MessageSupplier SUPPLIER = new MessageSupplier(){
+		@Override
+		public String get(){
+			return "a disabled log";
+		}
+	};
+
+	private Logger logger;
+	private final Integer value = 42;
+
+	@Setup
+	public void setup(){
+		logger = new Logger("bench", Setups.props());
+	}
+
+	@Benchmark
+	public void text(){
+		logger.log("a disabled log", Level.FINE);
+	}
+
+	@Benchmark
+	public void pattern(){
+		logger.log(Level.FINE, "a disabled log with {} and {}", value, "a string");
+	}
+
+	@Benchmark
+	public void supplier(){
+		logger.log(Level.FINE, SUPPLIER);
+	}
+
+	@Benchmark
+	public boolean isEnabled(){
+		return logger.isEnabled(Level.FINE);
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import it.andynaz.log.AsyncFileLogger;
+import it.andynaz.log.FileLogger;
+import it.andynaz.log.Level;
+
+/**
+ * Cost of the logs written on a file, with the different ways a file can be
+ * written.
+ *
+ * The file is in the temporary directory, and it is rolled every 64 MB
+ * (keeping only the last rolled file, not compressed) so the disk is not
+ * filled.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileBenchmark{
+
+	/**
+	 * How the file is written: {@code stream} (opened for each log), {@code
+	 * persistent} (kept open, written every 100 ms), {@code concurrent},
+	 * {@code gzip}, or {@code async} (an {@link AsyncFileLogger}).
+	 */
+	@Param({"stream", "persistent", "concurrent", "gzip", "async"})
+	public String mode;
+
+	private FileLogger logger;
+	private File file;
+	private final Integer value = 42;
+
+	@Setup
+	public void setup() throws IOException{
+		file = Setups.tempLog();
+		Properties p = Setups.props();
+		p.setProperty("log.metrics", "false");
+		p.setProperty("log.fileLogger.file", file.getPath());
+		p.setProperty("log.fileLogger.maxSize", "64M");
+		p.setProperty("log.fileLogger.maxFiles", "1");
+		p.setProperty("log.fileLogger.compress", "none");
+		if ("persistent".equals(mode)) {
+			p.setProperty("log.fileLogger.persistent", "true");
+			p.setProperty("log.fileLogger.flushPolicy", "every-100-ms");
+		} else if ("concurrent".equals(mode)) {
+			p.setProperty("log.fileLogger.concurrent", "true");
+		} else if ("gzip".equals(mode)) {
+			p.setProperty("log.fileLogger.gzip", "true");
+		}
+		logger = "async".equals(mode) ? new AsyncFileLogger("bench", p) : new FileLogger("bench", p);
+	}
+
+	@TearDown
+	public void tearDown(){
+		logger.close();
+		Setups.delete(file);
+	}
+
+	@Benchmark
+	public void text(){
+		logger.log("an enabled log", Level.INFO);
+	}
+
+	@Benchmark
+	public void pattern(){
+		logger.log(Level.INFO, "an enabled log with {} and {}", value, "a string");
+	}
+}
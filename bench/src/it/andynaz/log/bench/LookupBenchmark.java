@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import it.andynaz.log.Logger;
+import it.andynaz.log.LoggerMgr;
+
+/**
+ * Cost of getting a logger from the {@link LoggerMgr}.
+ *
+ * The loggers have already been created, so only the lookup is measured.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark{
+
+	private static final String[] NAMES = {
+		"it.andynaz.bench.Service", "it.andynaz.bench.db.Pool", "it.andynaz.bench.web.Handler",
+		"it.andynaz.bench.web.Session", "it.andynaz.bench.cache.Store", "it.andynaz.bench.Main",
+		"it.andynaz.bench.io.Reader", "it.andynaz.bench.io.Writer"
+	};
+
+	/**
+	 * Index of the next name, for each thread.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor{
+		int next;
+	}
+
+	@Setup
+	public void setup(){
+		for (String name : NAMES)
+			LoggerMgr.getLogger(name);
+	}
+
+	@Benchmark
+	public Logger defaultLogger(){
+		return LoggerMgr.getLogger();
+	}
+
+	@Benchmark
+	public Logger sameName(){
+		return LoggerMgr.getLogger(NAMES[0]);
+	}
+
+	@Benchmark
+	public Logger differentNames(Cursor cursor){
+		cursor.next = (cursor.next+1) & (NAMES.length-1);
+		return LoggerMgr.getLogger(NAMES[cursor.next]);
+	}
+}
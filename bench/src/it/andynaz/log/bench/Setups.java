@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+/**
+ * Configurations and helpers shared by the benchmarks.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class Setups{
+	// hides the constructor
+	private Setups(){ }
+
+	/**
+	 * A stream that discards all the data.
+	 */
+	static final PrintStream NULL_OUT = new PrintStream(new OutputStream(){
+		@Override
+		public void write(int b){ }
+
+		@Override
+		public void write(byte[] b, int off, int len){ }
+	}, true);
+
+	/**
+	 * Returns the base configuration of the loggers: date and level in the
+	 * prefix, level INFO, metrics enabled.
+	 *
+	 * @return the configuration
+	 */
+	static Properties props(){
+		Properties p = new Properties();
+		p.setProperty("log.level", "INFO");
+		p.setProperty("log.useDate", "true");
+		p.setProperty("log.useLevel", "true");
+		return p;
+	}
+
+	/**
+	 * Creates a temporary file for the logs.
+	 *
+	 * @return the file (it does not exist)
+	 *
+	 * @throws IOException if the file can not be created
+	 */
+	static File tempLog() throws IOException{
+		File f = File.createTempFile("andyLib-bench", ".log");
+		f.delete();
+		f.deleteOnExit();
+		return f;
+	}
+
+	/**
+	 * Deletes a log file, with its rolled files and its index.
+	 *
+	 * @param f the file
+	 */
+	static void delete(File f){
+		File[] files = f.getAbsoluteFile().getParentFile().listFiles();
+		if (files!=null)
+			for (File x : files)
+				if (x.getName().startsWith(f.getName()))
+					x.delete();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.config;
+
+/**
+ * Receives the changes of the configuration.
+ *
+ * A listener is registered with {@link ConfigMgr#addListener(ConfigListener)},
+ * and it is notified every time a parameter is set (with a different value)
+ * or removed.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public interface ConfigListener{
+
+	/**
+	 * Invoked after a parameter has been changed.
+	 *
+	 * The new value can be read with {@link ConfigMgr#getConfigParam(String)}
+	 * ({@code null} if the parameter has been removed).
+	 *
+	 * @param name the name of the parameter
+	 */
+	void configChanged(String name);
+
+}
@@ -28,8 +28,10 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import static java.lang.System.out;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Class to centralize the configuration of a program as a set of parameters.
@@ -47,7 +49,8 @@ import java.util.Set;
  * begin with he suffix "it.andynaz.".</p>
  * 
  * <p>Parameters can be retrived using the {@link #getConfigParam(String)}
- * method.</p>
+ * method. Who needs to know when a parameter changes can register a {@link
+ * ConfigListener}.</p>
  * 
  * <p>All of its methods are static, as there have to be only one instance of
  * the configuration. However, the class can return a copy of all the params
@@ -55,12 +58,13 @@ import java.util.Set;
  * method.</p>
  *
  * @author andynaz
- * @version 2014/04/29
+ * @version 2026/10/17
  */
 public class ConfigMgr {
 	
 	private static final String prefix = "it.andynaz.";
 	private static final Properties p = new Properties();
+	private static final List<ConfigListener> listeners = new CopyOnWriteArrayList<ConfigListener>();
 	
 	/**
 	 * Loads the parameters stored in {@link System#getProperties()}.
@@ -108,7 +112,7 @@ public class ConfigMgr {
 		Set<String> keys = props.stringPropertyNames();
 		for (String key : keys)
 			if (key.startsWith(prefix))
-				p.setProperty(key, props.getProperty(key));
+				setConfigParam(key, props.getProperty(key));
 	}
 	
 	/**
@@ -143,8 +147,11 @@ public class ConfigMgr {
 	 * @throws NullPointerException if {@code name} is {@code null}
 	 */
 	public static void setConfigParam(String name, String value){
-		if (value!=null)
-			p.setProperty(name, value);
+		if (value!=null) {
+			Object old = p.setProperty(name, value);
+			if (!value.equals(old))
+				fireChanged(name);
+		}
 	}
 	
 	/**
@@ -153,7 +160,29 @@ public class ConfigMgr {
 	 * @param name parameter's name
 	 */
 	public static void removeConfigParam(String name){
-		p.remove(name);
+		if (p.remove(name)!=null)
+			fireChanged(name);
+	}
+	
+	/**
+	 * Registers a listener, notified every time a parameter changes.
+	 * 
+	 * @param listener the listener
+	 * 
+	 * @throws NullPointerException if {@code listener} is {@code null}
+	 */
+	public static void addListener(ConfigListener listener){
+		if (listener==null) throw new NullPointerException("null listener");
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener.
+	 * 
+	 * @param listener the listener
+	 */
+	public static void removeListener(ConfigListener listener){
+		listeners.remove(listener);
 	}
 	
 	/**
@@ -164,4 +193,14 @@ public class ConfigMgr {
 	public static void list(){
 		p.list(out);
 	}
+	
+	/**
+	 * Notifies the listeners that a parameter has changed.
+	 * 
+	 * @param name the name of the parameter
+	 */
+	private static void fireChanged(String name){
+		for (ConfigListener l : listeners)
+			l.configChanged(name);
+	}
 }
@@ -0,0 +1,600 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import static java.lang.System.out;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import it.andynaz.utils.Utils;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Asynchronous File Logger.
+ *
+ * Writes the logs on a text file, like the {@link FileLogger}, but the file is
+ * not written by the thread that does the log: the log is encoded (so the date
+ * in the prefix is the one of the event) and its bytes are copied in a ring
+ * buffer, which is emptied by a background thread. The background thread
+ * writes all the logs it finds in the buffer, as they are, with a single
+ * access to the file (if the file is kept open, all these logs count as one
+ * event for the flush policy).
+ *
+ * <p>The ring buffer and the background thread are shared by all the
+ * AsyncFileLoggers that write on the same file: they are created with the
+ * configuration of the first one, and stopped when all of them have been
+ * closed. The ring buffer has a fixed size; when it is full, the behaviour
+ * depends on the {@link OverflowPolicy overflow policy} of the logger. A log
+ * bigger than the whole buffer is written directly, after the logs in the
+ * buffer.</p>
+ *
+ * <p>Pending logs are written when {@link #flush()} or {@link #close()} are
+ * invoked, and when the JVM shuts down (before the files are closed). After
+ * the logger has been closed, logs are written directly by the calling
+ * thread.</p>
+ *
+ * <p>To use it as the default logger, set the property "{@code
+ * log.defaultLogger}" to {@code it.andynaz.log.AsyncFileLogger}.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class AsyncFileLogger extends FileLogger{
+
+	/**
+	 * What to do when a log arrives and the ring buffer is full.
+	 */
+	public enum OverflowPolicy{
+		/**
+		 * The calling thread waits for free space in the buffer.
+		 */
+		BLOCK,
+
+		/**
+		 * The log is discarded.
+		 */
+		DROP,
+
+		/**
+		 * Logs with a level lower than the configured threshold are discarded,
+		 * for the other ones the calling thread waits for free space.
+		 */
+		DROP_BELOW_LEVEL;
+
+		/**
+		 * Returns the policy with the given name.
+		 *
+		 * The name is case insensitive, and '-' can be used instead of '_' (so
+		 * "{@code drop-below-level}" is valid).
+		 *
+		 * @param name the name of the policy
+		 * @return the policy
+		 *
+		 * @throws IllegalArgumentException if there is no policy with that name
+		 */
+		public static OverflowPolicy parse(String name){
+			return valueOf(name.trim().toUpperCase().replace('-', '_'));
+		}
+	}
+
+	/**
+	 * The ring buffers, one for each file.
+	 */
+	private static final Map<LogFile, Queue> queues = new HashMap<LogFile, Queue>();
+
+	/**
+	 * The ring buffer of the file, shared with the other loggers.
+	 */
+	private final Queue queue;
+
+	/**
+	 * Number of logs discarded because the buffer was full.
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Policy used when the buffer is full.
+	 *
+	 * Dafaule value is {@link OverflowPolicy#BLOCK}.
+	 */
+	protected OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	/**
+	 * Lowest level not discarded with the {@link
+	 * OverflowPolicy#DROP_BELOW_LEVEL} policy.
+	 *
+	 * Dafaule value is {@link Level#WARNING}.
+	 */
+	protected Level dropLevel = Level.WARNING;
+
+
+	/**
+	 * Creates an AsyncFileLogger with a name and a configuration.
+	 *
+	 * In addition to the properties used by {@link FileLogger}, the ones used
+	 * are:
+	 * <dl>
+	 *   <dt>log.asyncLogger.queueSize</dt>      <dd>number of logs the ring buffer can keep (default 1024)</dd>
+	 *   <dt>log.asyncLogger.queueBytes</dt>     <dd>size of the ring buffer, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 256 KB)</dd>
+	 *   <dt>log.asyncLogger.overflowPolicy</dt> <dd>one of {@code block}, {@code drop} or {@code drop-below-level} (default {@code block})</dd>
+	 *   <dt>log.asyncLogger.dropLevel</dt>      <dd>with the {@code drop-below-level} policy, the lowest level not discarded (default WARNING)</dd>
+	 * </dl>
+	 * The size of the ring buffer is set by the first logger of the file.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see FileLogger#FileLogger(String, Properties) for all the other
+	 * properties see the FileLogger constructor
+	 */
+	public AsyncFileLogger(String name, Properties props){
+		super(name, props);
+
+		if (props!=null) {
+			// --- overflow policy
+			if (props.getProperty("log.asyncLogger.overflowPolicy")!=null)
+				try{
+					this.overflowPolicy = OverflowPolicy.parse(props.getProperty("log.asyncLogger.overflowPolicy"));
+				} catch(Exception e){ }
+
+			// --- drop level
+			if (props.getProperty("log.asyncLogger.dropLevel")!=null)
+				try{
+					this.dropLevel = Level.valueOf(props.getProperty("log.asyncLogger.dropLevel"));
+				} catch(Exception e){ }
+		}
+
+		synchronized(queues){
+			Queue q = queues.get(file);
+			if (q==null) {
+				q = new Queue(file, props);
+				queues.put(file, q);
+			}
+			q.users++;
+			this.queue = q;
+		}
+	}
+
+	/**
+	 * Creates an AsyncFileLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #AsyncFileLogger(String, Properties)
+	 */
+	public AsyncFileLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates an AsyncFileLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #AsyncFileLogger(String, Properties)
+	 */
+	public AsyncFileLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates an AsyncFileLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #AsyncFileLogger(String, Properties)
+	 */
+	public AsyncFileLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+
+	/**
+	 * Copies an encoded log in the buffer.
+	 *
+	 * The log (with the exception, if present) is put in the buffer as a single
+	 * element, so it is written all together. The bytes are written as they
+	 * are, so the charset of the layout is kept.
+	 *
+	 * @param data the encoded log (with the line terminator), from its position
+	 * to its limit
+	 * @param level log level
+	 */
+	@Override
+	protected void logEncoded(ByteBuffer data, Level level){
+		if (metrics!=null)
+			metrics.event(level);
+		if (closed) {
+			writeLog(data, level);
+		} else if (data.remaining()>queue.ring.length) {
+			// written after the logs in the buffer
+			flush();
+			writeLog(data, level);
+		} else if (!queue.enqueue(data, level, this)) {
+			if (queue.isClosed())
+				writeLog(data, level);
+			else {
+				dropped.incrementAndGet();
+				if (metrics!=null)
+					metrics.overflow();
+			}
+		}
+	}
+
+	/**
+	 * Waits until all the logs put in the buffer so far have been written.
+	 *
+	 * If the file is kept open, its buffer is written too.
+	 */
+	@Override
+	public void flush(){
+		queue.flush();
+		super.flush();
+	}
+
+	/**
+	 * Writes all the pending logs; the writer thread is stopped if no other
+	 * logger uses it.
+	 *
+	 * Logs done after this method has been invoked are written directly.
+	 */
+	@Override
+	public void close(){
+		boolean last = false;
+		synchronized(queues){
+			if (!closed) {
+				closed = true;
+				if (--queue.users==0) {
+					queues.remove(file);
+					last = true;
+				}
+			}
+		}
+		if (last)
+			queue.shutdown();
+		else
+			queue.flush();
+		super.close();
+	}
+
+	/**
+	 * Returns the number of logs of this logger discarded because the buffer
+	 * was full.
+	 *
+	 * @return the number of logs discarded
+	 */
+	public long getDroppedCount(){
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of logs waiting to be written.
+	 *
+	 * @return the number of logs in the buffer (of all the loggers that write
+	 * on the file)
+	 */
+	public int getQueueDepth(){
+		return queue.depth();
+	}
+
+	/**
+	 * Writes the pending logs of all the loggers and stops the writer
+	 * threads.
+	 *
+	 * Invoked when the JVM shuts down, before the files are closed (see {@link
+	 * LogFile}).
+	 */
+	static void shutdownAll(){
+		List<Queue> all;
+		synchronized(queues){
+			all = new ArrayList<Queue>(queues.values());
+		}
+		for (Queue q : all)
+			q.shutdown();
+	}
+
+
+	/**
+	 * The ring buffer of a file, with the thread that writes the logs.
+	 */
+	private static final class Queue{
+
+		private final LogFile file;
+
+		/**
+		 * Ring buffer with the encoded logs waiting to be written.
+		 */
+		final byte[] ring;
+
+		/**
+		 * Position in the ring buffer of the first byte to be written, and
+		 * number of bytes in the ring buffer.
+		 */
+		private int start = 0, bytes = 0;
+
+		/**
+		 * Length, level and logger of the logs in the ring buffer (another
+		 * ring buffer).
+		 */
+		private final int[] lengths;
+		private final Level[] levels;
+		private final LogMetrics[] owners;
+
+		/**
+		 * Logs taken from the ring buffer by the writer thread, and their
+		 * metrics.
+		 */
+		private final ByteBuffer batch;
+		private final LogMetrics[] taken;
+
+		/**
+		 * Position of the first log to be written.
+		 */
+		private int head = 0;
+
+		/**
+		 * Number of logs in the ring buffer.
+		 */
+		private int count = 0;
+
+		/**
+		 * Number of lines put in the buffer since it has been created.
+		 */
+		private long published = 0;
+
+		/**
+		 * Number of lines handled by the writer thread (written or not, if an
+		 * error occoured) since the buffer has been created.
+		 */
+		private long written = 0;
+
+		private boolean closed = false;
+
+		/**
+		 * Number of loggers that use the buffer (used holding the lock of the
+		 * queues).
+		 */
+		int users = 0;
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notEmpty = lock.newCondition();
+		private final Condition notFull = lock.newCondition();
+		private final Condition drained = lock.newCondition();
+
+		private final Thread writer;
+
+		Queue(LogFile file, Properties props){
+			this.file = file;
+
+			int queueSize = 1024;
+			long queueBytes = 256*1024;
+			if (props!=null) {
+				Integer i = Utils.parseInt(props.getProperty("log.asyncLogger.queueSize"));
+				if (i!=null && i>0)
+					queueSize = i;
+				queueBytes = LogFile.parseSize(props.getProperty("log.asyncLogger.queueBytes"), queueBytes);
+			}
+			this.ring = new byte[(int)Math.max(1024, Math.min(queueBytes, Integer.MAX_VALUE-8))];
+			this.lengths = new int[queueSize];
+			this.levels = new Level[queueSize];
+			this.owners = new LogMetrics[queueSize];
+			this.taken = new LogMetrics[queueSize];
+			this.batch = ByteBuffer.allocate(ring.length);
+
+			this.writer = new Thread(new Runnable(){
+				@Override
+				public void run(){
+					drain();
+				}
+			}, "AsyncFileLogger-" + file.file.getName());
+			this.writer.setDaemon(true);
+			this.writer.start();
+		}
+
+		/**
+		 * Copies a log in the ring buffer, applying the overflow policy of the
+		 * logger.
+		 *
+		 * @param data the encoded log (not bigger than the buffer)
+		 * @param level log level
+		 * @param logger the logger
+		 * @return {@code false} if the log has been discarded, or the buffer
+		 * has been closed
+		 */
+		boolean enqueue(ByteBuffer data, Level level, AsyncFileLogger logger){
+			int len = data.remaining();
+			lock.lock();
+			try{
+				while ((count==lengths.length || bytes+len>ring.length) && !closed) {
+					if (logger.overflowPolicy==OverflowPolicy.DROP
+							|| (logger.overflowPolicy==OverflowPolicy.DROP_BELOW_LEVEL && !logger.dropLevel.hasToLog(level)))
+						return false;
+					notFull.awaitUninterruptibly();
+				}
+				if (closed)
+					return false;
+				int from = (start+bytes) % ring.length;
+				int first = Math.min(len, ring.length-from);
+				data.get(ring, from, first);
+				data.get(ring, 0, len-first);
+				bytes += len;
+				int ndx = (head+count) % lengths.length;
+				lengths[ndx] = len;
+				levels[ndx] = level;
+				owners[ndx] = logger.metrics;
+				count++;
+				published++;
+				if (logger.metrics!=null)
+					logger.metrics.queued(1);
+				notEmpty.signal();
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Waits until all the logs put in the buffer so far have been written.
+		 */
+		void flush(){
+			lock.lock();
+			try{
+				long target = published;
+				while (written<target && writer.isAlive())
+					drained.await(100, TimeUnit.MILLISECONDS);
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		boolean isClosed(){
+			lock.lock();
+			try{
+				return closed;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int depth(){
+			lock.lock();
+			try{
+				return count;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Body of the writer thread.
+		 *
+		 * Takes all the logs in the buffer and writes them, till the buffer is
+		 * closed and empty.
+		 */
+		private void drain(){
+			while (true) {
+				int n;
+				Level maxLevel;
+				lock.lock();
+				try{
+					while (count==0 && !closed)
+						notEmpty.awaitUninterruptibly();
+					if (count==0)
+						break;
+					n = count;
+					maxLevel = Level.FINE;
+					for (int i=0; i<n; i++) {
+						int ndx = (head+i) % lengths.length;
+						if (maxLevel.hasToLog(levels[ndx]))
+							maxLevel = levels[ndx];
+						levels[ndx] = null;
+						taken[i] = owners[ndx];
+						owners[ndx] = null;
+					}
+					head = (head+n) % lengths.length;
+					count = 0;
+					batch.clear();
+					int first = Math.min(bytes, ring.length-start);
+					batch.put(ring, start, first);
+					batch.put(ring, 0, bytes-first);
+					batch.flip();
+					start = (start+bytes) % ring.length;
+					bytes = 0;
+					notFull.signalAll();
+				} finally {
+					lock.unlock();
+				}
+
+				for (int i=0; i<n; i++) {
+					if (taken[i]!=null)
+						taken[i].queued(-1);
+					taken[i] = null;
+				}
+				write(maxLevel);
+
+				lock.lock();
+				try{
+					written += n;
+					drained.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+			// the logs could still be in the file buffer
+			file.current().flush();
+		}
+
+		/**
+		 * Writes the batch on the file, or on the standard output if it is not
+		 * possible; the write is counted by the global metrics.
+		 *
+		 * @param level the highest level of the logs
+		 */
+		private void write(Level level){
+			int len = batch.remaining();
+			try{
+				long begin = System.nanoTime();
+				file.current().write(batch, level);
+				LogMetrics.getGlobal().write(len, System.nanoTime()-begin);
+			} catch(IOException e){
+				Utils.printException("error while writing the log", e);
+				out.write(batch.array(), batch.arrayOffset(), len);
+			}
+		}
+
+		/**
+		 * Stops the writer thread, waiting for the pending logs to be written.
+		 */
+		void shutdown(){
+			lock.lock();
+			try{
+				closed = true;
+				notEmpty.signalAll();
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			try{
+				writer.join(5000);
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
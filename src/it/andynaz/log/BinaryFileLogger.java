@@ -0,0 +1,355 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import static java.lang.System.out;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import it.andynaz.utils.Utils;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Binary File Logger.
+ *
+ * Writes the logs on a file, like the {@link FileLogger}, but in a compact
+ * binary format instead of text: a log is written as its time, its level, the
+ * id of the logger name, the id of its pattern and its arguments, without
+ * building its text (the logger names and the patterns are written only once
+ * in each file). The format is described in {@link BinaryRecordWriter}.
+ *
+ * <p>The files are turned back into text by the {@link BinaryLogDecoder}, with
+ * the same layout a FileLogger would use.</p>
+ *
+ * <p>Only binary loggers should write on the same file. The file is rolled in
+ * the same way as the files of the FileLogger.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class BinaryFileLogger extends FileLogger{
+
+	/**
+	 * The writers of the binary files, one for each file (discarded with the
+	 * file).
+	 */
+	private static final Map<LogFile, BinaryRecordWriter> writers = new WeakHashMap<LogFile, BinaryRecordWriter>();
+
+	/**
+	 * Encodes the records of the file; used holding the lock of the file.
+	 */
+	private final BinaryRecordWriter writer;
+
+
+	/**
+	 * Creates a BinaryFileLogger with a name and a configuration.
+	 *
+	 * The properties used are the ones used by the {@link FileLogger}; the
+	 * ones about the layout of the logs (like "{@code log.useDate}" and
+	 * "{@code log.layout}") are not considered, since the layout is chosen by
+	 * the {@link BinaryLogDecoder}. Also "{@code log.fileLogger.concurrent}",
+	 * "{@code log.fileLogger.gzip}", "{@code log.fileLogger.shared}" and
+	 * "{@code log.fileLogger.index}" are not considered, since each record
+	 * depends on the ones written before it and the decoder reads the file as
+	 * it is.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see FileLogger#FileLogger(String, Properties) for all the other
+	 * properties see the FileLogger constructor
+	 */
+	public BinaryFileLogger(String name, Properties props){
+		super(name, withoutIndex(props), Boolean.parseBoolean(props.getProperty("log.fileLogger.persistent"))
+				? LogFile.Mode.CHANNEL : LogFile.Mode.STREAM);
+		this.writer = getWriter(this.file);
+	}
+
+	/**
+	 * Returns a copy of a configuration, without the index of the file.
+	 *
+	 * @param props configuration of the Logger
+	 * @return the configuration, or a copy without "{@code
+	 * log.fileLogger.index}"
+	 */
+	private static Properties withoutIndex(Properties props){
+		if (props.getProperty("log.fileLogger.index")==null)
+			return props;
+		Properties p = new Properties();
+		for (String key : props.stringPropertyNames())
+			p.setProperty(key, props.getProperty(key));
+		p.remove("log.fileLogger.index");
+		return p;
+	}
+
+	/**
+	 * Creates a BinaryFileLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #BinaryFileLogger(String, Properties)
+	 */
+	public BinaryFileLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a BinaryFileLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #BinaryFileLogger(String, Properties)
+	 */
+	public BinaryFileLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a BinaryFileLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #BinaryFileLogger(String, Properties)
+	 */
+	public BinaryFileLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+
+	/**
+	 * Writes the log.
+	 *
+	 * @param log log to be written
+	 * @param level log level
+	 */
+	@Override
+	public void log(String log, Level level){
+		if (accepts(level))
+			writeRecord(level, null, log, null, null, 1);
+	}
+
+	/**
+	 * Writes the log of an exception.
+	 *
+	 * The text of the exception (see {@link Logger#log(Exception, Level)}) is
+	 * written as a single record.
+	 *
+	 * @param e exception to be logged
+	 * @param level log level
+	 */
+	@Override
+	public void log(Exception e, Level level){
+		if (accepts(level))
+			writeRecord(level, null, null, null, e, 0);
+	}
+
+	/**
+	 * Writes a log built from a pattern and an argument.
+	 *
+	 * The pattern is not applied: it is written (the first time) with the
+	 * argument.
+	 *
+	 * @see Logger#log(Level, String, Object...)
+	 */
+	@Override
+	public void log(Level level, String pattern, Object arg){
+		if (accepts(level))
+			writeRecord(level, String.valueOf(pattern), arg, null, null, 1);
+	}
+
+	/**
+	 * Writes a log built from a pattern and two arguments.
+	 *
+	 * The pattern is not applied: it is written (the first time) with the
+	 * arguments.
+	 *
+	 * @see Logger#log(Level, String, Object...)
+	 */
+	@Override
+	public void log(Level level, String pattern, Object arg1, Object arg2){
+		if (accepts(level))
+			writeRecord(level, String.valueOf(pattern), arg1, arg2, null, 2);
+	}
+
+	/**
+	 * Writes a log built from a pattern and some arguments.
+	 *
+	 * The pattern is not applied: it is written (the first time) with the
+	 * arguments.
+	 *
+	 * @see Logger#log(Level, String, Object...)
+	 */
+	@Override
+	public void log(Level level, String pattern, Object... args){
+		if (accepts(level)) {
+			if (args==null)
+				writeRecord(level, String.valueOf(pattern), null, null, null, 0);
+			else
+				writeRecord(level, String.valueOf(pattern), args, null, null, -1);
+		}
+	}
+
+
+	/**
+	 * Writes a log built by the other methods of the logger (like {@link
+	 * #logFields(Level, String, Object...)}).
+	 *
+	 * The key/value pairs are written in the text of the log.
+	 *
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	@Override
+	protected void logEvent(Level level, CharSequence message, Throwable t, Object[] fields){
+		String text = null;
+		if (message!=null) {
+			StringBuilder sb = getBuffer();
+			sb.append(message);
+			appendFields(sb, fields);
+			text = sb.toString();
+			releaseBuffer(sb);
+		}
+		writeRecord(level, null, text, null, t, text==null ? 0 : 1);
+	}
+
+	/**
+	 * Encodes a log and writes it.
+	 *
+	 * If the last argument is an exception not used by the pattern, its log is
+	 * written too. If the file can not be written, the log is written as text
+	 * on the standard output.
+	 *
+	 * @param level log level
+	 * @param pattern pattern of the log ({@code null} if the log is the text of
+	 * the first argument, or if there is only the exception: in this case
+	 * {@code argc} is 0)
+	 * @param arg1 the first argument, or the array of the arguments if {@code
+	 * argc} is -1
+	 * @param arg2 the second argument
+	 * @param e the exception to be logged ({@code null} if none)
+	 * @param argc the number of arguments (-1 if {@code arg1} is the array of
+	 * the arguments)
+	 */
+	private void writeRecord(Level level, String pattern, Object arg1, Object arg2, Throwable e, int argc){
+		if (metrics!=null)
+			metrics.event(level);
+		long now = System.currentTimeMillis();
+		try{
+			// the file replaced after a change of the configuration has its own writer
+			LogFile f = file.current();
+			synchronized(f){
+				BinaryRecordWriter w = f==file ? this.writer : getWriter(f);
+				long nanos = BinaryRecordWriter.nanoTime(now);
+				w.begin(f.prepare(now));
+				try{
+					Throwable t = e;
+					if (pattern!=null || argc!=0) {
+						Object[] args = argc<0 ? (Object[])arg1 : w.args;
+						int n = argc<0 ? args.length : argc;
+						if (argc>0) {
+							args[0] = arg1;
+							args[1] = arg2;
+						}
+						int used = w.event(nanos, level, this.name, pattern, args, n);
+						if (used<n && args[n-1] instanceof Throwable)
+							t = (Throwable)args[n-1];
+					}
+					if (t!=null)
+						w.trace(nanos, level, this.name, t);
+				} finally{
+					w.args[0] = null;
+					w.args[1] = null;
+				}
+				ByteBuffer data = w.end();
+				if (metrics==null) {
+					f.write(data, level, now);
+				} else {
+					int bytes = data.remaining();
+					long start = System.nanoTime();
+					f.write(data, level, now);
+					metrics.write(bytes, System.nanoTime()-start);
+				}
+			}
+		} catch(IOException ex){
+			Utils.printException("error while writing the log", ex);
+			out.print(getText(level, pattern, arg1, arg2, e, argc));
+		}
+	}
+
+	/**
+	 * Returns the text of a log, as written by a {@link FileLogger}.
+	 *
+	 * @see #writeRecord(Level, String, Object, Object, Throwable, int)
+	 */
+	private String getText(Level level, String pattern, Object arg1, Object arg2, Throwable e, int argc){
+		String prefix = getPrefix(level);
+		StringBuilder sb = new StringBuilder(prefix);
+		if (pattern!=null || argc!=0) {
+			Object[] args = argc<0 ? (Object[])arg1 : argc==2 ? new Object[]{arg1, arg2} : argc==1 ? new Object[]{arg1} : null;
+			if (pattern==null) {
+				sb.append(arg1);
+			} else {
+				int used = format(sb, pattern, args);
+				if (args!=null && used<args.length && args[args.length-1] instanceof Throwable)
+					e = (Throwable)args[args.length-1];
+			}
+			sb.append(NEW_LINE);
+			if (e!=null)
+				sb.append(prefix);
+		}
+		if (e!=null) {
+			ExceptionRenderer.render(sb, e, prefix);
+			sb.append(NEW_LINE);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns the writer of a file, shared by all the binary loggers that write
+	 * on it.
+	 *
+	 * @param file the file
+	 * @return the writer
+	 */
+	private static BinaryRecordWriter getWriter(LogFile file){
+		synchronized(writers){
+			BinaryRecordWriter w = writers.get(file);
+			if (w==null) {
+				w = new BinaryRecordWriter();
+				writers.put(file, w);
+			}
+			return w;
+		}
+	}
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Turns the files written by a {@link BinaryFileLogger} back into text.
+ *
+ * Each log is written with the layout a {@link FileLogger} would use with the
+ * same configuration (the properties used are the ones about the prefix, like
+ * "{@code log.useDate}" and "{@code log.dateFormat}").
+ *
+ * <p>It can be used from the command line:
+ * <pre>java it.andynaz.log.BinaryLogDecoder [-config file.properties] file...</pre>
+ * The files are decoded in the given order, and the logs are written on the
+ * standard output. Rolled files compressed with gzip or zip (with the "{@code
+ * .gz}" or "{@code .zip}" extension) are decompressed. Without the {@code
+ * -config} option, the configuration of the application is used (see {@link
+ * ConfigMgr#getConfigParams()}).</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public final class BinaryLogDecoder{
+
+	/**
+	 * Builds the prefix of the logs.
+	 */
+	private final Logger layout;
+
+
+	/**
+	 * Creates a decoder that writes the logs with the layout of a
+	 * configuration.
+	 *
+	 * @param props the configuration
+	 *
+	 * @see Logger#Logger(String, Properties)
+	 */
+	public BinaryLogDecoder(Properties props){
+		this.layout = new Logger(null, props);
+	}
+
+	/**
+	 * Creates a decoder that writes the logs with the layout of the
+	 * configuration of the application.
+	 */
+	public BinaryLogDecoder(){
+		this(ConfigMgr.getConfigParams());
+	}
+
+
+	/**
+	 * Decodes a binary log file.
+	 *
+	 * If the last record is incomplete (the program was writing it when it
+	 * stopped), it is ignored.
+	 *
+	 * @param file the file (compressed with gzip or zip, if its name ends with
+	 * "{@code .gz}" or "{@code .zip}")
+	 * @param out where the logs are written
+	 * @return the number of logs written
+	 *
+	 * @throws IOException if the file can not be read, or if it is not a
+	 * binary log file
+	 */
+	public long decode(File file, Appendable out) throws IOException{
+		InputStream in = new FileInputStream(file);
+		try{
+			String name = file.getName().toLowerCase();
+			if (name.endsWith(".gz")) {
+				in = new GZIPInputStream(in);
+			} else if (name.endsWith(".zip")) {
+				ZipInputStream zin = new ZipInputStream(in);
+				in = zin;
+				if (zin.getNextEntry()==null)
+					return 0;
+			}
+			return decode(in, out);
+		} finally{
+			in.close();
+		}
+	}
+
+	/**
+	 * Decodes the records read from a stream.
+	 *
+	 * If the last record is incomplete, it is ignored. The stream is not
+	 * closed.
+	 *
+	 * @param in the stream
+	 * @param out where the logs are written
+	 * @return the number of logs written
+	 *
+	 * @throws IOException if the stream can not be read, or if it does not
+	 * contain binary logs
+	 */
+	public long decode(InputStream in, Appendable out) throws IOException{
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		List<String> names = new ArrayList<String>();
+		List<String> templates = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder(256);
+		Object[] args = new Object[8];
+		long time = 0;
+		long count = 0;
+		boolean started = false;
+
+		int tag;
+		while ((tag=data.read())>=0) {
+			try{
+				if (tag!=BinaryRecordWriter.HEADER && !started)
+					throw new IOException("not a binary log file");
+				switch (tag) {
+					case BinaryRecordWriter.HEADER:
+						if (data.readInt()!=BinaryRecordWriter.MAGIC)
+							throw new IOException("not a binary log file");
+						int version = data.readByte();
+						if (version!=BinaryRecordWriter.VERSION)
+							throw new IOException("unknown version of the binary log format: "+version);
+						names.clear();
+						templates.clear();
+						time = 0;
+						started = true;
+						break;
+
+					case BinaryRecordWriter.NAME:
+						define(names, (int)readVarLong(data), readString(data));
+						break;
+
+					case BinaryRecordWriter.TEMPLATE:
+						define(templates, (int)readVarLong(data), readString(data));
+						break;
+
+					case BinaryRecordWriter.EVENT:
+					case BinaryRecordWriter.TRACE:
+						long delta = readVarLong(data);
+						time += (delta>>>1) ^ -(delta & 1);
+						int levelNdx = data.readUnsignedByte();
+						String name = lookup(names, (int)readVarLong(data));
+						String template = lookup(templates, (int)readVarLong(data));
+						int argc = (int)readVarLong(data);
+						if (argc>args.length)
+							args = new Object[Math.max(argc, args.length*2)];
+						for (int i=0; i<argc; i++)
+							args[i] = readArg(data);
+
+						Level[] levels = Level.values();
+						if (levelNdx>=levels.length)
+							throw new IOException("invalid level: "+levelNdx);
+						Level level = levels[levelNdx];
+						sb.setLength(0);
+						layout.appendPrefix(sb, level, time/1000000L, name);
+						int prefixLength = sb.length();
+						if (template!=null) {
+							Object[] a = new Object[argc];
+							System.arraycopy(args, 0, a, 0, argc);
+							Logger.format(sb, template, a);
+						} else if (argc>0) {
+							String text = String.valueOf(args[0]);
+							if (tag==BinaryRecordWriter.TRACE) {
+								String prefix = sb.substring(0, prefixLength);
+								sb.append(text.replace("\n", Logger.NEW_LINE+prefix));
+							} else {
+								sb.append(text);
+							}
+						}
+						sb.append(Logger.NEW_LINE);
+						out.append(sb);
+						count++;
+						break;
+
+					default:
+						throw new IOException("invalid record: "+tag);
+				}
+			} catch(EOFException e){
+				// incomplete record
+				break;
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Stores a name or a template.
+	 */
+	private static void define(List<String> list, int id, String text) throws IOException{
+		if (id<=0)
+			throw new IOException("invalid id: "+id);
+		while (list.size()<id)
+			list.add(null);
+		list.set(id-1, text);
+	}
+
+	/**
+	 * Returns a name or a template.
+	 *
+	 * @return the text, or {@code null} if the id is 0
+	 */
+	private static String lookup(List<String> list, int id) throws IOException{
+		if (id==0)
+			return null;
+		if (id<0 || id>list.size() || list.get(id-1)==null)
+			throw new IOException("undefined id: "+id);
+		return list.get(id-1);
+	}
+
+	/**
+	 * Reads an argument.
+	 */
+	private static Object readArg(DataInputStream in) throws IOException{
+		int type = in.readByte();
+		switch (type) {
+			case BinaryRecordWriter.T_NULL:   return null;
+			case BinaryRecordWriter.T_STRING: return readString(in);
+			case BinaryRecordWriter.T_INT:    {
+				long v = readVarLong(in);
+				return (int)((v>>>1) ^ -(v & 1));
+			}
+			case BinaryRecordWriter.T_LONG:   {
+				long v = readVarLong(in);
+				return (v>>>1) ^ -(v & 1);
+			}
+			case BinaryRecordWriter.T_DOUBLE: return in.readDouble();
+			case BinaryRecordWriter.T_FLOAT:  return in.readFloat();
+			case BinaryRecordWriter.T_TRUE:   return Boolean.TRUE;
+			case BinaryRecordWriter.T_FALSE:  return Boolean.FALSE;
+			case BinaryRecordWriter.T_CHAR:   return in.readChar();
+			default: throw new IOException("invalid argument type: "+type);
+		}
+	}
+
+	/**
+	 * Reads a string (its length and its UTF-8 encoding).
+	 */
+	private static String readString(DataInputStream in) throws IOException{
+		long len = readVarLong(in);
+		if (len<0 || len>Integer.MAX_VALUE)
+			throw new IOException("invalid string length: "+len);
+		byte[] b = new byte[(int)len];
+		in.readFully(b);
+		return new String(b, "UTF-8");
+	}
+
+	/**
+	 * Reads a varint.
+	 */
+	private static long readVarLong(DataInputStream in) throws IOException{
+		long v = 0;
+		for (int shift=0; shift<64; shift+=7) {
+			int b = in.readUnsignedByte();
+			v |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80)==0)
+				return v;
+		}
+		throw new IOException("invalid varint");
+	}
+
+
+	/**
+	 * Decodes binary log files, writing the logs on the standard output.
+	 *
+	 * @param args {@code [-config file.properties] file...}
+	 */
+	public static void main(String[] args){
+		int first = 0;
+		Properties props = null;
+		if (args.length>=2 && "-config".equals(args[0])) {
+			props = new Properties();
+			try{
+				InputStream in = new FileInputStream(args[1]);
+				try{
+					props.load(in);
+				} finally{
+					in.close();
+				}
+			} catch(IOException e){
+				System.err.println("can not read the configuration "+args[1]+": "+e.getMessage());
+				System.exit(2);
+			}
+			first = 2;
+		}
+		if (first>=args.length) {
+			System.err.println("usage: java "+BinaryLogDecoder.class.getName()+" [-config file.properties] file...");
+			System.exit(2);
+		}
+
+		BinaryLogDecoder decoder = props==null ? new BinaryLogDecoder() : new BinaryLogDecoder(props);
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 64*1024);
+		int exit = 0;
+		try{
+			for (int i=first; i<args.length; i++)
+				try{
+					decoder.decode(new File(args[i]), out);
+				} catch(IOException e){
+					out.flush();
+					System.err.println(args[i]+": "+e.getMessage());
+					exit = 1;
+				}
+			out.flush();
+		} catch(IOException e){
+			exit = 1;
+		}
+		System.exit(exit);
+	}
+
+}
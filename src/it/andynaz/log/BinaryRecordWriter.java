@@ -0,0 +1,434 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the records of a binary log file.
+ *
+ * A binary log file is a sequence of records, each one starting with a tag
+ * byte:
+ * <dl>
+ *   <dt>{@link #HEADER}</dt>   <dd>the magic number ({@link #MAGIC}) and the version of the format; it is written every time the file is opened, and it resets the names and the templates</dd>
+ *   <dt>{@link #NAME}</dt>     <dd>the id (a varint) and the text of a logger name</dd>
+ *   <dt>{@link #TEMPLATE}</dt> <dd>the id (a varint) and the text of a template</dd>
+ *   <dt>{@link #EVENT}</dt>    <dd>a log: the time (in nanoseconds since the epoch, as a zigzag varlong difference from the previous record), the ordinal of the level (a byte), the id of the logger name (0 if none), the id of the template (0 if the log is the text of its only argument), the number of arguments (a varint) and the arguments</dd>
+ *   <dt>{@link #TRACE}</dt>    <dd>the log of an exception, like an event whose only argument is the text of the exception (with the lines separated by '\n')</dd>
+ * </dl>
+ * A name or a template is written before the first record that uses it.
+ * Strings are written as their length in bytes (a varint) and their UTF-8
+ * encoding. Each argument is written as a type byte followed by the value.
+ *
+ * <p>There is one writer for each file, used holding the lock of the file:
+ * the records are encoded in a buffer reused for all of them.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ *
+ * @see BinaryLogDecoder
+ */
+final class BinaryRecordWriter{
+
+	static final int MAGIC = 0x414C4F47; // "ALOG"
+	static final byte VERSION = 1;
+
+	static final byte HEADER = 0;
+	static final byte NAME = 1;
+	static final byte TEMPLATE = 2;
+	static final byte EVENT = 3;
+	static final byte TRACE = 4;
+
+	static final byte T_NULL = 0;
+	static final byte T_STRING = 1;
+	static final byte T_INT = 2;
+	static final byte T_LONG = 3;
+	static final byte T_DOUBLE = 4;
+	static final byte T_FLOAT = 5;
+	static final byte T_TRUE = 6;
+	static final byte T_FALSE = 7;
+	static final byte T_CHAR = 8;
+
+	/**
+	 * Maximum number of templates in a file: the other ones are written as
+	 * text.
+	 */
+	private static final int MAX_TEMPLATES = 65536;
+
+	/**
+	 * Maximum capacity of the buffer kept for reuse.
+	 */
+	private static final int MAX_BUFFER = 64*1024;
+
+	/**
+	 * Difference between the nanoseconds since the epoch and {@link
+	 * System#nanoTime()}.
+	 */
+	private static volatile long anchor = System.currentTimeMillis()*1000000L - System.nanoTime();
+
+	private final Map<String, Integer> names = new HashMap<String, Integer>();
+	private final Map<String, Template> templates = new HashMap<String, Template>();
+
+	/**
+	 * Number of times the file had been opened when the last record has been
+	 * written.
+	 */
+	private int opened = -1;
+
+	/**
+	 * Time of the last record.
+	 */
+	private long lastTime = 0;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+	/**
+	 * Used to pass one or two arguments without creating an array.
+	 */
+	final Object[] args = new Object[2];
+
+
+	/**
+	 * Returns the current time in nanoseconds since the epoch.
+	 *
+	 * The time is measured by {@link System#nanoTime()}, and adjusted if it
+	 * differs more than a millisecond from {@link System#currentTimeMillis()}.
+	 *
+	 * @param millis the current time in milliseconds
+	 * @return the current time in nanoseconds
+	 */
+	static long nanoTime(long millis){
+		long nanos = anchor + System.nanoTime();
+		long diff = nanos/1000000L - millis;
+		if (diff>1 || diff<-1) {
+			anchor = millis*1000000L - System.nanoTime();
+			nanos = anchor + System.nanoTime();
+		}
+		return nanos;
+	}
+
+
+	/**
+	 * Starts encoding some records.
+	 *
+	 * @param opened the number of times the file has been opened (if it
+	 * changes, a header is written and the names and the templates are
+	 * defined again)
+	 */
+	void begin(int opened){
+		if (buffer.capacity()>MAX_BUFFER)
+			buffer = ByteBuffer.allocate(MAX_BUFFER);
+		buffer.clear();
+		if (opened!=this.opened) {
+			this.opened = opened;
+			names.clear();
+			templates.clear();
+			lastTime = 0;
+			ensure(5);
+			buffer.put(HEADER).putInt(MAGIC);
+			ensure(1);
+			buffer.put(VERSION);
+		}
+	}
+
+	/**
+	 * Returns the records encoded since {@link #begin(int)}.
+	 *
+	 * @return the data, ready to be read
+	 */
+	ByteBuffer end(){
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Encodes a log.
+	 *
+	 * @param nanos the time of the log (nanoseconds since the epoch)
+	 * @param level log level
+	 * @param name name of the logger
+	 * @param template the pattern of the log, or {@code null} if the log is the
+	 * text of its only argument
+	 * @param args the arguments
+	 * @param argc the number of arguments
+	 * @return the number of arguments used by the template
+	 */
+	int event(long nanos, Level level, String name, String template, Object[] args, int argc){
+		int nameId = nameId(name);
+		Template t = null;
+		if (template!=null) {
+			t = templates.get(template);
+			if (t==null && templates.size()<MAX_TEMPLATES) {
+				t = new Template(templates.size()+1, template);
+				templates.put(template, t);
+				ensure(1);
+				buffer.put(TEMPLATE);
+				putVarLong(t.id);
+				putString(template);
+			}
+			if (t==null) {
+				// too many templates: the log is written as text
+				StringBuilder sb = new StringBuilder();
+				int used = Logger.format(sb, template, args==null ? null : trim(args, argc));
+				header(EVENT, nanos, level, nameId, 0, 1);
+				putArg(sb.toString());
+				return used;
+			}
+		}
+
+		int used = t==null ? argc : Math.min(argc, t.placeholders);
+		header(EVENT, nanos, level, nameId, t==null ? 0 : t.id, used);
+		for (int i=0; i<used; i++)
+			putArg(args[i]);
+		return used;
+	}
+
+	/**
+	 * Encodes the log of an exception.
+	 *
+	 * @param nanos the time of the log (nanoseconds since the epoch)
+	 * @param level log level
+	 * @param name name of the logger
+	 * @param e the exception
+	 */
+	void trace(long nanos, Level level, String name, Throwable e){
+		int nameId = nameId(name);
+		String[] lines = ExceptionRenderer.getLines(e);
+		header(TRACE, nanos, level, nameId, 0, 1);
+		int len = lines.length-1;
+		for (String line : lines)
+			len += utf8Length(line);
+		ensure(6);
+		buffer.put(T_STRING);
+		putVarLong(len);
+		for (int i=0; i<lines.length; i++) {
+			if (i>0) {
+				ensure(1);
+				buffer.put((byte)'\n');
+			}
+			putChars(lines[i]);
+		}
+	}
+
+
+	/**
+	 * Returns the id of a logger name, writing its definition if needed.
+	 *
+	 * @param name the name
+	 * @return the id (0 if the name is empty)
+	 */
+	private int nameId(String name){
+		if (name==null || name.length()==0)
+			return 0;
+		Integer id = names.get(name);
+		if (id==null) {
+			id = names.size()+1;
+			names.put(name, id);
+			ensure(1);
+			buffer.put(NAME);
+			putVarLong(id);
+			putString(name);
+		}
+		return id;
+	}
+
+	/**
+	 * Writes the common part of an event or of a trace.
+	 */
+	private void header(byte tag, long nanos, Level level, int nameId, int templateId, int argc){
+		long delta = nanos-lastTime;
+		lastTime = nanos;
+		ensure(2);
+		buffer.put(tag);
+		putVarLong((delta<<1) ^ (delta>>63));
+		ensure(1);
+		buffer.put((byte)level.ordinal());
+		putVarLong(nameId);
+		putVarLong(templateId);
+		putVarLong(argc);
+	}
+
+	/**
+	 * Writes an argument.
+	 *
+	 * @param arg the argument
+	 */
+	private void putArg(Object arg){
+		ensure(9);
+		if (arg==null) {
+			buffer.put(T_NULL);
+		} else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+			int v = ((Number)arg).intValue();
+			buffer.put(T_INT);
+			putVarLong(((v<<1) ^ (v>>31)) & 0xFFFFFFFFL);
+		} else if (arg instanceof Long) {
+			long v = (Long)arg;
+			buffer.put(T_LONG);
+			putVarLong((v<<1) ^ (v>>63));
+		} else if (arg instanceof Double) {
+			buffer.put(T_DOUBLE).putDouble((Double)arg);
+		} else if (arg instanceof Float) {
+			buffer.put(T_FLOAT).putFloat((Float)arg);
+		} else if (arg instanceof Boolean) {
+			buffer.put((Boolean)arg ? T_TRUE : T_FALSE);
+		} else if (arg instanceof Character) {
+			buffer.put(T_CHAR).putChar((Character)arg);
+		} else {
+			buffer.put(T_STRING);
+			putString(String.valueOf(arg));
+		}
+	}
+
+	/**
+	 * Writes a string, as its length and its UTF-8 encoding.
+	 *
+	 * @param s the string
+	 */
+	private void putString(String s){
+		putVarLong(utf8Length(s));
+		putChars(s);
+	}
+
+	/**
+	 * Writes the UTF-8 encoding of a string.
+	 *
+	 * Unpaired surrogates are written as '?'.
+	 *
+	 * @param s the string
+	 */
+	private void putChars(String s){
+		int n = s.length();
+		for (int i=0; i<n; i++) {
+			ensure(4);
+			char c = s.charAt(i);
+			if (c<0x80) {
+				buffer.put((byte)c);
+			} else if (c<0x800) {
+				buffer.put((byte)(0xC0 | (c>>6)));
+				buffer.put((byte)(0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i+1<n && Character.isLowSurrogate(s.charAt(i+1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				buffer.put((byte)(0xF0 | (cp>>18)));
+				buffer.put((byte)(0x80 | ((cp>>12) & 0x3F)));
+				buffer.put((byte)(0x80 | ((cp>>6) & 0x3F)));
+				buffer.put((byte)(0x80 | (cp & 0x3F)));
+			} else if (c>=Character.MIN_SURROGATE && c<=Character.MAX_SURROGATE) {
+				buffer.put((byte)'?');
+			} else {
+				buffer.put((byte)(0xE0 | (c>>12)));
+				buffer.put((byte)(0x80 | ((c>>6) & 0x3F)));
+				buffer.put((byte)(0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the length of the UTF-8 encoding of a string (as written by
+	 * {@link #putChars(String)}).
+	 *
+	 * @param s the string
+	 * @return the number of bytes
+	 */
+	private static int utf8Length(String s){
+		int n = s.length();
+		int len = 0;
+		for (int i=0; i<n; i++) {
+			char c = s.charAt(i);
+			if (c<0x80)
+				len++;
+			else if (c<0x800)
+				len += 2;
+			else if (Character.isHighSurrogate(c) && i+1<n && Character.isLowSurrogate(s.charAt(i+1))) {
+				len += 4;
+				i++;
+			} else if (c>=Character.MIN_SURROGATE && c<=Character.MAX_SURROGATE)
+				len++;
+			else
+				len += 3;
+		}
+		return len;
+	}
+
+	/**
+	 * Writes a positive number as a varint (7 bits for each byte, the high bit
+	 * set if more bytes follow).
+	 *
+	 * @param v the number (considered unsigned)
+	 */
+	private void putVarLong(long v){
+		ensure(10);
+		while ((v & ~0x7FL)!=0) {
+			buffer.put((byte)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		buffer.put((byte)v);
+	}
+
+	/**
+	 * Makes room in the buffer.
+	 *
+	 * @param n number of bytes needed
+	 */
+	private void ensure(int n){
+		if (buffer.remaining()<n) {
+			ByteBuffer b = ByteBuffer.allocate(Math.max(buffer.capacity()*2, buffer.position()+n));
+			buffer.flip();
+			b.put(buffer);
+			buffer = b;
+		}
+	}
+
+	/**
+	 * Returns the first elements of an array.
+	 */
+	private static Object[] trim(Object[] args, int argc){
+		if (args.length==argc)
+			return args;
+		Object[] a = new Object[argc];
+		System.arraycopy(args, 0, a, 0, argc);
+		return a;
+	}
+
+
+	/**
+	 * A template, with the number of arguments it uses.
+	 */
+	private static final class Template{
+		final int id;
+		final int placeholders;
+
+		Template(int id, String pattern){
+			this.id = id;
+			int n = 0;
+			int ndx = -2;
+			while ((ndx=pattern.indexOf("{}", ndx+2))>=0)
+				if (ndx==0 || pattern.charAt(ndx-1)!='\\')
+					n++;
+			this.placeholders = n;
+		}
+	}
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.TimerTask;
+import it.andynaz.config.ConfigMgr;
+import it.andynaz.utils.Utils;
+
+/**
+ * Logger that writes on the standard output in blocks.
+ *
+ * The {@link Logger} writes each log on {@link System#out System.out}, which
+ * writes it immediately. This logger copies the logs in a buffer, and writes
+ * the buffer on the standard output with a single write: when it is full,
+ * according to the flush policy, and at most an interval after the logs
+ * arrive (100 ms by default). Each log is always written all together, also
+ * when more threads log at the same time.
+ *
+ * <p>Pending logs are written when {@link #flush()} or {@link #close()} are
+ * invoked, and when the JVM shuts down. After the logger has been closed, logs
+ * are written directly.</p>
+ *
+ * <p>The logs written with {@code System.out} by the application are written
+ * before the logs still in the buffer: the order is kept only within each
+ * logger.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class BufferedConsoleLogger extends Logger{
+
+	/**
+	 * The standard output, without the buffer of {@code System.out}.
+	 */
+	private static final FileOutputStream stdout = new FileOutputStream(FileDescriptor.out);
+
+	/**
+	 * When the buffer has to be written.
+	 *
+	 * Dafaule value is {@code every-100-ms}.
+	 */
+	private FlushPolicy flushPolicy = FlushPolicy.parse("every-100-ms");
+
+	/**
+	 * Maximum time a log waits in the buffer, in milliseconds.
+	 */
+	private long interval = 100;
+
+	/**
+	 * The buffer the logs are copied in, and the one being written.
+	 */
+	private byte[] buffer, spare;
+
+	/**
+	 * Bytes in the buffer.
+	 */
+	private int count;
+
+	/**
+	 * Number of logs in the buffer.
+	 */
+	private int pending;
+
+	/**
+	 * Time of the last write of the buffer.
+	 */
+	private long lastFlush = System.currentTimeMillis();
+
+	private boolean closed = false;
+
+	/**
+	 * Taken while the buffer is written: the buffers are written in order.
+	 */
+	private final Object writeLock = new Object();
+
+	private final TimerTask flushTask;
+	private final Thread shutdownHook;
+
+
+	/**
+	 * Creates a BufferedConsoleLogger with a name and a configuration.
+	 *
+	 * In addition to the properties used by {@link Logger}, the ones used are:
+	 * <dl>
+	 *   <dt>log.consoleLogger.bufferSize</dt>  <dd>size of the buffer, in bytes (default 65536)</dd>
+	 *   <dt>log.consoleLogger.flushPolicy</dt> <dd>when the buffer is written: {@code every-N-events}, {@code every-N-ms} (default {@code every-100-ms}) or {@code on-level>=LEVEL}; with the policies not based on the time, the logs are written at most 100 ms after they arrive</dd>
+	 * </dl>
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see Logger#Logger(String, Properties) for all the other properties see
+	 * the Logger constructor
+	 */
+	public BufferedConsoleLogger(String name, Properties props){
+		super(name, props);
+
+		int bufferSize = 64*1024;
+		if (props!=null) {
+			// --- buffer
+			Integer size = Utils.parseInt(props.getProperty("log.consoleLogger.bufferSize"));
+			if (size!=null && size>=1024)
+				bufferSize = size;
+
+			// --- flush policy
+			if (props.getProperty("log.consoleLogger.flushPolicy")!=null)
+				try{
+					this.flushPolicy = FlushPolicy.parse(props.getProperty("log.consoleLogger.flushPolicy"));
+				} catch(Exception e){ }
+		}
+		if (flushPolicy.getInterval()>0)
+			this.interval = flushPolicy.getInterval();
+
+		this.buffer = new byte[bufferSize];
+		this.spare = new byte[bufferSize];
+
+		this.flushTask = new TimerTask(){
+			@Override
+			public void run(){
+				flushIfOld();
+			}
+		};
+		LogFile.getTimer().schedule(this.flushTask, interval, interval);
+
+		this.shutdownHook = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				flush();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+	}
+
+	/**
+	 * Creates a BufferedConsoleLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #BufferedConsoleLogger(String, Properties)
+	 */
+	public BufferedConsoleLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a BufferedConsoleLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #BufferedConsoleLogger(String, Properties)
+	 */
+	public BufferedConsoleLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a BufferedConsoleLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #BufferedConsoleLogger(String, Properties)
+	 */
+	public BufferedConsoleLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+
+	/**
+	 * Copies a log in the buffer, writing the buffer if needed.
+	 *
+	 * @param data the encoded log (with the line terminator), from its position
+	 * to its limit
+	 * @param level log level
+	 */
+	@Override
+	protected void logEncoded(ByteBuffer data, Level level){
+		if (metrics!=null)
+			metrics.event(level);
+		int len = data.remaining();
+		for (;;) {
+			boolean direct;
+			synchronized(this){
+				direct = closed || len>buffer.length;
+				if (!direct && count+len<=buffer.length) {
+					data.get(buffer, count, len);
+					count += len;
+					pending++;
+					if (count<buffer.length && !flushPolicy.hasToFlush(level, pending, lastFlush, System.currentTimeMillis()))
+						return;
+					len = 0;
+				}
+			}
+			writeBuffer();
+			if (len==0)
+				return;
+			if (direct) {
+				// written after the logs in the buffer
+				synchronized(writeLock){
+					write(data.array(), data.arrayOffset()+data.position(), len);
+				}
+				return;
+			}
+			// the buffer was full: try again
+		}
+	}
+
+	/**
+	 * Writes the logs in the buffer.
+	 */
+	@Override
+	public void flush(){
+		writeBuffer();
+	}
+
+	/**
+	 * Writes the logs in the buffer and stops buffering.
+	 *
+	 * Logs done after this method has been invoked are written directly.
+	 */
+	@Override
+	public void close(){
+		synchronized(this){
+			closed = true;
+		}
+		flushTask.cancel();
+		writeBuffer();
+		try{
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch(IllegalStateException e){ /* the JVM is shutting down */ }
+	}
+
+
+	/**
+	 * Writes the buffer, if the oldest log has waited for the interval.
+	 */
+	private void flushIfOld(){
+		synchronized(this){
+			if (count==0 || System.currentTimeMillis()-lastFlush<interval)
+				return;
+		}
+		writeBuffer();
+	}
+
+	/**
+	 * Writes the logs in the buffer on the standard output.
+	 *
+	 * The buffers are swapped, so the other threads can log while the logs are
+	 * written.
+	 */
+	private void writeBuffer(){
+		synchronized(writeLock){
+			byte[] b;
+			int len;
+			synchronized(this){
+				lastFlush = System.currentTimeMillis();
+				if (count==0)
+					return;
+				b = buffer;
+				len = count;
+				buffer = spare;
+				spare = b;
+				count = 0;
+				pending = 0;
+			}
+			write(b, 0, len);
+		}
+	}
+
+	/**
+	 * Writes some logs on the standard output; invoked holding {@link
+	 * #writeLock}.
+	 */
+	private void write(byte[] b, int off, int len){
+		long start = System.nanoTime();
+		try{
+			System.out.flush();
+			stdout.write(b, off, len);
+		} catch(IOException e){
+			Utils.printException("error while writing the log", e);
+		}
+		if (metrics!=null)
+			metrics.write(len, System.nanoTime()-start);
+	}
+
+}
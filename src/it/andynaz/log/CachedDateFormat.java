@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * A thread-safe date format, which formats the date only once per second.
+ *
+ * The date is formatted by a {@link SimpleDateFormat}, used by one thread at a
+ * time; the result is kept and reused for all the dates in the same second.
+ * If the pattern has the milliseconds (as "{@code SSS}"), they are written in
+ * the cached text.
+ *
+ * <p>Formatting a date in a {@link StringBuilder} with enough capacity does not
+ * create any object, except when the second changes.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public final class CachedDateFormat{
+
+	/**
+	 * The text of a second.
+	 */
+	private static final class Entry{
+		final long second;
+		final char[] text;
+
+		Entry(long second, char[] text){
+			this.second = second;
+			this.text = text;
+		}
+	}
+
+	private final String pattern;
+	private final SimpleDateFormat format;
+
+	/**
+	 * The format this one has been created from ({@code null} if created from
+	 * a pattern).
+	 */
+	final SimpleDateFormat source;
+
+	/**
+	 * Position of the milliseconds in the text ({@code -1} if the pattern does
+	 * not have them, {@code -2} if they can not be found in the text).
+	 */
+	private int millisPos = -1;
+
+	private volatile Entry cached = new Entry(Long.MIN_VALUE, new char[0]);
+
+
+	/**
+	 * Creates a date format.
+	 *
+	 * @param pattern the pattern, in the format used by {@link
+	 * SimpleDateFormat}
+	 *
+	 * @throws NullPointerException if {@code pattern} is {@code null}
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public CachedDateFormat(String pattern){
+		this.pattern = pattern;
+		this.format = new SimpleDateFormat(pattern);
+		this.source = null;
+	}
+
+	/**
+	 * Creates a date format from a {@link SimpleDateFormat}.
+	 *
+	 * A copy of the format is used (with its pattern, time zone and symbols):
+	 * the changes made to the format later are not seen.
+	 *
+	 * @param format the format
+	 *
+	 * @throws NullPointerException if {@code format} is {@code null}
+	 */
+	public CachedDateFormat(SimpleDateFormat format){
+		synchronized(format){
+			this.format = (SimpleDateFormat)format.clone();
+		}
+		this.pattern = this.format.toPattern();
+		this.source = format;
+	}
+
+	/**
+	 * Creates a date format for a time zone.
+	 *
+	 * @param pattern the pattern, in the format used by {@link
+	 * SimpleDateFormat}
+	 * @param zone the time zone of the dates
+	 *
+	 * @throws NullPointerException if {@code pattern} is {@code null}
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public CachedDateFormat(String pattern, TimeZone zone){
+		this(pattern);
+		this.format.setTimeZone(zone);
+	}
+
+	/**
+	 * Appends a date to a buffer.
+	 *
+	 * @param millis the date, as milliseconds since the epoch
+	 * @param sb the buffer
+	 */
+	public void format(long millis, StringBuilder sb){
+		long second = millis>=0 ? millis/1000 : (millis-999)/1000;
+		Entry e = cached;
+		if (e.second!=second)
+			e = refresh(second);
+		int start = sb.length();
+		sb.append(e.text);
+		int pos = millisPos;
+		if (pos>=0) {
+			int ms = (int)(millis - second*1000);
+			sb.setCharAt(start+pos, (char)('0' + ms/100));
+			sb.setCharAt(start+pos+1, (char)('0' + ms/10%10));
+			sb.setCharAt(start+pos+2, (char)('0' + ms%10));
+		} else if (pos==-2) {
+			// the milliseconds can not be patched
+			sb.setLength(start);
+			synchronized(format){
+				sb.append(format.format(new Date(millis)));
+			}
+		}
+	}
+
+	/**
+	 * Returns a formatted date.
+	 *
+	 * @param millis the date, as milliseconds since the epoch
+	 * @return the formatted date
+	 */
+	public String format(long millis){
+		StringBuilder sb = new StringBuilder(32);
+		format(millis, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the pattern of this format.
+	 *
+	 * @return the pattern
+	 */
+	public String toPattern(){
+		return pattern;
+	}
+
+
+	/**
+	 * Formats the beginning of a second, and keeps it.
+	 *
+	 * @param second the second
+	 * @return the text of the second
+	 */
+	private Entry refresh(long second){
+		synchronized(format){
+			Entry e = cached;
+			if (e.second==second)
+				return e;
+			String text = format.format(new Date(second*1000));
+			if (millisPos==-1 && pattern.indexOf('S')>=0)
+				millisPos = findMillis(text, format.format(new Date(second*1000+987)));
+			e = new Entry(second, text.toCharArray());
+			cached = e;
+			return e;
+		}
+	}
+
+	/**
+	 * Finds the position of the milliseconds, comparing the text of two dates
+	 * in the same second (with 0 and 987 milliseconds).
+	 *
+	 * @param t0 text with 0 milliseconds
+	 * @param t987 text with 987 milliseconds
+	 * @return the position of the milliseconds, or {@code -2} if they are not
+	 * written with three digits
+	 */
+	private static int findMillis(String t0, String t987){
+		int ndx = t0.indexOf("000");
+		while (ndx>=0) {
+			if (t0.length()==t987.length() && t987.startsWith("987", ndx)
+					&& t0.regionMatches(0, t987, 0, ndx)
+					&& t0.regionMatches(ndx+3, t987, ndx+3, t0.length()-ndx-3))
+				return ndx;
+			ndx = t0.indexOf("000", ndx+1);
+		}
+		return -2;
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.TimerTask;
+import it.andynaz.utils.Utils;
+
+/**
+ * A log file kept open.
+ *
+ * The logs are copied in a buffer, which is written on the file according to
+ * the {@link FlushPolicy flush policy} (and when it is full). The data can also
+ * be forced on the disk every time the buffer is written: in this case, a
+ * single disk synchronization is done for all the logs in the buffer.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+class ChannelLogFile extends LogFile{
+
+	/**
+	 * When the buffer has to be written.
+	 */
+	private FlushPolicy flushPolicy = FlushPolicy.EVERY_EVENT;
+
+	/**
+	 * Indicates if the data has to be forced on the disk every time the buffer
+	 * is written.
+	 */
+	private boolean fsync = false;
+
+	/**
+	 * Size of the buffer.
+	 */
+	private int bufferSize = 8192;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	/**
+	 * Number of logs in the buffer.
+	 */
+	private int pending;
+
+	/**
+	 * Time of the last write of the buffer.
+	 */
+	private long lastFlush;
+
+	private TimerTask flushTask;
+
+
+	/**
+	 * Creates the log file.
+	 *
+	 * In addition to the properties used by {@link LogFile}, the ones used are:
+	 * <dl>
+	 *   <dt>log.fileLogger.bufferSize</dt>  <dd>size of the buffer, in bytes (default 8192)</dd>
+	 *   <dt>log.fileLogger.flushPolicy</dt> <dd>when the buffer is written: {@code every-event} (default), {@code every-N-events}, {@code every-N-ms} or {@code on-level>=LEVEL}</dd>
+	 *   <dt>log.fileLogger.fsync</dt>       <dd>a boolean to indicates if the data has to be forced on the disk every time the buffer is written (default 'false')</dd>
+	 * </dl>
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 */
+	ChannelLogFile(File file, Properties props){
+		super(file, props);
+
+		// --- buffer
+		Integer size = Utils.parseInt(props.getProperty("log.fileLogger.bufferSize"));
+		if (size!=null && size>=1024)
+			this.bufferSize = size;
+
+		// --- flush policy
+		if (props.getProperty("log.fileLogger.flushPolicy")!=null)
+			try{
+				this.flushPolicy = FlushPolicy.parse(props.getProperty("log.fileLogger.flushPolicy"));
+			} catch(Exception e){ }
+
+		// --- fsync
+		if (props.getProperty("log.fileLogger.fsync")!=null)
+			this.fsync = Boolean.parseBoolean(props.getProperty("log.fileLogger.fsync"));
+	}
+
+	@Override
+	protected long open() throws IOException{
+		channel = new FileOutputStream(file, true).getChannel();
+		if (buffer==null)
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+		buffer.clear();
+		pending = 0;
+		lastFlush = System.currentTimeMillis();
+
+		if (flushPolicy.getInterval()>0) {
+			flushTask = new TimerTask(){
+				@Override
+				public void run(){
+					flush();
+				}
+			};
+			getTimer().schedule(flushTask, flushPolicy.getInterval(), flushPolicy.getInterval());
+		}
+		return channel.size();
+	}
+
+	@Override
+	protected int append(ByteBuffer data, Level level, long now) throws IOException{
+		int len = data.remaining();
+		if (len>buffer.remaining()) {
+			drainBuffer();
+			// too big for the buffer: written directly
+			while (data.remaining()>buffer.capacity())
+				channel.write(data);
+		}
+		buffer.put(data);
+
+		pending++;
+		if (flushPolicy.hasToFlush(level, pending, lastFlush, now))
+			flushBuffer(now);
+		return len;
+	}
+
+	@Override
+	protected void flushFile() throws IOException{
+		flushBuffer(System.currentTimeMillis());
+	}
+
+	@Override
+	protected void closeFile() throws IOException{
+		if (flushTask!=null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+		try{
+			channel.close();
+		} finally {
+			channel = null;
+		}
+	}
+
+
+	/**
+	 * Writes the buffer on the file, and forces the data on the disk if
+	 * required.
+	 *
+	 * @param now current time
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void flushBuffer(long now) throws IOException{
+		drainBuffer();
+		if (fsync && pending>0)
+			channel.force(false);
+		pending = 0;
+		lastFlush = now;
+	}
+
+	/**
+	 * Writes the buffer on the file.
+	 *
+	 * @return the number of bytes written
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private int drainBuffer() throws IOException{
+		buffer.flip();
+		int bytes = buffer.remaining();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+		return bytes;
+	}
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Logger that writes each log with more loggers (the <i>appenders</i>).
+ *
+ * Each appender has its own level: a log is written by the appenders whose
+ * level allows it (for instance, the warnings on the standard output and all
+ * the logs on a file). The level of this logger is checked first.
+ *
+ * <p>Each log is built and encoded only once, with the layout of this logger,
+ * and the same bytes are written by all the appenders that write the logs
+ * with the same layout (the same name, prefix and {@link Layout}) and that do
+ * not override {@link #log(String, Level)} nor {@link #logEvent(Level,
+ * CharSequence, Throwable, Object[]) logEvent}: for instance {@link Logger},
+ * {@link FileLogger} and its sub-classes. The other appenders (for instance a
+ * {@link RateLimitedLogger}, or a logger with a different layout) receive the
+ * log by their {@code log} methods, and build it by themselves.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class CompositeLogger extends Logger{
+
+	/**
+	 * An appender, and how the logs are passed to it.
+	 */
+	private static final class Appender{
+		final Logger logger;
+
+		/**
+		 * Indicates if the appender writes the logs encoded by the composite.
+		 */
+		final boolean shared;
+
+		Appender(Logger logger, boolean shared){
+			this.logger = logger;
+			this.shared = shared;
+		}
+	}
+
+	/**
+	 * The appenders (the array is replaced when an appender is added).
+	 */
+	private volatile Appender[] appenders = new Appender[0];
+
+
+	/**
+	 * Creates a CompositeLogger with a name and a configuration.
+	 *
+	 * The properties used are:
+	 * <dl>
+	 *   <dt>log.compositeLogger.appenders</dt>    <dd>the identifiers of the appenders, separated by ',' (for instance {@code console,file})</dd>
+	 *   <dt>log.compositeLogger.<i>id</i>.class</dt> <dd>class of the appender, with a public constructor with the name and the configuration (default {@link Logger})</dd>
+	 *   <dt>log.compositeLogger.<i>id</i>.level</dt> <dd>level of the appender (default the level of the configuration)</dd>
+	 *   <dt>log.compositeLogger.<i>id</i>.<i>key</i></dt> <dd>value of the property "{@code log.<i>key</i>}" for the appender (for instance {@code log.compositeLogger.file.fileLogger.file})</dd>
+	 * </dl>
+	 * Each appender is created with the same name and configuration of this
+	 * logger, changed by its own properties. The metrics of the appenders are
+	 * disabled (the logs are counted by the metrics of this logger), unless
+	 * "{@code log.compositeLogger.<i>id</i>.metrics}" is 'true'.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see Logger#Logger(String, Properties) for all the other properties see
+	 * the Logger constructor
+	 */
+	public CompositeLogger(String name, Properties props){
+		super(name, props);
+		if (props==null || props.getProperty("log.compositeLogger.appenders")==null)
+			return;
+
+		for (String id : props.getProperty("log.compositeLogger.appenders").split(",")) {
+			id = id.trim();
+			if (id.length()==0)
+				continue;
+			String prefix = "log.compositeLogger."+id+".";
+			Properties p = new Properties();
+			for (String key : props.stringPropertyNames())
+				p.setProperty(key, props.getProperty(key));
+			p.setProperty("log.metrics", "false");
+			for (String key : props.stringPropertyNames())
+				if (key.startsWith(prefix))
+					p.setProperty("log."+key.substring(prefix.length()), props.getProperty(key));
+
+			Logger logger = createLogger(p.getProperty("log.class"), name, p);
+			if (logger==null)
+				continue;
+			if (props.getProperty(prefix+"level")!=null)
+				try{
+					logger.setLevel(Level.valueOf(props.getProperty(prefix+"level").trim().toUpperCase()));
+				} catch(Exception e){ }
+			addAppender(logger);
+		}
+	}
+
+	/**
+	 * Creates a CompositeLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #CompositeLogger(String, Properties)
+	 */
+	public CompositeLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a CompositeLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #CompositeLogger(String, Properties)
+	 */
+	public CompositeLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a CompositeLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #CompositeLogger(String, Properties)
+	 */
+	public CompositeLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates an appender.
+	 *
+	 * @param cls name of the class of the appender ({@code null} for {@link
+	 * Logger})
+	 * @param name name of the appender
+	 * @param props configuration of the appender
+	 * @return the appender, or {@code null} if it cannot be created
+	 */
+	private static Logger createLogger(String cls, String name, Properties props){
+		if (cls==null)
+			return new Logger(name, props);
+		try{
+			Class<? extends Logger> c = Class.forName(cls.trim()).asSubclass(Logger.class);
+			if (c!=CompositeLogger.class) {
+				Constructor<? extends Logger> k = c.getConstructor(String.class, Properties.class);
+				return k.newInstance(name, props);
+			}
+		} catch(Exception e){ }
+		return null;
+	}
+
+
+	/**
+	 * Adds an appender.
+	 *
+	 * The appender writes the logs allowed by its level (see {@link
+	 * Logger#getLevel()}), which can be changed at any time.
+	 *
+	 * @param logger the appender
+	 *
+	 * @throws NullPointerException if {@code logger} is {@code null}
+	 * @throws IllegalArgumentException if {@code logger} is this logger
+	 */
+	public synchronized void addAppender(Logger logger){
+		if (logger==null) throw new NullPointerException("null appender");
+		if (logger==this) throw new IllegalArgumentException("a logger cannot be appender of itself");
+		Appender[] list = new Appender[appenders.length+1];
+		System.arraycopy(appenders, 0, list, 0, appenders.length);
+		list[appenders.length] = new Appender(logger, sharesEncoding(logger));
+		appenders = list;
+	}
+
+	/**
+	 * Returns the appenders.
+	 *
+	 * @return the appenders, in the order they have been added
+	 */
+	public Logger[] getAppenders(){
+		Appender[] list = appenders;
+		Logger[] loggers = new Logger[list.length];
+		for (int i=0; i<list.length; i++)
+			loggers[i] = list[i].logger;
+		return loggers;
+	}
+
+	/**
+	 * Checks if a log with the given level would be written by at least one
+	 * appender.
+	 *
+	 * @param level log level
+	 * @return {@code true} if a log with this level is written, {@code false}
+	 * otherwise
+	 */
+	@Override
+	public boolean isEnabled(Level level){
+		if (this.level.hasToLog(level))
+			for (Appender a : appenders)
+				if (a.logger.getLevel().hasToLog(level))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Writes a log with all the appenders whose level allows it.
+	 *
+	 * The log is encoded once for all the appenders that share the layout of
+	 * this logger; the other appenders receive it by their {@code log}
+	 * methods.
+	 *
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	@Override
+	protected void logEvent(Level level, CharSequence message, Throwable t, Object[] fields){
+		if (metrics!=null)
+			metrics.event(level);
+		Appender[] list = appenders;
+
+		// the encoded log is in the buffers of the thread: it is written
+		// before the other appenders build their logs
+		ByteBuffer data = null;
+		int pos = 0, limit = 0;
+		for (Appender a : list) {
+			if (!a.shared || !a.logger.getLevel().hasToLog(level))
+				continue;
+			if (data==null) {
+				data = encode(level, message, t, fields);
+				pos = data.position();
+				limit = data.limit();
+			} else {
+				data.limit(limit);
+				data.position(pos);
+			}
+			a.logger.logEncoded(data, level);
+		}
+
+		for (Appender a : list)
+			if (!a.shared && a.logger.getLevel().hasToLog(level))
+				forwardEvent(a.logger, level, message, t, fields);
+	}
+
+	/**
+	 * The logs are always passed to {@link #logEvent(Level, CharSequence,
+	 * Throwable, Object[]) logEvent} with their parts kept separate, so each
+	 * appender can write them with its own layout.
+	 *
+	 * @return {@code true}
+	 */
+	@Override
+	boolean isStructured(){
+		return true;
+	}
+
+	/**
+	 * Writes the logs kept in memory by the appenders.
+	 */
+	@Override
+	public void flush(){
+		for (Appender a : appenders)
+			a.logger.flush();
+	}
+
+	/**
+	 * Closes all the appenders.
+	 */
+	@Override
+	public void close(){
+		for (Appender a : appenders)
+			a.logger.close();
+	}
+
+}
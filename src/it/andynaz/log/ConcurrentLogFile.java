@@ -0,0 +1,360 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import it.andynaz.utils.Utils;
+
+/**
+ * A log file kept open, written by many threads without locks.
+ *
+ * The logs are copied in a ring of buffers: a thread claims the space for its
+ * log with a single atomic operation, and copies the log in parallel with the
+ * other threads. When a buffer is full, the next one is used; the full buffers
+ * are written on the file, in order, by a background thread, which is the only
+ * one that takes the lock of the file. Each log is copied in a single buffer,
+ * so it is written all together, also when it has more lines.
+ *
+ * <p>The logs are written when a buffer is full, at most an interval after they
+ * arrive (100 ms, or the one of an {@code every-N-ms} {@link FlushPolicy flush
+ * policy}), as soon as possible for the logs with the level of an {@code
+ * on-level>=LEVEL} flush policy, and by {@link #flush()} and {@link #close()}.
+ * If all the buffers are full, the threads that log wait for the background
+ * thread.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+class ConcurrentLogFile extends LogFile{
+
+	/**
+	 * Number of buffers.
+	 */
+	private static final int BUFFERS = 4;
+
+	/**
+	 * Distance between two counters used by different buffers, to keep them in
+	 * different cache lines.
+	 */
+	private static final int PAD = 16;
+
+	/**
+	 * Maximum time a log waits in a buffer, in milliseconds.
+	 */
+	private long interval = 100;
+
+	/**
+	 * When the buffer has to be written.
+	 */
+	private FlushPolicy flushPolicy = FlushPolicy.EVERY_EVENT;
+
+	/**
+	 * Indicates if the data has to be forced on the disk every time a buffer is
+	 * written.
+	 */
+	private boolean fsync = false;
+
+	/**
+	 * Size of each buffer.
+	 */
+	private int bufferSize = 64*1024;
+
+	private final byte[][] buffers;
+
+	/**
+	 * The buffer in use and the space used in it: the sequence number of the
+	 * buffer (the buffer is {@code sequence % BUFFERS}) in the high 32 bits,
+	 * the bytes claimed in the low 32 bits.
+	 */
+	private final AtomicLong state = new AtomicLong();
+
+	/**
+	 * For each buffer, the bytes already copied.
+	 */
+	private final AtomicIntegerArray copied = new AtomicIntegerArray(BUFFERS*PAD);
+
+	/**
+	 * For each buffer, the bytes claimed when the buffer has been closed
+	 * ({@code -1} while the buffer is in use).
+	 */
+	private final AtomicIntegerArray limits = new AtomicIntegerArray(BUFFERS*PAD);
+
+	/**
+	 * Sequence number of the next buffer to be written on the file.
+	 */
+	private final AtomicLong written = new AtomicLong();
+
+	private final Thread writer;
+	private volatile boolean flushRequested;
+
+	private FileChannel channel;
+
+
+	/**
+	 * Creates the log file.
+	 *
+	 * The properties used are the ones of {@link ChannelLogFile} (but the size
+	 * of the buffer is the one of each buffer, 64 KB by default, and only
+	 * the {@code every-N-ms} and {@code on-level>=LEVEL} flush policies are
+	 * considered).
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 */
+	ConcurrentLogFile(File file, Properties props){
+		super(file, props);
+
+		// --- buffer
+		Integer size = Utils.parseInt(props.getProperty("log.fileLogger.bufferSize"));
+		if (size!=null && size>=1024)
+			this.bufferSize = size;
+
+		// --- flush policy
+		if (props.getProperty("log.fileLogger.flushPolicy")!=null)
+			try{
+				this.flushPolicy = FlushPolicy.parse(props.getProperty("log.fileLogger.flushPolicy"));
+				if (flushPolicy.getInterval()>0)
+					this.interval = flushPolicy.getInterval();
+			} catch(Exception e){ }
+
+		// --- fsync
+		if (props.getProperty("log.fileLogger.fsync")!=null)
+			this.fsync = Boolean.parseBoolean(props.getProperty("log.fileLogger.fsync"));
+
+		buffers = new byte[BUFFERS][bufferSize];
+		for (int i=0; i<BUFFERS; i++)
+			limits.set(i*PAD, -1);
+
+		writer = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				drain();
+			}
+		}, "LogFile-writer-"+file.getName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/**
+	 * Copies a log in the buffers.
+	 *
+	 * The log is written on the file by the background thread; a log bigger
+	 * than a buffer is written directly, after the logs in the buffers.
+	 *
+	 * @param data the encoded log (with line terminators), from its position
+	 * to its limit
+	 * @param level log level
+	 *
+	 * @throws IOException if I/O errors occour while writing a big log
+	 */
+	@Override
+	void write(ByteBuffer data, Level level) throws IOException{
+		int len = data.remaining();
+		if (len>bufferSize) {
+			flush();
+			writeBuffer(data);
+			return;
+		}
+
+		for (;;) {
+			long s = state.get();
+			long seq = s>>>32;
+			int offset = (int)s;
+			if (offset+len>bufferSize) {
+				closeBuffer(seq, offset);
+				continue;
+			}
+			if (!state.compareAndSet(s, s+len))
+				continue;
+
+			int i = (int)(seq%BUFFERS);
+			if (data.hasArray()) {
+				System.arraycopy(data.array(), data.arrayOffset()+data.position(), buffers[i], offset, len);
+				data.position(data.limit());
+			} else {
+				data.get(buffers[i], offset, len);
+			}
+			copied.addAndGet(i*PAD, len);
+			break;
+		}
+
+		if (flushPolicy.hasToFlush(level, 0, 0, 0)) {
+			flushRequested = true;
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Closes the buffer in use, if it is still the given one, and starts using
+	 * the next one.
+	 *
+	 * If the next buffer has not been written yet, waits for the background
+	 * thread.
+	 *
+	 * @param seq sequence number of the buffer in use
+	 * @param offset bytes claimed in the buffer
+	 */
+	private void closeBuffer(long seq, int offset){
+		if (seq+1-written.get()>=BUFFERS) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(100000);
+			return;
+		}
+		if (state.compareAndSet((seq<<32)|offset, (seq+1)<<32)) {
+			limits.set((int)(seq%BUFFERS)*PAD, offset);
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Closes the buffer in use, if it has some logs.
+	 *
+	 * @return the sequence number of the first buffer not closed: all the logs
+	 * copied so far are in the buffers before it
+	 */
+	private long closeCurrentBuffer(){
+		for (;;) {
+			long s = state.get();
+			long seq = s>>>32;
+			int offset = (int)s;
+			if (offset==0)
+				return seq;
+			closeBuffer(seq, offset);
+			if (state.get()>>>32!=seq)
+				return seq+1;
+		}
+	}
+
+	/**
+	 * Writes the buffers on the file, in order (executed by the background
+	 * thread).
+	 */
+	private void drain(){
+		long nextClose = System.currentTimeMillis()+interval;
+		for (;;) {
+			long seq = written.get();
+			int i = (int)(seq%BUFFERS);
+			int limit = limits.get(i*PAD);
+			if (limit<0) {
+				long now = System.currentTimeMillis();
+				if (flushRequested || now>=nextClose) {
+					flushRequested = false;
+					nextClose = now+interval;
+					if (closeCurrentBuffer()>seq)
+						continue;
+				}
+				LockSupport.parkNanos(Math.max(1, nextClose-now)*1000000);
+				continue;
+			}
+
+			// wait for the threads that are still copying their logs
+			while (copied.get(i*PAD)<limit)
+				Thread.yield();
+			try{
+				writeBuffer(ByteBuffer.wrap(buffers[i], 0, limit));
+			} catch(IOException e){
+				Utils.printException("error while writing the log", e);
+				System.out.write(buffers[i], 0, limit);
+			} catch(RuntimeException e){
+				Utils.printException("error while writing the log", e);
+			}
+			copied.set(i*PAD, 0);
+			limits.set(i*PAD, -1);
+			written.set(seq+1);
+		}
+	}
+
+	/**
+	 * Writes some logs on the file, rolling it if needed.
+	 *
+	 * @param data the logs, from the position to the limit of the buffer
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void writeBuffer(ByteBuffer data) throws IOException{
+		super.write(data, null);
+	}
+
+	/**
+	 * Waits until the logs copied so far have been written on the file.
+	 */
+	@Override
+	void flush(){
+		long target = closeCurrentBuffer();
+		while (written.get()<target && writer.isAlive()) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(100000);
+		}
+		super.flush();
+	}
+
+	/**
+	 * Writes the logs copied so far and closes the file.
+	 *
+	 * If the file is used again, it is opened again.
+	 */
+	@Override
+	void close(){
+		flush();
+		super.close();
+	}
+
+
+	@Override
+	protected long open() throws IOException{
+		channel = new FileOutputStream(file, true).getChannel();
+		return channel.size();
+	}
+
+	@Override
+	protected int append(ByteBuffer data, Level level, long now) throws IOException{
+		int len = data.remaining();
+		while (data.hasRemaining())
+			channel.write(data);
+		if (fsync)
+			channel.force(false);
+		return len;
+	}
+
+	@Override
+	protected void flushFile(){ }
+
+	@Override
+	protected void closeFile() throws IOException{
+		try{
+			channel.close();
+		} finally {
+			channel = null;
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders the log of an exception.
+ *
+ * The exception type (with the message), the stack trace, the suppressed
+ * exceptions and the chain of causes are written in a buffer, in a single
+ * pass. As in {@link Throwable#printStackTrace()}, the frames a cause (or a
+ * suppressed exception) has in common with the exception that encloses it are
+ * not repeated, but summarized with a "{@code ... N more}" line.
+ *
+ * <p>The lines of the last rendered exceptions are kept: when an exception
+ * identical to a recent one is logged (same type, message, stack trace and
+ * causes), its lines are reused.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class ExceptionRenderer{
+
+	/**
+	 * Number of rendered exceptions kept (a power of 2).
+	 */
+	private static final int CACHE_SIZE = 64;
+
+	/**
+	 * Maximum number of nested causes rendered.
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	private static final AtomicReferenceArray<Entry> cache = new AtomicReferenceArray<Entry>(CACHE_SIZE);
+
+	/**
+	 * The {@code Throwable.getSuppressed()} method (available since Java 7),
+	 * or {@code null}.
+	 */
+	private static final Method getSuppressed;
+	static {
+		Method m = null;
+		try{
+			m = Throwable.class.getMethod("getSuppressed");
+		} catch(Exception e){ }
+		getSuppressed = m;
+	}
+
+	// hides the constructor
+	private ExceptionRenderer(){ }
+
+
+	/**
+	 * Appends the log of an exception to a buffer.
+	 *
+	 * The first line (with the exception type) is appended as is; each other
+	 * line is preceeded by a line terminator and by the prefix. No line
+	 * terminator is appended after the last line.
+	 *
+	 * @param sb the buffer
+	 * @param t the exception
+	 * @param prefix the prefix of the lines after the first one
+	 */
+	static void render(StringBuilder sb, Throwable t, String prefix){
+		String[] lines = getLines(t);
+		sb.append(lines[0]);
+		for (int i=1; i<lines.length; i++)
+			sb.append(Logger.NEW_LINE).append(prefix).append(lines[i]);
+	}
+
+	/**
+	 * Returns the lines of the log of an exception, from the cache if an
+	 * identical exception has been rendered recently.
+	 *
+	 * @param t the exception
+	 * @return the lines
+	 */
+	static String[] getLines(Throwable t){
+		Key key = new Key(t, new IdentityHashMap<Throwable, Boolean>(), 0);
+		int ndx = key.hash & (CACHE_SIZE-1);
+		Entry e = cache.get(ndx);
+		if (e!=null && e.key.equals(key))
+			return e.lines;
+
+		List<String> lines = new ArrayList<String>(key.frames.length+2);
+		render(lines, key, null, null);
+		e = new Entry(key, lines.toArray(new String[lines.size()]));
+		cache.set(ndx, e);
+		return e.lines;
+	}
+
+
+	/**
+	 * Adds the lines of an exception (and of its suppressed exceptions and
+	 * causes) to a list.
+	 *
+	 * @param lines the list
+	 * @param k the exception
+	 * @param enclosing the stack trace of the enclosing exception ({@code null}
+	 * if none)
+	 * @param caption the line to write before the exception ({@code null} if
+	 * none)
+	 */
+	private static void render(List<String> lines, Key k, StackTraceElement[] enclosing, String caption){
+		if (caption!=null)
+			lines.add(caption);
+		lines.add(k.header);
+
+		StackTraceElement[] frames = k.frames;
+		int m = frames.length-1;
+		if (enclosing!=null)
+			for (int n=enclosing.length-1; m>=0 && n>=0 && frames[m].equals(enclosing[n]); m--, n--);
+		for (int i=0; i<=m; i++)
+			lines.add("    " + frames[i]);
+		int common = frames.length-1-m;
+		if (common>0)
+			lines.add("    ... " + common + " more");
+
+		for (Key s : k.suppressed)
+			render(lines, s, frames, "  suppressed:");
+		if (k.cause!=null)
+			render(lines, k.cause, frames, "  caused by:");
+	}
+
+	/**
+	 * Returns the suppressed exceptions of an exception.
+	 *
+	 * @param t the exception
+	 * @return the suppressed exceptions (an empty array if none, or if the Java
+	 * version does not support them)
+	 */
+	private static Throwable[] getSuppressed(Throwable t){
+		if (getSuppressed!=null)
+			try{
+				return (Throwable[])getSuppressed.invoke(t);
+			} catch(Exception e){ }
+		return new Throwable[0];
+	}
+
+
+	/**
+	 * What identifies an exception: its text, its stack trace, its suppressed
+	 * exceptions and its cause.
+	 */
+	private static final class Key{
+		private static final Key[] NONE = new Key[0];
+
+		final String header;
+		final StackTraceElement[] frames;
+		final Key[] suppressed;
+		final Key cause;
+		final int hash;
+
+		Key(Throwable t, Map<Throwable, Boolean> seen, int depth){
+			if (seen.put(t, Boolean.TRUE)!=null || depth>MAX_DEPTH) {
+				this.header = "[CIRCULAR REFERENCE: " + t + "]";
+				this.frames = new StackTraceElement[0];
+				this.suppressed = NONE;
+				this.cause = null;
+			} else {
+				this.header = String.valueOf(t);
+				this.frames = t.getStackTrace();
+				Throwable[] s = getSuppressed(t);
+				this.suppressed = s.length==0 ? NONE : new Key[s.length];
+				for (int i=0; i<s.length; i++)
+					this.suppressed[i] = new Key(s[i], seen, depth+1);
+				this.cause = t.getCause()==null ? null : new Key(t.getCause(), seen, depth+1);
+			}
+			int h = header.hashCode();
+			h = 31*h + Arrays.hashCode(frames);
+			h = 31*h + Arrays.hashCode(suppressed);
+			h = 31*h + (cause==null ? 0 : cause.hash);
+			this.hash = h ^ (h>>>16);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if (o==this)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key)o;
+			return hash==k.hash && header.equals(k.header) && Arrays.equals(frames, k.frames)
+					&& Arrays.equals(suppressed, k.suppressed)
+					&& (cause==null ? k.cause==null : cause.equals(k.cause));
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+	}
+
+	/**
+	 * A rendered exception.
+	 */
+	private static final class Entry{
+		final Key key;
+		final String[] lines;
+
+		Entry(Key key, String[] lines){
+			this.key = key;
+			this.lines = lines;
+		}
+	}
+
+}
@@ -22,7 +22,9 @@
 
 package it.andynaz.log;
 
+import static java.lang.System.out;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Properties;
 import it.andynaz.utils.*;
 import it.andynaz.config.ConfigMgr;
@@ -36,8 +38,52 @@ import it.andynaz.config.ConfigMgr;
  * class, so the FileLogger object inherits all the properties the Logger class
  * has (and uses all of its options).</p>
  * 
+ * <p>By default, the file is opened and closed for every log. If the property
+ * "{@code log.fileLogger.persistent}" is 'true', the file is kept open and
+ * the logs are put in a buffer, written according to the flush policy: in this
+ * case, the logs still in the buffer are written when {@link #flush()} or
+ * {@link #close()} are invoked, and when the JVM shuts down.</p>
+ * 
+ * <p>When many threads log on the same file, the property "{@code
+ * log.fileLogger.concurrent}" can be set to 'true': the threads copy their logs
+ * in shared buffers, without waiting for each other, and the buffers are
+ * written on the file by a background thread, at most 100 ms later (or after
+ * the interval of an {@code every-N-ms} flush policy). Each log, also with
+ * more lines, is always written all together.</p>
+ * 
+ * <p>If the property "{@code log.fileLogger.gzip}" is 'true', the file is kept
+ * open and compressed with gzip while it is written: it is made of more gzip
+ * members, each one completed according to the flush policy (by default every
+ * second) and after 1 MB of logs, and it can be read with {@code zcat} also
+ * after a crash (at most the logs of the last member are lost).</p>
+ * 
+ * <p>When more processes (more JVMs) log on the same file, the property "{@code
+ * log.fileLogger.shared}" has to be set to 'true' in all of them: the file is
+ * kept open in append mode, and each log (also with the stack trace of an
+ * exception) is written immediately with a single write, so the logs of the
+ * processes are never mixed. The file is rolled by one process at a time,
+ * holding a lock on a file with the "{@code .lock}" extension, taken only
+ * while rolling; the other processes notice the rolling at one of their next
+ * logs (within a second).</p>
+ * 
+ * <p>The file can be rolled when it reaches a size or after a time interval:
+ * the rolled files are compressed in background, and only the last ones can be
+ * kept.</p>
+ * 
+ * <p>If the property "{@code log.fileLogger.index}" is 'true', a sparse index
+ * of the time of the logs is kept next to the file, so the logs written in a
+ * time interval can be read quickly with a {@link LogIndexReader}.</p>
+ * 
+ * <p>All the FileLoggers that write on the same file share it: the way the file
+ * is written (and rolled) is set by the configuration of the first logger that
+ * uses it, until all the loggers that use it are closed (the loggers created
+ * after, for instance by the {@link LoggerMgr} when the configuration changes,
+ * use their own configuration). A logger that writes the file in another mode
+ * (for instance, concurrent instead of persistent) while it is used cannot be
+ * created.</p>
+ * 
  * @author andynaz
- * @version 2014/04/29
+ * @version 2026/10/17
  */
 public class FileLogger extends Logger{
 
@@ -46,20 +92,69 @@ public class FileLogger extends Logger{
 	 */
 	protected File logFile = new File("andyLog.log");
 	
+	/**
+	 * The file, shared with the other loggers that write on it.
+	 */
+	final LogFile file;
+	
+	/**
+	 * Indicates if the file has been released by {@link #close()}.
+	 */
+	private boolean released = false;
+	
 	
 	/**
 	 * Creates a FileLogger with a name and a configuration.
 	 * 
-	 * The path of the log file is taken from the property "{@code
-	 * log.fileLogger.file}".
+	 * The properties used (in addition to the ones used by the Logger) are:
+	 * <dl>
+	 *   <dt>log.fileLogger.file</dt>         <dd>path of the log file (default "andyLog.log")</dd>
+	 *   <dt>log.fileLogger.persistent</dt>   <dd>a boolean to indicates if the file has to be kept open (default 'false')</dd>
+	 *   <dt>log.fileLogger.concurrent</dt>   <dd>a boolean to indicates if the file has to be kept open and written by a background thread, with the logs copied in shared buffers without locks (default 'false')</dd>
+	 *   <dt>log.fileLogger.gzip</dt>         <dd>a boolean to indicates if the file has to be kept open and compressed with gzip (default 'false'); it takes precedence over the other modes</dd>
+	 *   <dt>log.fileLogger.gzip.level</dt>   <dd>compression level of the gzip file, from 1 (fastest) to 9 (best compression) (default 6)</dd>
+	 *   <dt>log.fileLogger.gzip.memberSize</dt> <dd>bytes of logs after which a gzip member is completed, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 1 MB)</dd>
+	 *   <dt>log.fileLogger.shared</dt>       <dd>a boolean to indicates if the file is written also by other processes, and has to be kept open in append mode, writing each log immediately (default 'false'); it takes precedence over the persistent and the concurrent modes</dd>
+	 *   <dt>log.fileLogger.bufferSize</dt>   <dd>size of the buffer, in bytes, if the file is kept open (default 8192)</dd>
+	 *   <dt>log.fileLogger.flushPolicy</dt>  <dd>when the buffer is written: {@code every-event} (default), {@code every-N-events}, {@code every-N-ms} or {@code on-level>=LEVEL}</dd>
+	 *   <dt>log.fileLogger.fsync</dt>        <dd>a boolean to indicates if the data has to be forced on the disk every time the buffer is written, or after every log if the file is shared (default 'false')</dd>
+	 *   <dt>log.fileLogger.maxSize</dt>      <dd>size after which the file is rolled, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default: not rolled)</dd>
+	 *   <dt>log.fileLogger.rollInterval</dt> <dd>interval after which the file is rolled, in milliseconds or with a {@code s}, {@code m}, {@code h} or {@code d} suffix (default: not rolled)</dd>
+	 *   <dt>log.fileLogger.maxFiles</dt>     <dd>number of rolled files to keep (default: all)</dd>
+	 *   <dt>log.fileLogger.compress</dt>     <dd>compression of the rolled files: {@code gzip} (default), {@code zip} or {@code none}</dd>
+	 *   <dt>log.fileLogger.index</dt>        <dd>a boolean to indicates if a sparse index of the time of the logs has to be kept, to read them with a {@link LogIndexReader} (default 'false'; not used if the file is shared)</dd>
+	 *   <dt>log.fileLogger.indexInterval</dt> <dd>bytes of logs between two entries of the index, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 64 KB)</dd>
+	 * </dl>
 	 * 
 	 * @param name name of the Logger
 	 * @param props configuration of the Logger
 	 * 
+	 * @throws IllegalStateException if the file is written by other loggers
+	 * in another mode
+	 * 
 	 * @see Logger#Logger(String, Properties) for all the other properties see
 	 * the Logger constructor
 	 */
 	public FileLogger(String name, Properties props){
+		this(name, props, Boolean.parseBoolean(props.getProperty("log.fileLogger.gzip"))
+				? LogFile.Mode.GZIP : Boolean.parseBoolean(props.getProperty("log.fileLogger.shared"))
+				? LogFile.Mode.SHARED : Boolean.parseBoolean(props.getProperty("log.fileLogger.concurrent"))
+				? LogFile.Mode.CONCURRENT : Boolean.parseBoolean(props.getProperty("log.fileLogger.persistent"))
+				? LogFile.Mode.CHANNEL : LogFile.Mode.STREAM);
+	}
+	
+	/**
+	 * Creates a FileLogger with a name and a configuration, writing the file in
+	 * the given way.
+	 * 
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 * @param mode how the file has to be written
+	 * 
+	 * @throws IllegalStateException if the file is written by other loggers
+	 * in another mode
+	 */
+	FileLogger(String name, Properties props, LogFile.Mode mode){
 		super(name, props);
 
 		// --- file
@@ -67,6 +162,8 @@ public class FileLogger extends Logger{
 			try{
 				this.logFile = new File(props.getProperty("log.fileLogger.file"));
 			} catch(Exception e){ /*out.println("err: data"); throw e;*/ }
+		
+		this.file = LogFile.get(this.logFile, props, mode);
 	}
 	
 	/**
@@ -107,72 +204,137 @@ public class FileLogger extends Logger{
 	
 	
 	/**
-	 * Writes the log.
+	 * Writes an encoded log on the file.
+	 * 
+	 * If it is not possible, the log is written on the standard output.
 	 * 
-	 * If it is not possible, invokes the {@link Logger#log(String, Level)}
-	 * method.
+	 * <p>The log is built and encoded in buffers reused by the thread: if the
+	 * file is kept open (or mapped in memory), no object is created.</p>
 	 * 
-	 * @param log log to be written
+	 * @param data the encoded log (with the line terminator), from its position
+	 * to its limit
 	 * @param level log level
 	 */
 	@Override
-	public void log(String log, Level level){
-		if (this.level.hasToLog(level))
-			try{
-				Writer w = new FileWriter(logFile, true);
-				BufferedWriter bw = new BufferedWriter(w);
-				bw.write(getPrefix(level) + log);
-				bw.newLine();
-				bw.flush();
-				bw.close();
-			} catch(IOException e){
-				Utils.printException("error while writing the log", e);
-				super.log(log, level);
-			}
+	protected void logEncoded(ByteBuffer data, Level level){
+		if (metrics!=null)
+			metrics.event(level);
+		writeLog(data, level);
 	}
 	
 	/**
 	 * Writes the log of an exception with a specificied level.
 	 * 
 	 * It is written the exception type (with the message of the exception, if
-	 * present) and the stack trace. All al this elements are written all
-	 * togheter.
+	 * present), the stack trace, the suppressed exceptions and the causes (see
+	 * {@link Logger#log(Exception, Level)}). All al this elements are written
+	 * all togheter, with a single access to the file.
 	 * 
-	 * <p>If it is not possible, invokes the {@link Logger#log(Exception, Level)}
-	 * method.</p>
+	 * <p>If it is not possible, the log is written on the standard output.</p>
 	 *
 	 * @param e exception to be logged
 	 * @param level log level
 	 */
 	@Override
 	public void log(Exception e, Level level){
-		if (this.level.hasToLog(level))
-			try{
-				Writer w = new FileWriter(logFile, true);
-				BufferedWriter bw = new BufferedWriter(w);
-				String prefix = getPrefix(level);
-				
-				// print exception message
-				log(e.toString(), level);
-				// print stack trace
-				for (StackTraceElement ste : e.getStackTrace()){
-					bw.write(prefix + "    "+ste.toString());
-					bw.newLine();
-				}
-				// print an eventual cause exception
-				Throwable t = e.getCause();
-				if (t!=null && t instanceof Exception) {
-					bw.write(prefix + "  caused by:");
-					bw.newLine();
-					log((Exception)t, level);
-				}
-				
-				bw.flush();
-				bw.close();
-			} catch(IOException ex){
-				Utils.printException("error while writing the log", ex);
-				super.log(ex, level);
+		if (accepts(level))
+			logEvent(level, null, e, null);
+	}
+	
+	/**
+	 * Writes the logs kept in memory, if any.
+	 * 
+	 * If the file is kept open, the buffer is written; if the property "{@code
+	 * log.fileLogger.fsync}" is 'true', the data is also forced on the disk.
+	 */
+	@Override
+	public void flush(){
+		file.current().flush();
+	}
+	
+	/**
+	 * Writes the logs kept in memory and closes the file.
+	 * 
+	 * If the file is used again (by this logger or by another one), it is
+	 * opened again; when it is no more used by any logger, it can be replaced
+	 * by a logger with another configuration (see {@link
+	 * LogFile#release(LogFile)}).
+	 */
+	@Override
+	public void close(){
+		synchronized(this){
+			if (released) {
+				file.current().close();
+				return;
+			}
+			released = true;
+		}
+		LogFile.release(file);
+	}
+	
+	/**
+	 * Writes a text on the log file, or on the standard output if it is not
+	 * possible.
+	 * 
+	 * @param text text to be written (with line terminators)
+	 * @param level log level
+	 */
+	protected void writeLog(String text, Level level){
+		writeLog(LineEncoder.get().encode(text), level);
+	}
+	
+	/**
+	 * Writes some encoded logs on the file.
+	 * 
+	 * If it is not possible, the logs are written on the standard output. The
+	 * size and the duration of the write are counted by the metrics.
+	 * 
+	 * @param data the encoded logs, from their position to their limit
+	 * @param level log level (the highest one, if there are more logs)
+	 */
+	protected void writeLog(ByteBuffer data, Level level){
+		int pos = data.position();
+		try{
+			if (metrics==null) {
+				write(data, level);
+			} else {
+				long start = System.nanoTime();
+				write(data, level);
+				metrics.write(data.limit()-pos, System.nanoTime()-start);
 			}
+		} catch(IOException e){
+			Utils.printException("error while writing the log", e);
+			out.write(data.array(), data.arrayOffset()+pos, data.limit()-pos);
+		}
+	}
+	
+	/**
+	 * Appends some encoded logs to the log file.
+	 * 
+	 * @param data the logs (with line terminators), from the position to the
+	 * limit of the buffer
+	 * @param level log level (the highest one, if there are more logs)
+	 * 
+	 * @throws IOException if I/O errors occour
+	 */
+	protected void write(ByteBuffer data, Level level) throws IOException{
+		file.current().write(data, level);
+	}
+	
+	/**
+	 * Appends a text to the log file.
+	 * 
+	 * The text should already contain the line terminators. Sub-classes can use
+	 * this method to write more lines with a single access to the file; in this
+	 * case, the level should be the highest one of the lines.
+	 * 
+	 * @param text text to be written
+	 * @param level log level
+	 * 
+	 * @throws IOException if I/O errors occour
+	 */
+	protected void write(String text, Level level) throws IOException{
+		file.current().write(text, level);
 	}
 	
 }
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Logger that keeps in memory the last logs not written by another logger, and
+ * writes them when an error occours.
+ *
+ * The logs allowed by the level of the wrapped logger are written by it as
+ * usual. The other ones (down to the recording level, for instance {@link
+ * Level#FINE FINE}) are built and kept in a ring buffer out of the heap: when
+ * the buffer is full, the oldest logs are discarded. When a log with the dump
+ * level ({@link Level#ERROR ERROR} by default) arrives, or when {@link #dump()}
+ * is invoked, the logs in the buffer are written by the wrapped logger, before
+ * the log that caused the dump: this way the context of an error is available,
+ * without writing all the logs.
+ *
+ * <p>The logs are kept already built by the wrapped logger, with the time they
+ * have been done, and they are written all together, with a single write. If
+ * the wrapped logger builds the logs in its own way (like a {@link
+ * SocketLogger} or a {@link CompositeLogger}), only the text of each log is
+ * kept (with the key/value pairs and the exception, but without the prefix),
+ * and the logs are passed to the wrapped logger one by one, with their level,
+ * at the time of the dump.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class FlightRecorderLogger extends Logger{
+
+	/**
+	 * Bytes before each recorded log: the length of the log and the level.
+	 */
+	private static final int HEADER = 5;
+
+	/**
+	 * Charset of the text of the logs kept in memory, if they are not encoded
+	 * by the wrapped logger.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The logger that writes the logs.
+	 */
+	protected final Logger logger;
+
+	/**
+	 * Lowest level of the logs kept in memory.
+	 *
+	 * Dafaule value is {@link Level#FINE}.
+	 */
+	protected volatile Level recordLevel = Level.FINE;
+
+	/**
+	 * Level of the logs that cause the logs in memory to be written.
+	 *
+	 * Dafaule value is {@link Level#ERROR}.
+	 */
+	protected Level dumpLevel = Level.ERROR;
+
+	/**
+	 * Maximum number of logs kept in memory (0 for no limit, except the size of
+	 * the buffer).
+	 *
+	 * Dafaule value is 0.
+	 */
+	protected int maxEvents = 0;
+
+	/**
+	 * Indicates if the logs are encoded by the wrapped logger (see {@link
+	 * Logger#writesEncoded(Logger)}), or only their text is kept.
+	 */
+	private final boolean encoded;
+
+	/**
+	 * Indicates if the wrapped logger overrides {@link Logger#log(String,
+	 * Level)}, so the logs not encoded are passed to it.
+	 */
+	private final boolean textLogged;
+
+	/**
+	 * The ring buffer, out of the heap; used holding its lock.
+	 */
+	private final ByteBuffer ring;
+
+	/**
+	 * Position of the oldest log and position after the newest one (not
+	 * reduced to the capacity of the buffer), and number of logs.
+	 */
+	private long head, tail;
+	private int count;
+
+
+	/**
+	 * Creates a FlightRecorderLogger with a name and a configuration.
+	 *
+	 * The properties used are:
+	 * <dl>
+	 *   <dt>log.flightRecorderLogger.logger</dt>    <dd>class of the wrapped logger, with a public constructor with the name and the configuration (default {@link Logger})</dd>
+	 *   <dt>log.flightRecorderLogger.level</dt>     <dd>lowest level of the logs kept in memory (default {@code FINE})</dd>
+	 *   <dt>log.flightRecorderLogger.dumpLevel</dt> <dd>level of the logs that cause the logs in memory to be written (default {@code ERROR})</dd>
+	 *   <dt>log.flightRecorderLogger.size</dt>      <dd>size of the buffer, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 1 MB)</dd>
+	 *   <dt>log.flightRecorderLogger.events</dt>    <dd>maximum number of logs kept in memory (default: as many as the buffer can contain)</dd>
+	 * </dl>
+	 * The wrapped logger is created with the same name and configuration; its
+	 * level is the one of the configuration ("{@code log.level}").
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see Logger#Logger(String, Properties) for all the other properties see
+	 * the Logger constructor
+	 */
+	public FlightRecorderLogger(String name, Properties props){
+		this(name, props, createLogger(name, props));
+	}
+
+	/**
+	 * Creates a FlightRecorderLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #FlightRecorderLogger(String, Properties)
+	 */
+	public FlightRecorderLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a FlightRecorderLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #FlightRecorderLogger(String, Properties)
+	 */
+	public FlightRecorderLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a FlightRecorderLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #FlightRecorderLogger(String, Properties)
+	 */
+	public FlightRecorderLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a FlightRecorderLogger that wraps a logger.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 * @param logger the logger that writes the logs
+	 *
+	 * @see #FlightRecorderLogger(String, Properties)
+	 */
+	public FlightRecorderLogger(String name, Properties props, Logger logger){
+		super(name, props);
+		this.logger = logger;
+		this.encoded = writesEncoded(logger);
+		this.textLogged = overridesLog(logger);
+
+		long size = 1024*1024;
+		if (props!=null) {
+			// --- livelli
+			if (props.getProperty("log.flightRecorderLogger.level")!=null)
+				try{
+					this.recordLevel = Level.valueOf(props.getProperty("log.flightRecorderLogger.level").trim().toUpperCase());
+				} catch(Exception e){ }
+			if (props.getProperty("log.flightRecorderLogger.dumpLevel")!=null)
+				try{
+					this.dumpLevel = Level.valueOf(props.getProperty("log.flightRecorderLogger.dumpLevel").trim().toUpperCase());
+				} catch(Exception e){ }
+
+			// --- buffer
+			size = LogFile.parseSize(props.getProperty("log.flightRecorderLogger.size"), size);
+			try{
+				if (props.getProperty("log.flightRecorderLogger.events")!=null)
+					this.maxEvents = Math.max(0, Integer.parseInt(props.getProperty("log.flightRecorderLogger.events").trim()));
+			} catch(Exception e){ }
+		}
+		this.ring = ByteBuffer.allocateDirect((int)Math.max(1024, Math.min(size, Integer.MAX_VALUE)));
+	}
+
+	/**
+	 * Creates the wrapped logger.
+	 *
+	 * @param name name of the logger
+	 * @param props configuration
+	 * @return the logger
+	 */
+	private static Logger createLogger(String name, Properties props){
+		try{
+			String cls = props.getProperty("log.flightRecorderLogger.logger");
+			if (cls!=null) {
+				Class<? extends Logger> c = Class.forName(cls.trim()).asSubclass(Logger.class);
+				if (c!=FlightRecorderLogger.class) {
+					Constructor<? extends Logger> k = c.getConstructor(String.class, Properties.class);
+					return k.newInstance(name, props);
+				}
+			}
+		} catch(Exception e){ }
+		return new Logger(name, props);
+	}
+
+
+	/**
+	 * Returns the wrapped logger.
+	 *
+	 * @return the logger that writes the logs
+	 */
+	public Logger getLogger(){
+		return this.logger;
+	}
+
+	/**
+	 * Returns the level of the wrapped logger.
+	 *
+	 * @return the level of the logs written as soon as they arrive
+	 */
+	@Override
+	public Level getLevel(){
+		return logger.getLevel();
+	}
+
+	/**
+	 * Changes the level of the wrapped logger.
+	 *
+	 * The level of the logs kept in memory is not changed.
+	 *
+	 * @param level the new level
+	 *
+	 * @throws NullPointerException if {@code level} is {@code null}
+	 */
+	@Override
+	public void setLevel(Level level){
+		super.setLevel(level);
+		logger.setLevel(level);
+	}
+
+	/**
+	 * Returns the lowest level of the logs kept in memory.
+	 *
+	 * @return the recording level
+	 */
+	public Level getRecordLevel(){
+		return this.recordLevel;
+	}
+
+	/**
+	 * Changes the lowest level of the logs kept in memory.
+	 *
+	 * @param level the new recording level
+	 *
+	 * @throws NullPointerException if {@code level} is {@code null}
+	 */
+	public void setRecordLevel(Level level){
+		if (level==null) throw new NullPointerException("null level");
+		this.recordLevel = level;
+	}
+
+	/**
+	 * Checks if a log with the given level would be written or kept in
+	 * memory.
+	 *
+	 * @param level log level
+	 * @return {@code true} if a log with this level is written or kept in
+	 * memory, {@code false} otherwise
+	 */
+	@Override
+	public boolean isEnabled(Level level){
+		return recordLevel.hasToLog(level) || logger.getLevel().hasToLog(level);
+	}
+
+	/**
+	 * The logs are always passed to {@link #logEvent(Level, CharSequence,
+	 * Throwable, Object[]) logEvent} with their parts kept separate, so the
+	 * wrapped logger can write them with its own layout.
+	 *
+	 * @return {@code true}
+	 */
+	@Override
+	boolean isStructured(){
+		return true;
+	}
+
+	/**
+	 * Writes a log with the wrapped logger, or keeps it in memory.
+	 *
+	 * A log with the dump level is kept in memory, and then all the logs in
+	 * memory are written.
+	 *
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	@Override
+	protected void logEvent(Level level, CharSequence message, Throwable t, Object[] fields){
+		if (metrics!=null)
+			metrics.event(level);
+		if (dumpLevel.hasToLog(level)) {
+			record(level, message, t, fields);
+			dump();
+		} else if (logger.getLevel().hasToLog(level)) {
+			if (encoded)
+				logger.logEncoded(logger.encode(level, message, t, fields), level);
+			else
+				forwardEvent(logger, level, message, t, fields);
+		} else {
+			record(level, message, t, fields);
+		}
+	}
+
+	/**
+	 * Keeps a log in memory, encoded by the wrapped logger or as text.
+	 *
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	private void record(Level level, CharSequence message, Throwable t, Object[] fields){
+		if (encoded) {
+			record(logger.encode(level, message, t, fields), level);
+			return;
+		}
+		StringBuilder sb = getBuffer();
+		if (message!=null) {
+			sb.append(message);
+			appendFields(sb, fields);
+		}
+		if (t!=null) {
+			if (message!=null)
+				sb.append(NEW_LINE);
+			ExceptionRenderer.render(sb, t, "");
+		}
+		record(ByteBuffer.wrap(sb.toString().getBytes(UTF_8)), level);
+		releaseBuffer(sb);
+	}
+
+	/**
+	 * Keeps a log in memory, discarding the oldest ones if needed.
+	 *
+	 * A log bigger than the buffer is not kept.
+	 *
+	 * @param data the encoded log, from its position to its limit
+	 * @param level log level
+	 */
+	private void record(ByteBuffer data, Level level){
+		int len = data.remaining();
+		int capacity = ring.capacity();
+		if (len+HEADER>capacity)
+			return;
+		synchronized(ring){
+			while (tail+len+HEADER-head>capacity || (maxEvents>0 && count>=maxEvents)) {
+				head += HEADER+getInt(head);
+				count--;
+			}
+			putInt(tail, len);
+			ring.put((int)((tail+4)%capacity), (byte)level.ordinal());
+			int from = (int)((tail+HEADER)%capacity);
+			int first = Math.min(len, capacity-from);
+			ring.position(from);
+			ring.put(data.array(), data.arrayOffset()+data.position(), first);
+			if (first<len) {
+				ring.position(0);
+				ring.put(data.array(), data.arrayOffset()+data.position()+first, len-first);
+			}
+			tail += HEADER+len;
+			count++;
+		}
+	}
+
+	private int getInt(long pos){
+		int value = 0;
+		for (int i=0; i<4; i++)
+			value = (value<<8) | (ring.get((int)((pos+i)%ring.capacity())) & 0xff);
+		return value;
+	}
+
+	private void putInt(long pos, int value){
+		for (int i=0; i<4; i++)
+			ring.put((int)((pos+i)%ring.capacity()), (byte)(value>>>(24-8*i)));
+	}
+
+	/**
+	 * Writes the logs kept in memory with the wrapped logger, and empties the
+	 * buffer.
+	 *
+	 * The logs are copied out of the buffer and then written, so the other
+	 * threads can go on logging while they are written.
+	 */
+	public void dump(){
+		byte[] data;
+		synchronized(ring){
+			if (count==0)
+				return;
+			int capacity = ring.capacity();
+			data = new byte[(int)(tail-head)];
+			int from = (int)(head%capacity);
+			int first = Math.min(data.length, capacity-from);
+			ring.position(from);
+			ring.get(data, 0, first);
+			if (first<data.length) {
+				ring.position(0);
+				ring.get(data, first, data.length-first);
+			}
+			head = tail;
+			count = 0;
+		}
+
+		// the headers are removed, and the logs are written all together; the
+		// text of the logs not encoded is passed to the log method of the
+		// wrapped logger if overridden, otherwise to logEvent, without checking
+		// its level
+		Level[] levels = Level.values();
+		Level max = null;
+		int end = 0;
+		for (int pos=0; pos<data.length; ) {
+			int len = ((data[pos]&0xff)<<24) | ((data[pos+1]&0xff)<<16) | ((data[pos+2]&0xff)<<8) | (data[pos+3]&0xff);
+			Level level = levels[data[pos+4]];
+			if (encoded) {
+				System.arraycopy(data, pos+HEADER, data, end, len);
+				end += len;
+				if (max==null || max.hasToLog(level))
+					max = level;
+			} else {
+				String text = new String(data, pos+HEADER, len, UTF_8);
+				if (textLogged)
+					forwardEvent(logger, level, text, null, null);
+				else
+					logger.logEvent(level, text, null, null);
+			}
+			pos += HEADER+len;
+		}
+		if (encoded)
+			logger.logEncoded(ByteBuffer.wrap(data, 0, end), max);
+	}
+
+	/**
+	 * Returns the number of logs kept in memory.
+	 *
+	 * @return the number of logs that would be written by {@link #dump()}
+	 */
+	public int getRecordedCount(){
+		synchronized(ring){
+			return count;
+		}
+	}
+
+	/**
+	 * Writes the logs kept in memory by the wrapped logger (not the logs kept
+	 * by this one).
+	 */
+	@Override
+	public void flush(){
+		logger.flush();
+	}
+
+	/**
+	 * Closes the wrapped logger.
+	 *
+	 * The logs kept in memory are discarded.
+	 */
+	@Override
+	public void close(){
+		logger.close();
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * When a logger that keeps the logs in a buffer has to write them.
+ *
+ * The policy is created from a string, with one of these formats:
+ * <dl>
+ *   <dt>{@code every-event}</dt>       <dd>logs are written as soon as they arrive</dd>
+ *   <dt>{@code every-N-events}</dt>    <dd>logs are written every N events (for instance {@code every-100-events})</dd>
+ *   <dt>{@code every-N-ms}</dt>        <dd>logs are written at most N milliseconds after they arrive (for instance {@code every-500-ms})</dd>
+ *   <dt>{@code on-level>=LEVEL}</dt>   <dd>logs are written when an event with at least that {@link Level} arrives (for instance {@code on-level>=WARNING})</dd>
+ * </dl>
+ * In any case, logs are written when the buffer is full.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class FlushPolicy{
+
+	/**
+	 * Policy used if none is configured.
+	 */
+	static final FlushPolicy EVERY_EVENT = new FlushPolicy(1, 0, null);
+
+	private static final Pattern EVENTS = Pattern.compile("every-(\\d+)-events?");
+	private static final Pattern MILLIS = Pattern.compile("every-(\\d+)-ms");
+	private static final Pattern LEVEL = Pattern.compile("on-level>=(\\w+)");
+
+	/**
+	 * Number of events after which the logs are written (0 if not used).
+	 */
+	private final int events;
+
+	/**
+	 * Milliseconds after which the logs are written (0 if not used).
+	 */
+	private final long millis;
+
+	/**
+	 * Level that causes the logs to be written ({@code null} if not used).
+	 */
+	private final Level level;
+
+
+	private FlushPolicy(int events, long millis, Level level){
+		this.events = events;
+		this.millis = millis;
+		this.level = level;
+	}
+
+	/**
+	 * Returns the policy described by a string.
+	 *
+	 * @param s the description of the policy
+	 * @return the policy
+	 *
+	 * @throws NullPointerException if {@code s} is {@code null}
+	 * @throws IllegalArgumentException if the string is not valid
+	 */
+	static FlushPolicy parse(String s){
+		String policy = s.trim();
+		if ("every-event".equals(policy))
+			return EVERY_EVENT;
+
+		Matcher m = EVENTS.matcher(policy);
+		if (m.matches())
+			return new FlushPolicy(Math.max(1, Integer.parseInt(m.group(1))), 0, null);
+		m = MILLIS.matcher(policy);
+		if (m.matches())
+			return new FlushPolicy(0, Math.max(1, Long.parseLong(m.group(1))), null);
+		m = LEVEL.matcher(policy);
+		if (m.matches())
+			return new FlushPolicy(0, 0, Level.valueOf(m.group(1)));
+
+		throw new IllegalArgumentException("unknown flush policy: "+s);
+	}
+
+	/**
+	 * Checks if the buffered logs have to be written.
+	 *
+	 * @param level level of the last event
+	 * @param pending number of events in the buffer (the last one included)
+	 * @param lastFlush time of the last write (as {@link
+	 * System#currentTimeMillis()})
+	 * @param now current time
+	 * @return {@code true} if the logs have to be written
+	 */
+	boolean hasToFlush(Level level, int pending, long lastFlush, long now){
+		if (events>0)
+			return pending>=events;
+		if (millis>0)
+			return now-lastFlush>=millis;
+		return level!=null && this.level.hasToLog(level);
+	}
+
+	/**
+	 * Returns the interval of the time based policy.
+	 *
+	 * @return the milliseconds between two writes, or 0 if the policy is not
+	 * time based
+	 */
+	long getInterval(){
+		return millis;
+	}
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.TimerTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import it.andynaz.utils.Utils;
+
+/**
+ * A log file kept open, compressed with gzip while it is written.
+ *
+ * The file is made of more gzip members, one after the other (like the output
+ * of {@code cat a.gz b.gz}): it can be read with {@code zcat} or {@code gzip
+ * -dc}. The logs are compressed in the current member, which is completed (and
+ * written on the file) according to the {@link FlushPolicy flush policy}, and
+ * when it contains a given amount of logs: the completed members are readable
+ * even if the program crashes. Bigger members compress better; smaller ones
+ * lose less logs in case of a crash.
+ *
+ * <p>If the program crashes, the last member can be incomplete: it is removed
+ * when the file is opened again, so the new logs are readable. Only the last
+ * members are read to find it, as the file is only appended. A file that is
+ * not a gzip file is not changed.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+class GzipLogFile extends LogFile{
+
+	/**
+	 * Header of the members: gzip magic number, deflate method, no flags, no
+	 * time, no extra flags, unknown operating system.
+	 */
+	private static final byte[] HEADER = {0x1f, (byte)0x8b, 8, 0, 0, 0, 0, 0, 0, (byte)0xff};
+
+	/**
+	 * When the current member has to be completed.
+	 */
+	private FlushPolicy flushPolicy = FlushPolicy.parse("every-1000-ms");
+
+	/**
+	 * Indicates if the data has to be forced on the disk every time a member is
+	 * completed.
+	 */
+	private boolean fsync = false;
+
+	/**
+	 * Compression level, from 1 (fastest) to 9 (best compression).
+	 */
+	private int level = 6;
+
+	/**
+	 * Bytes of logs (not compressed) after which a member is completed.
+	 */
+	private long memberSize = 1024*1024;
+
+	private FileChannel channel;
+	private Deflater deflater;
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Buffer of the compressed data.
+	 */
+	private final byte[] out = new byte[64*1024];
+	private final ByteBuffer outBuffer = ByteBuffer.wrap(out);
+
+	/**
+	 * Bytes of logs in the current member ({@code -1} if no member is
+	 * started).
+	 */
+	private long memberBytes = -1;
+
+	/**
+	 * Number of logs in the current member.
+	 */
+	private int pending;
+
+	/**
+	 * Time the last member has been completed.
+	 */
+	private long lastFlush;
+
+	private TimerTask flushTask;
+
+
+	/**
+	 * Creates the log file.
+	 *
+	 * In addition to the properties used by {@link LogFile}, the ones used are:
+	 * <dl>
+	 *   <dt>log.fileLogger.gzip.level</dt>      <dd>compression level, from 1 (fastest) to 9 (best compression) (default 6)</dd>
+	 *   <dt>log.fileLogger.gzip.memberSize</dt> <dd>bytes of logs (not compressed) after which a member is completed, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 1 MB)</dd>
+	 *   <dt>log.fileLogger.flushPolicy</dt>     <dd>when the current member is completed: {@code every-N-events}, {@code every-N-ms} (default {@code every-1000-ms}) or {@code on-level>=LEVEL}</dd>
+	 *   <dt>log.fileLogger.fsync</dt>           <dd>a boolean to indicates if the data has to be forced on the disk every time a member is completed (default 'false')</dd>
+	 * </dl>
+	 * The rolled files are not compressed again.
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 */
+	GzipLogFile(File file, Properties props){
+		super(file, props);
+
+		// --- compressione
+		Integer i = Utils.parseInt(props.getProperty("log.fileLogger.gzip.level"));
+		if (i!=null && i>=1 && i<=9)
+			this.level = i;
+		long size = parseSize(props.getProperty("log.fileLogger.gzip.memberSize"), 0);
+		if (size>=1024)
+			this.memberSize = size;
+
+		// --- flush policy
+		if (props.getProperty("log.fileLogger.flushPolicy")!=null)
+			try{
+				this.flushPolicy = FlushPolicy.parse(props.getProperty("log.fileLogger.flushPolicy"));
+			} catch(Exception e){ }
+
+		// --- fsync
+		if (props.getProperty("log.fileLogger.fsync")!=null)
+			this.fsync = Boolean.parseBoolean(props.getProperty("log.fileLogger.fsync"));
+	}
+
+	@Override
+	protected boolean isCompressed(){
+		return true;
+	}
+
+	@Override
+	protected long open() throws IOException{
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try{
+			long length = completeLength(file);
+			if (length<raf.length())
+				raf.setLength(length);
+		} finally {
+			raf.close();
+		}
+
+		channel = new FileOutputStream(file, true).getChannel();
+		if (deflater==null)
+			deflater = new Deflater(level, true);
+		memberBytes = -1;
+		pending = 0;
+		lastFlush = System.currentTimeMillis();
+
+		if (flushPolicy.getInterval()>0) {
+			flushTask = new TimerTask(){
+				@Override
+				public void run(){
+					flush();
+				}
+			};
+			getTimer().schedule(flushTask, flushPolicy.getInterval(), flushPolicy.getInterval());
+		}
+		return channel.size();
+	}
+
+	@Override
+	protected int append(ByteBuffer data, Level level, long now) throws IOException{
+		long before = channel.position();
+		int len = data.remaining();
+		if (memberBytes<0) {
+			outBuffer.put(HEADER);
+			memberBytes = 0;
+		}
+
+		byte[] b;
+		int off;
+		if (data.hasArray()) {
+			b = data.array();
+			off = data.arrayOffset()+data.position();
+		} else {
+			b = new byte[len];
+			off = 0;
+			data.duplicate().get(b);
+		}
+		crc.update(b, off, len);
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput())
+			deflate();
+		data.position(data.limit());
+		memberBytes += len;
+
+		pending++;
+		if (memberBytes>=memberSize || flushPolicy.hasToFlush(level, pending, lastFlush, now))
+			finishMember(now);
+		return (int)(channel.position()-before);
+	}
+
+	@Override
+	protected void flushFile() throws IOException{
+		finishMember(System.currentTimeMillis());
+	}
+
+	@Override
+	protected void closeFile() throws IOException{
+		if (flushTask!=null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+		try{
+			finishMember(System.currentTimeMillis());
+		} finally {
+			try{
+				channel.close();
+			} finally {
+				channel = null;
+				if (deflater!=null)
+					deflater.end();
+				deflater = null;
+				crc.reset();
+				outBuffer.clear();
+				memberBytes = -1;
+			}
+		}
+	}
+
+
+	/**
+	 * Compresses the input of the deflater, writing the output on the file
+	 * when the buffer is full.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void deflate() throws IOException{
+		int n = deflater.deflate(out, outBuffer.position(), outBuffer.remaining());
+		outBuffer.position(outBuffer.position()+n);
+		if (!outBuffer.hasRemaining())
+			writeOut();
+	}
+
+	/**
+	 * Completes the current member, if any, and writes it on the file.
+	 *
+	 * @param now current time
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void finishMember(long now) throws IOException{
+		if (memberBytes<0 || channel==null)
+			return;
+		deflater.finish();
+		while (!deflater.finished())
+			deflate();
+		if (outBuffer.remaining()<8)
+			writeOut();
+		putInt((int)crc.getValue());
+		putInt((int)memberBytes);
+		writeOut();
+		if (fsync)
+			channel.force(false);
+
+		deflater.reset();
+		crc.reset();
+		memberBytes = -1;
+		pending = 0;
+		lastFlush = now;
+	}
+
+	/**
+	 * Writes an int in the output buffer (little endian).
+	 */
+	private void putInt(int v){
+		for (int i=0; i<4; i++)
+			outBuffer.put((byte)(v>>>(8*i)));
+	}
+
+	/**
+	 * Writes the output buffer on the file.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void writeOut() throws IOException{
+		outBuffer.flip();
+		while (outBuffer.hasRemaining())
+			channel.write(outBuffer);
+		outBuffer.clear();
+	}
+
+
+	/**
+	 * Returns the length of the complete gzip members at the beginning of a
+	 * file.
+	 *
+	 * The members written by this class all start with the same header, and
+	 * only the last one can be incomplete: the file is read from the last
+	 * header, and from the one before if the last member is not complete. The
+	 * file is read from the beginning only if this is not enough (for instance
+	 * with members written by other programs).
+	 *
+	 * @param file the file
+	 * @return the length of the complete members, or the length of the file if
+	 * it does not exist or it is not a gzip file
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	static long completeLength(File file) throws IOException{
+		long length = file.length();
+		if (length==0)
+			return 0;
+
+		// --- last members
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try{
+			long last = lastHeader(raf, length);
+			if (last>=0) {
+				if (isMember(file, last, length))
+					return length;
+				for (long prev=lastHeader(raf, last); prev>=0; prev=lastHeader(raf, prev))
+					if (isMember(file, prev, last))
+						return last;
+			}
+		} finally {
+			raf.close();
+		}
+
+		// --- all the members
+		InputStream in = new FileInputStream(file);
+		Reader r = new Reader(in, 0);
+		try{
+			if (!r.isMember())
+				return length;
+			long complete = 0;
+			while (r.isMember() && r.skipMember())
+				complete = r.position;
+			return complete;
+		} finally {
+			r.end();
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the position of the last member header before a position.
+	 *
+	 * @param raf the file
+	 * @param before the position
+	 * @return the position of the header, or {@code -1} if there is none
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private static long lastHeader(RandomAccessFile raf, long before) throws IOException{
+		byte[] b = new byte[64*1024];
+		long end = Math.min(before+HEADER.length-1, raf.length());
+		while (end>=HEADER.length) {
+			long from = Math.max(0, end-b.length);
+			int n = (int)(end-from);
+			raf.seek(from);
+			raf.readFully(b, 0, n);
+			for (int i=n-HEADER.length; i>=0; i--) {
+				int j = 0;
+				while (j<HEADER.length && b[i+j]==HEADER[j])
+					j++;
+				if (j==HEADER.length)
+					return from+i;
+			}
+			if (from==0)
+				break;
+			end = from+HEADER.length-1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks if a complete and valid gzip member is in a part of a file.
+	 *
+	 * @param file the file
+	 * @param start position of the member
+	 * @param end position after the member
+	 * @return {@code true} if the member is valid and ends at {@code end}
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private static boolean isMember(File file, long start, long end) throws IOException{
+		FileInputStream in = new FileInputStream(file);
+		Reader r = new Reader(in, start);
+		try{
+			in.getChannel().position(start);
+			return r.isMember() && r.skipMember() && r.position==end;
+		} finally {
+			r.end();
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the members of a gzip file, checking they are complete.
+	 */
+	private static final class Reader{
+		private final InputStream in;
+		private final byte[] buf = new byte[64*1024];
+		private final byte[] tmp = new byte[64*1024];
+		private final Inflater inflater = new Inflater(true);
+		private final CRC32 crc = new CRC32();
+		private int off, len;
+
+		/**
+		 * Position in the file of the first byte not read.
+		 */
+		long position;
+
+		Reader(InputStream in, long position){
+			this.in = in;
+			this.position = position;
+		}
+
+		/**
+		 * Releases the resources of the inflater.
+		 */
+		void end(){
+			inflater.end();
+		}
+
+		/**
+		 * Makes at least n bytes available in the buffer.
+		 *
+		 * @return {@code false} if the file ends before
+		 */
+		private boolean ensure(int n) throws IOException{
+			if (len-off>=n)
+				return true;
+			System.arraycopy(buf, off, buf, 0, len-off);
+			len -= off;
+			off = 0;
+			while (len<n) {
+				int r = in.read(buf, len, buf.length-len);
+				if (r<0)
+					return false;
+				len += r;
+			}
+			return true;
+		}
+
+		private void skip(int n){
+			off += n;
+			position += n;
+		}
+
+		/**
+		 * Checks if a gzip member starts here.
+		 */
+		boolean isMember() throws IOException{
+			return ensure(10) && buf[off]==0x1f && buf[off+1]==(byte)0x8b && buf[off+2]==8;
+		}
+
+		/**
+		 * Reads a member.
+		 *
+		 * @return {@code true} if the member is complete and valid
+		 */
+		boolean skipMember() throws IOException{
+			int flags = buf[off+3];
+			skip(10);
+			if ((flags & 4)!=0) {
+				if (!ensure(2))
+					return false;
+				int xlen = (buf[off]&0xff) | (buf[off+1]&0xff)<<8;
+				skip(2);
+				if (!ensure(xlen))
+					return false;
+				skip(xlen);
+			}
+			for (int flag=8; flag<=16; flag<<=1)
+				if ((flags & flag)!=0)
+					do{
+						if (!ensure(1))
+							return false;
+						skip(1);
+					} while (buf[off-1]!=0);
+			if ((flags & 2)!=0) {
+				if (!ensure(2))
+					return false;
+				skip(2);
+			}
+
+			inflater.reset();
+			crc.reset();
+			try{
+				while (!inflater.finished()) {
+					if (inflater.needsInput()) {
+						if (!ensure(1))
+							return false;
+						inflater.setInput(buf, off, len-off);
+						int given = len-off;
+						int n = inflater.inflate(tmp);
+						crc.update(tmp, 0, n);
+						skip(given-inflater.getRemaining());
+					} else {
+						int before = inflater.getRemaining();
+						int n = inflater.inflate(tmp);
+						crc.update(tmp, 0, n);
+						skip(before-inflater.getRemaining());
+					}
+				}
+			} catch(DataFormatException e){
+				return false;
+			}
+
+			if (!ensure(8))
+				return false;
+			int storedCrc = (buf[off]&0xff) | (buf[off+1]&0xff)<<8 | (buf[off+2]&0xff)<<16 | (buf[off+3]&0xff)<<24;
+			skip(8);
+			return storedCrc==(int)crc.getValue();
+		}
+	}
+
+}
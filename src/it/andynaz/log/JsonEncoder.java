@@ -0,0 +1,347 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the logs as JSON objects, one for each line.
+ *
+ * A log is written as an object with these fields (the ones without a value
+ * are omitted):
+ * <dl>
+ *   <dt>{@code timestamp}</dt> <dd>the time of the log, in ISO 8601 format (UTC, with milliseconds)</dd>
+ *   <dt>{@code level}</dt>     <dd>the name of the {@link Level}</dd>
+ *   <dt>{@code logger}</dt>    <dd>the name of the logger</dd>
+ *   <dt>{@code thread}</dt>    <dd>the name of the thread</dd>
+ *   <dt>{@code message}</dt>   <dd>the text of the log</dd>
+ *   <dt>{@code exception}</dt> <dd>the log of the exception (see {@link Logger#log(Exception, Level)}), with the lines separated by '\n'</dd>
+ *   <dt>{@code fields}</dt>    <dd>an object with the key/value pairs of the log (numbers and booleans are not quoted)</dd>
+ *   <dt>{@code mdc}</dt>       <dd>an object with the pairs of the {@link LogContext context} of the thread</dd>
+ * </dl>
+ * The line ends with '\n'.
+ *
+ * <p>The text is escaped and encoded in UTF-8 directly in a byte buffer, with
+ * no intermediate strings. Each thread has its own encoder (see {@link
+ * #get()}), and the buffer is reused for the following logs: it is valid till
+ * the next invocation by the same thread.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class JsonEncoder{
+
+	/**
+	 * Maximum capacity of a buffer kept for reuse.
+	 */
+	private static final int MAX_BUFFER = 64*1024;
+
+	private static final byte[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+
+	private static final ThreadLocal<JsonEncoder> encoders = new ThreadLocal<JsonEncoder>(){
+		@Override
+		protected JsonEncoder initialValue(){
+			return new JsonEncoder();
+		}
+	};
+
+	private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+
+	private JsonEncoder(){ }
+
+	/**
+	 * Returns the encoder of the current thread.
+	 *
+	 * @return the encoder of the current thread
+	 */
+	static JsonEncoder get(){
+		return encoders.get();
+	}
+
+	/**
+	 * Encodes a log.
+	 *
+	 * @param time the time of the log (as {@link System#currentTimeMillis()})
+	 * @param level log level
+	 * @param name name of the logger ({@code null} if none)
+	 * @param message text of the log ({@code null} if none)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 * @param context context of the thread ({@code null} if not written)
+	 * @return a byte buffer with the encoded log, ready to be read
+	 */
+	ByteBuffer encode(long time, Level level, String name, CharSequence message, Throwable t, Object[] fields, LogContext context){
+		if (buffer.capacity()>MAX_BUFFER)
+			buffer = ByteBuffer.allocate(MAX_BUFFER);
+		buffer.clear();
+
+		putAscii("{\"timestamp\":\"");
+		putTimestamp(time);
+		putAscii("\",\"level\":\"");
+		putAscii(level.name());
+		if (name!=null && name.length()>0) {
+			putAscii("\",\"logger\":\"");
+			putEscaped(name);
+		}
+		putAscii("\",\"thread\":\"");
+		putEscaped(Thread.currentThread().getName());
+		putByte('"');
+		if (message!=null) {
+			putAscii(",\"message\":\"");
+			putEscaped(message);
+			putByte('"');
+		}
+		if (t!=null) {
+			putAscii(",\"exception\":\"");
+			String[] lines = ExceptionRenderer.getLines(t);
+			for (int i=0; i<lines.length; i++) {
+				if (i>0)
+					putAscii("\\n");
+				putEscaped(lines[i]);
+			}
+			putByte('"');
+		}
+		if (fields!=null && fields.length>0) {
+			putAscii(",\"fields\":{");
+			for (int i=0; i<fields.length; i+=2) {
+				if (i>0)
+					putByte(',');
+				putByte('"');
+				putEscaped(String.valueOf(fields[i]));
+				putAscii("\":");
+				putValue(i+1<fields.length ? fields[i+1] : null);
+			}
+			putByte('}');
+		}
+		if (context!=null && context.size()>0) {
+			putAscii(",\"mdc\":{");
+			boolean first = true;
+			for (int i=0; i<context.slots(); i++)
+				if (context.getKey(i)!=null) {
+					if (!first)
+						putByte(',');
+					first = false;
+					putByte('"');
+					putEscaped(context.getKey(i));
+					putAscii("\":\"");
+					putEscaped(context.getValue(i));
+					putByte('"');
+				}
+			putByte('}');
+		}
+		putAscii("}\n");
+
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	 * Writes a value: numbers and booleans as they are, the other objects as
+	 * strings.
+	 *
+	 * @param v the value
+	 */
+	private void putValue(Object v){
+		if (v==null) {
+			putAscii("null");
+		} else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+			putLong(((Number)v).longValue());
+		} else if (v instanceof Double || v instanceof Float) {
+			double d = ((Number)v).doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d)) {
+				putByte('"');
+				putAscii(v.toString());
+				putByte('"');
+			} else {
+				putAscii(v.toString());
+			}
+		} else if (v instanceof Boolean) {
+			putAscii((Boolean)v ? "true" : "false");
+		} else {
+			putByte('"');
+			putEscaped(v instanceof CharSequence ? (CharSequence)v : String.valueOf(v));
+			putByte('"');
+		}
+	}
+
+	/**
+	 * Writes a time as "{@code yyyy-MM-ddTHH:mm:ss.SSSZ}" (UTC).
+	 *
+	 * @param time the time (as {@link System#currentTimeMillis()})
+	 */
+	private void putTimestamp(long time){
+		long days = time/86400000L;
+		long ms = time%86400000L;
+		if (ms<0) {
+			ms += 86400000L;
+			days--;
+		}
+		// civil date from the days since 1970-01-01
+		long z = days + 719468;
+		long era = (z>=0 ? z : z-146096) / 146097;
+		long doe = z - era*146097;
+		long yoe = (doe - doe/1460 + doe/36524 - doe/146096) / 365;
+		long doy = doe - (365*yoe + yoe/4 - yoe/100);
+		long mp = (5*doy + 2) / 153;
+		long d = doy - (153*mp + 2)/5 + 1;
+		long m = mp<10 ? mp+3 : mp-9;
+		long y = yoe + era*400 + (m<=2 ? 1 : 0);
+
+		ensure(24);
+		putDigits(y, 4);
+		buffer.put((byte)'-');
+		putDigits(m, 2);
+		buffer.put((byte)'-');
+		putDigits(d, 2);
+		buffer.put((byte)'T');
+		putDigits(ms/3600000, 2);
+		buffer.put((byte)':');
+		putDigits(ms/60000%60, 2);
+		buffer.put((byte)':');
+		putDigits(ms/1000%60, 2);
+		buffer.put((byte)'.');
+		putDigits(ms%1000, 3);
+		buffer.put((byte)'Z');
+	}
+
+	/**
+	 * Writes a number with a fixed number of digits.
+	 */
+	private void putDigits(long v, int digits){
+		for (int i=digits-1; i>=0; i--) {
+			buffer.put(buffer.position()+i, (byte)('0' + v%10));
+			v /= 10;
+		}
+		buffer.position(buffer.position()+digits);
+	}
+
+	/**
+	 * Writes a number.
+	 *
+	 * @param v the number
+	 */
+	private void putLong(long v){
+		if (v==Long.MIN_VALUE) {
+			putAscii("-9223372036854775808");
+			return;
+		}
+		ensure(20);
+		if (v<0) {
+			buffer.put((byte)'-');
+			v = -v;
+		}
+		int digits = 1;
+		for (long p=10; digits<19 && v>=p; p*=10)
+			digits++;
+		putDigits(v, digits);
+	}
+
+	/**
+	 * Writes a text made only of ASCII characters, without escaping it.
+	 *
+	 * @param s the text
+	 */
+	private void putAscii(String s){
+		int n = s.length();
+		ensure(n);
+		for (int i=0; i<n; i++)
+			buffer.put((byte)s.charAt(i));
+	}
+
+	private void putByte(char c){
+		ensure(1);
+		buffer.put((byte)c);
+	}
+
+	/**
+	 * Writes a text, escaped for a JSON string and encoded in UTF-8.
+	 *
+	 * Unpaired surrogates are escaped as "{@code \}{@code uXXXX}".
+	 *
+	 * @param s the text
+	 */
+	private void putEscaped(CharSequence s){
+		int n = s.length();
+		for (int i=0; i<n; i++) {
+			ensure(6);
+			char c = s.charAt(i);
+			if (c<0x80) {
+				if (c=='"' || c=='\\') {
+					buffer.put((byte)'\\').put((byte)c);
+				} else if (c>=0x20) {
+					buffer.put((byte)c);
+				} else if (c=='\n') {
+					buffer.put((byte)'\\').put((byte)'n');
+				} else if (c=='\r') {
+					buffer.put((byte)'\\').put((byte)'r');
+				} else if (c=='\t') {
+					buffer.put((byte)'\\').put((byte)'t');
+				} else {
+					putUnicodeEscape(c);
+				}
+			} else if (c<0x800) {
+				buffer.put((byte)(0xC0 | (c>>6)));
+				buffer.put((byte)(0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i+1<n && Character.isLowSurrogate(s.charAt(i+1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				buffer.put((byte)(0xF0 | (cp>>18)));
+				buffer.put((byte)(0x80 | ((cp>>12) & 0x3F)));
+				buffer.put((byte)(0x80 | ((cp>>6) & 0x3F)));
+				buffer.put((byte)(0x80 | (cp & 0x3F)));
+			} else if (c>=Character.MIN_SURROGATE && c<=Character.MAX_SURROGATE) {
+				putUnicodeEscape(c);
+			} else {
+				buffer.put((byte)(0xE0 | (c>>12)));
+				buffer.put((byte)(0x80 | ((c>>6) & 0x3F)));
+				buffer.put((byte)(0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	/**
+	 * Writes a char as "{@code \}{@code uXXXX}" (the buffer must have room for
+	 * it).
+	 */
+	private void putUnicodeEscape(char c){
+		buffer.put((byte)'\\').put((byte)'u');
+		buffer.put(HEX[(c>>12) & 0xF]).put(HEX[(c>>8) & 0xF]).put(HEX[(c>>4) & 0xF]).put(HEX[c & 0xF]);
+	}
+
+	/**
+	 * Makes room in the buffer.
+	 *
+	 * @param n number of bytes needed
+	 */
+	private void ensure(int n){
+		if (buffer.remaining()<n) {
+			ByteBuffer b = ByteBuffer.allocate(Math.max(buffer.capacity()*2, buffer.position()+n));
+			buffer.flip();
+			b.put(buffer);
+			buffer = b;
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes the logs in bytes, reusing the same buffers.
+ *
+ * Each thread has its own encoder (see {@link #get()}): the text is copied in
+ * a char buffer and encoded in a byte buffer, both reused for the following
+ * logs, so no object is created (except when a buffer has to grow). The
+ * charset is the default one of the platform.
+ *
+ * <p>The byte buffer returned by the {@code encode} methods is valid till the
+ * next invocation by the same thread.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class LineEncoder{
+
+	/**
+	 * Maximum capacity of a buffer kept for reuse.
+	 */
+	private static final int MAX_BUFFER = 64*1024;
+
+	private static final ThreadLocal<LineEncoder> encoders = new ThreadLocal<LineEncoder>(){
+		@Override
+		protected LineEncoder initialValue(){
+			return new LineEncoder();
+		}
+	};
+
+	private final CharsetEncoder encoder;
+	private char[] chars = new char[512];
+	private CharBuffer charBuffer = CharBuffer.wrap(chars);
+	private ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+
+
+	private LineEncoder(){
+		encoder = Charset.defaultCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Returns the encoder of the current thread.
+	 *
+	 * @return the encoder of the current thread
+	 */
+	static LineEncoder get(){
+		return encoders.get();
+	}
+
+	/**
+	 * Encodes the content of a buffer.
+	 *
+	 * @param sb the text
+	 * @return a byte buffer with the encoded text, ready to be read
+	 */
+	ByteBuffer encode(StringBuilder sb){
+		int len = sb.length();
+		ensureChars(len);
+		sb.getChars(0, len, chars, 0);
+		return encode(len);
+	}
+
+	/**
+	 * Encodes a string.
+	 *
+	 * @param s the text
+	 * @return a byte buffer with the encoded text, ready to be read
+	 */
+	ByteBuffer encode(String s){
+		int len = s.length();
+		ensureChars(len);
+		s.getChars(0, len, chars, 0);
+		return encode(len);
+	}
+
+
+	/**
+	 * Encodes the first chars of the char buffer.
+	 *
+	 * @param len number of chars to encode
+	 * @return a byte buffer with the encoded text, ready to be read
+	 */
+	private ByteBuffer encode(int len){
+		if (byteBuffer.capacity()>MAX_BUFFER && len*encoder.maxBytesPerChar()<MAX_BUFFER)
+			byteBuffer = ByteBuffer.allocate(MAX_BUFFER);
+		while (true) {
+			charBuffer.clear().limit(len);
+			byteBuffer.clear();
+			encoder.reset();
+			CoderResult cr = encoder.encode(charBuffer, byteBuffer, true);
+			if (!cr.isOverflow())
+				cr = encoder.flush(byteBuffer);
+			if (!cr.isOverflow())
+				break;
+			byteBuffer = ByteBuffer.allocate(byteBuffer.capacity()*2);
+		}
+		byteBuffer.flip();
+		if (chars.length>MAX_BUFFER) {
+			chars = new char[512];
+			charBuffer = CharBuffer.wrap(chars);
+		}
+		return byteBuffer;
+	}
+
+	/**
+	 * Makes the char buffer big enough.
+	 *
+	 * @param len number of chars needed
+	 */
+	private void ensureChars(int len){
+		if (chars.length<len) {
+			chars = new char[Math.max(len, chars.length*2)];
+			charBuffer = CharBuffer.wrap(chars);
+		}
+	}
+
+}
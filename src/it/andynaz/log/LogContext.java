@@ -0,0 +1,398 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Context of the logs of a thread (a <i>mapped diagnostic context</i>).
+ *
+ * Each thread has its own context, a set of key/value pairs (for instance the
+ * identifier of the request being served) written with all the logs done by
+ * the thread: after the prefix of the logs with the {@link Logger.Layout#TEXT
+ * TEXT} layout (as "{@code key=value}" pairs), and in the "{@code mdc}" object
+ * of the logs with the {@link Logger.Layout#JSON JSON} layout. It is not
+ * written by the {@link BinaryFileLogger}.
+ *
+ * <p>The pairs are kept in a small array (an open addressing hash table), and
+ * their text is built once, when the context changes: writing the context
+ * with a log does not create any object. The order of the pairs is not the one
+ * they have been added in.</p>
+ *
+ * <p>To pass the context to a task executed by another thread, a {@link
+ * Snapshot} is taken and restored by the task (see {@link #wrap(Runnable)}):
+ * <pre>
+ * LogContext.put("request", id);
+ * executor.execute(LogContext.wrap(task));
+ * </pre></p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public final class LogContext{
+
+	/**
+	 * The pairs of a context, at a given moment.
+	 *
+	 * A snapshot does not change when the context changes.
+	 */
+	public static final class Snapshot{
+		final String[] keys;
+		final String[] values;
+		final int size;
+
+		/**
+		 * The pairs as text ({@code null} if not built yet).
+		 */
+		final String text;
+
+		Snapshot(String[] keys, String[] values, int size, String text){
+			this.keys = keys;
+			this.values = values;
+			this.size = size;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * The empty context.
+	 */
+	private static final Snapshot EMPTY = new Snapshot(new String[8], new String[8], 0, "");
+
+	private static final ThreadLocal<LogContext> contexts = new ThreadLocal<LogContext>(){
+		@Override
+		protected LogContext initialValue(){
+			return new LogContext();
+		}
+	};
+
+	/**
+	 * The pairs, with a {@code null} key in the free slots (the length is a
+	 * power of 2).
+	 */
+	private String[] keys;
+	private String[] values;
+	private int size;
+
+	/**
+	 * Indicates if the arrays are shared with a snapshot: they are copied
+	 * before being changed.
+	 */
+	private boolean shared;
+
+	/**
+	 * The pairs as text ({@code null} if not built yet).
+	 */
+	private String text;
+
+
+	private LogContext(){
+		set(EMPTY);
+	}
+
+	/**
+	 * Returns the context of the current thread.
+	 *
+	 * @return the context
+	 */
+	static LogContext current(){
+		return contexts.get();
+	}
+
+
+	/**
+	 * Adds a pair to the context of the current thread.
+	 *
+	 * @param key the key
+	 * @param value the value ({@code null} to remove the key)
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}
+	 */
+	public static void put(String key, String value){
+		if (key==null) throw new NullPointerException("null key");
+		LogContext c = current();
+		if (value==null) {
+			c.delete(key);
+			return;
+		}
+		int i = c.find(key);
+		if (value.equals(c.values[i]))
+			return;
+		c.unshare();
+		if (c.keys[i]==null) {
+			if ((c.size+1)*4>c.keys.length*3) {
+				c.grow();
+				i = c.find(key);
+			}
+			c.keys[i] = key;
+			c.size++;
+		}
+		c.values[i] = value;
+		c.text = null;
+	}
+
+	/**
+	 * Returns a value of the context of the current thread.
+	 *
+	 * @param key the key
+	 * @return the value, or {@code null} if there is none
+	 */
+	public static String get(String key){
+		if (key==null) return null;
+		LogContext c = current();
+		return c.values[c.find(key)];
+	}
+
+	/**
+	 * Removes a pair from the context of the current thread.
+	 *
+	 * @param key the key
+	 */
+	public static void remove(String key){
+		if (key!=null)
+			current().delete(key);
+	}
+
+	/**
+	 * Removes all the pairs from the context of the current thread.
+	 */
+	public static void clear(){
+		current().set(EMPTY);
+	}
+
+	/**
+	 * Returns the pairs in the context of the current thread.
+	 *
+	 * The arrays are shared with the context, and copied only when the context
+	 * changes.
+	 *
+	 * @return the pairs
+	 */
+	public static Snapshot snapshot(){
+		LogContext c = current();
+		if (c.size==0)
+			return EMPTY;
+		c.shared = true;
+		return new Snapshot(c.keys, c.values, c.size, c.text);
+	}
+
+	/**
+	 * Replaces the context of the current thread.
+	 *
+	 * @param snapshot the pairs of the new context ({@code null} for an empty
+	 * context)
+	 * @return the pairs of the previous context, to restore it
+	 */
+	public static Snapshot restore(Snapshot snapshot){
+		Snapshot previous = snapshot();
+		current().set(snapshot==null ? EMPTY : snapshot);
+		return previous;
+	}
+
+	/**
+	 * Returns a task that is executed with the current context.
+	 *
+	 * The context of the thread that executes the task is restored when the
+	 * task ends.
+	 *
+	 * @param task the task
+	 * @return the task with the context
+	 */
+	public static Runnable wrap(final Runnable task){
+		final Snapshot snapshot = snapshot();
+		return new Runnable(){
+			@Override
+			public void run(){
+				Snapshot previous = restore(snapshot);
+				try{
+					task.run();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a task that is executed with the current context.
+	 *
+	 * The context of the thread that executes the task is restored when the
+	 * task ends.
+	 *
+	 * @param <T> type of the result
+	 * @param task the task
+	 * @return the task with the context
+	 */
+	public static <T> Callable<T> wrap(final Callable<T> task){
+		final Snapshot snapshot = snapshot();
+		return new Callable<T>(){
+			@Override
+			public T call() throws Exception{
+				Snapshot previous = restore(snapshot);
+				try{
+					return task.call();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+
+	/**
+	 * Returns the number of pairs.
+	 *
+	 * @return the number of pairs
+	 */
+	int size(){
+		return size;
+	}
+
+	/**
+	 * Returns the pairs as text.
+	 *
+	 * @return the pairs as "{@code key=value}", separated by a space (an empty
+	 * string if there is none)
+	 */
+	String getText(){
+		if (text==null) {
+			StringBuilder sb = new StringBuilder();
+			for (int i=0; i<keys.length; i++)
+				if (keys[i]!=null) {
+					if (sb.length()>0)
+						sb.append(' ');
+					sb.append(keys[i]).append('=').append(values[i]);
+				}
+			text = sb.toString();
+		}
+		return text;
+	}
+
+	/**
+	 * Returns a key.
+	 *
+	 * @param slot the slot, from 0 to the length of the table
+	 * @return the key, or {@code null} if the slot is free
+	 */
+	String getKey(int slot){
+		return keys[slot];
+	}
+
+	/**
+	 * Returns a value.
+	 *
+	 * @param slot the slot, from 0 to the length of the table
+	 * @return the value, or {@code null} if the slot is free
+	 */
+	String getValue(int slot){
+		return values[slot];
+	}
+
+	/**
+	 * Returns the length of the table.
+	 *
+	 * @return the number of slots
+	 */
+	int slots(){
+		return keys.length;
+	}
+
+
+	/**
+	 * Uses the pairs of a snapshot (shared with it).
+	 */
+	private void set(Snapshot snapshot){
+		keys = snapshot.keys;
+		values = snapshot.values;
+		size = snapshot.size;
+		text = snapshot.text;
+		shared = true;
+	}
+
+	/**
+	 * Returns the slot of a key, or the free slot where it can be added.
+	 */
+	private int find(String key){
+		int mask = keys.length-1;
+		int h = key.hashCode();
+		int i = (h ^ (h>>>16)) & mask;
+		while (keys[i]!=null && !keys[i].equals(key))
+			i = (i+1) & mask;
+		return i;
+	}
+
+	/**
+	 * Removes a key, moving back the keys after it.
+	 */
+	private void delete(String key){
+		int i = find(key);
+		if (keys[i]==null)
+			return;
+		unshare();
+		int mask = keys.length-1;
+		keys[i] = null;
+		values[i] = null;
+		size--;
+		text = null;
+		for (int j=(i+1) & mask; keys[j]!=null; j=(j+1) & mask) {
+			int h = keys[j].hashCode();
+			int k = (h ^ (h>>>16)) & mask;
+			// the key can stay where it is if its slot is between the free
+			// slot (excluded) and its position
+			if (i<=j ? (i<k && k<=j) : (i<k || k<=j))
+				continue;
+			keys[i] = keys[j];
+			values[i] = values[j];
+			keys[j] = null;
+			values[j] = null;
+			i = j;
+		}
+	}
+
+	/**
+	 * Copies the arrays, if they are shared with a snapshot.
+	 */
+	private void unshare(){
+		if (shared) {
+			keys = keys.clone();
+			values = values.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * Doubles the length of the table.
+	 */
+	private void grow(){
+		String[] k = keys, v = values;
+		keys = new String[k.length*2];
+		values = new String[v.length*2];
+		for (int i=0; i<k.length; i++)
+			if (k[i]!=null) {
+				int j = find(k[i]);
+				keys[j] = k[i];
+				values[j] = v[i];
+			}
+	}
+
+}
@@ -0,0 +1,773 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import it.andynaz.utils.Utils;
+import it.andynaz.utils.UtilsZIP;
+
+/**
+ * A log file, shared by all the {@link FileLogger}s that write on it.
+ *
+ * There is only one instance for each path (see {@link #get(File, Properties,
+ * Mode)}); the instance is configured by the properties of the first logger
+ * that uses the file. When all the loggers that use it have been closed (see
+ * {@link #release(LogFile)}), a logger created later with another
+ * configuration (for instance, after a change of the configuration) replaces
+ * it with a new instance: the loggers that still use the old instance write
+ * on the new one (see {@link #current()}), so the file is always written by
+ * one instance. Sub-classes define how the file is written, while this class
+ * takes care of the rolling of the file.
+ *
+ * <p>The file is rolled when it reaches a size or when a time interval
+ * expires: it is renamed (adding the date to its name) and a new file is
+ * created. The renamed file is compressed by a background thread, which also
+ * deletes the oldest rolled files.</p>
+ *
+ * <p>If required, a sparse index of the time of the logs is kept next to the
+ * file (see {@link LogIndex} and {@link LogIndexReader}).</p>
+ *
+ * <p>A file written also by other processes (see {@link #isShared()}) is
+ * rolled holding the lock of a {@link RollLock}, and opened again when
+ * another process rolls it; the rolled file is compressed some seconds later,
+ * after the other processes have stopped writing on it.</p>
+ *
+ * <p>All the files still open are closed when the JVM shuts down.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+abstract class LogFile{
+
+	/**
+	 * How a log file is written.
+	 */
+	enum Mode{
+		/**
+		 * The file is opened and closed for every write.
+		 */
+		STREAM,
+
+		/**
+		 * The file is kept open, and written with a buffer.
+		 */
+		CHANNEL,
+
+		/**
+		 * The file is mapped in memory.
+		 */
+		MAPPED,
+
+		/**
+		 * The file is kept open, and written by a background thread with the
+		 * logs copied in shared buffers without locks.
+		 */
+		CONCURRENT,
+
+		/**
+		 * The file is kept open, and the logs are compressed while they are
+		 * written.
+		 */
+		GZIP,
+
+		/**
+		 * The file is kept open, and written also by other processes: each log
+		 * is appended with a single write.
+		 */
+		SHARED
+	}
+
+	private static final Map<String, LogFile> files = new HashMap<String, LogFile>();
+	private static boolean hookAdded = false;
+	private static ExecutorService background;
+	private static Timer timer;
+
+	private static final Pattern SIZE = Pattern.compile("(\\d+)\\s*([kKmMgG]?)[bB]?");
+	private static final Pattern TIME = Pattern.compile("(\\d+)\\s*(ms|s|m|h|d)?");
+
+	/**
+	 * Milliseconds after which a rolled file written also by other processes
+	 * is compressed.
+	 */
+	private static final long SHARED_ROLLED_DELAY = 5000;
+
+	/**
+	 * The file.
+	 */
+	protected final File file;
+
+	/**
+	 * Size after which the file is rolled (0 if not used).
+	 */
+	private long maxSize = 0;
+
+	/**
+	 * Milliseconds after which the file is rolled (0 if not used).
+	 */
+	private long rollInterval = 0;
+
+	/**
+	 * Number of rolled files to keep (0 to keep all).
+	 */
+	private int maxFiles = 0;
+
+	/**
+	 * Compression of the rolled files: "gzip", "zip" or "none".
+	 */
+	private String compress = "gzip";
+
+	/**
+	 * Current size of the file ({@code -1} if the file is not open).
+	 */
+	private long size = -1;
+
+	/**
+	 * Time at which the file has to be rolled.
+	 */
+	private long nextRoll = Long.MAX_VALUE;
+
+	/**
+	 * Number of times the file has been opened.
+	 */
+	private int opened = 0;
+
+	/**
+	 * Index of the time of the logs ({@code null} if not used).
+	 */
+	private LogIndex index;
+
+	/**
+	 * Lock of the rolling, if the file is written also by other processes
+	 * ({@code null} if not).
+	 */
+	private RollLock rollLock;
+
+	/**
+	 * How the file is written, and the properties of the configuration of the
+	 * file (the "{@code log.fileLogger.*}" ones).
+	 */
+	private Mode mode;
+	private Properties config;
+
+	/**
+	 * The instance that replaced this one ({@code null} if not replaced).
+	 */
+	private volatile LogFile replacedBy;
+
+	/**
+	 * Number of loggers that use the file (see {@link #get(File, Properties,
+	 * Mode)} and {@link #release(LogFile)}).
+	 */
+	private int users = 0;
+
+
+	/**
+	 * Creates a log file.
+	 *
+	 * The properties used are:
+	 * <dl>
+	 *   <dt>log.fileLogger.maxSize</dt>      <dd>size after which the file is rolled, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default: not rolled)</dd>
+	 *   <dt>log.fileLogger.rollInterval</dt> <dd>interval after which the file is rolled, in milliseconds or with a {@code s}, {@code m}, {@code h} or {@code d} suffix (default: not rolled)</dd>
+	 *   <dt>log.fileLogger.maxFiles</dt>     <dd>number of rolled files to keep (default: all)</dd>
+	 *   <dt>log.fileLogger.compress</dt>     <dd>compression of the rolled files: {@code gzip} (default), {@code zip} or {@code none}</dd>
+	 *   <dt>log.fileLogger.index</dt>        <dd>a boolean to indicates if a sparse index of the time of the logs has to be kept, in a file with the "{@code .idx}" extension (default 'false'; not used if the file is compressed or shared)</dd>
+	 *   <dt>log.fileLogger.indexInterval</dt> <dd>bytes of logs between two entries of the index, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 64 KB)</dd>
+	 * </dl>
+	 * The index of a rolled file is kept only if the file is not compressed.
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 */
+	protected LogFile(File file, Properties props){
+		this.file = file;
+
+		// --- rolling
+		this.maxSize = parseSize(props.getProperty("log.fileLogger.maxSize"), 0);
+		this.rollInterval = parseTime(props.getProperty("log.fileLogger.rollInterval"), 0);
+		Integer i = Utils.parseInt(props.getProperty("log.fileLogger.maxFiles"));
+		if (i!=null && i>0)
+			this.maxFiles = i;
+		String c = props.getProperty("log.fileLogger.compress");
+		if ("zip".equals(c) || "none".equals(c))
+			this.compress = c;
+
+		// --- index
+		if (Boolean.parseBoolean(props.getProperty("log.fileLogger.index")) && !isCompressed() && !isShared())
+			this.index = new LogIndex(file, Math.max(1024, parseSize(props.getProperty("log.fileLogger.indexInterval"), 64*1024)));
+
+		// --- other processes
+		if (isShared())
+			this.rollLock = new RollLock(file);
+	}
+
+	/**
+	 * Returns the log file with the given path, for a logger that uses it.
+	 *
+	 * If the file is not used yet, it is created with the configuration and the
+	 * mode given. If it is used by other loggers, the configuration is ignored,
+	 * and the mode has to be the same. If all the loggers that used it have
+	 * been closed, and the configuration or the mode are different, the file is
+	 * closed and replaced by a new instance.
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 * @param mode how the file has to be written
+	 * @return the log file
+	 *
+	 * @throws IllegalStateException if the file is used by other loggers with
+	 * another mode
+	 */
+	static LogFile get(File file, Properties props, Mode mode){
+		String key = file.getAbsolutePath();
+		Properties config = new Properties();
+		for (String name : props.stringPropertyNames())
+			if (name.startsWith("log.fileLogger."))
+				config.setProperty(name, props.getProperty(name));
+		synchronized(files){
+			LogFile lf = files.get(key);
+			LogFile old = null;
+			if (lf!=null && lf.users==0 && (lf.mode!=mode || !lf.config.equals(config))) {
+				old = lf;
+				lf = null;
+			}
+			if (lf!=null && lf.mode!=mode)
+				throw new IllegalStateException("the log file "+key+" is already written in the "+lf.mode+" mode, not in the "+mode+" mode");
+			if (lf==null) {
+				if (!hookAdded) {
+					Runtime.getRuntime().addShutdownHook(new Thread(new Runnable(){
+						@Override
+						public void run(){
+							closeAll();
+						}
+					}, "LogFile-close"));
+					hookAdded = true;
+				}
+				switch (mode) {
+					case CHANNEL: lf = new ChannelLogFile(file, props); break;
+					case MAPPED:
+						if (MappedLogFile.isSupported()) {
+							lf = new MappedLogFile(file, props);
+						} else {
+							Utils.printException("the log file "+key+" can not be mapped in memory on this platform", new UnsupportedOperationException("the log file is written with a buffer"));
+							lf = new ChannelLogFile(file, props);
+						}
+						break;
+					case CONCURRENT: lf = new ConcurrentLogFile(file, props); break;
+					case GZIP:    lf = new GzipLogFile(file, props); break;
+					case SHARED:  lf = new SharedLogFile(file, props); break;
+					default:      lf = new StreamLogFile(file, props);
+				}
+				lf.mode = mode;
+				lf.config = config;
+				// the old instance is closed before the new one opens the file
+				if (old!=null) {
+					old.replacedBy = lf;
+					old.close();
+				}
+				files.put(key, lf);
+			}
+			lf.users++;
+			return lf;
+		}
+	}
+
+	/**
+	 * Releases a log file used by a logger, that does not use it any more.
+	 *
+	 * The file is closed; when no logger uses it, it can be replaced (see
+	 * {@link #get(File, Properties, Mode)}).
+	 *
+	 * @param lf the log file
+	 */
+	static void release(LogFile lf){
+		synchronized(files){
+			if (lf.users>0)
+				lf.users--;
+		}
+		lf.close();
+	}
+
+	/**
+	 * Returns the instance that writes the file: this one, or the one that
+	 * replaced it.
+	 *
+	 * @return the instance to be used to write the file
+	 */
+	LogFile current(){
+		LogFile lf = this;
+		while (lf.replacedBy!=null)
+			lf = lf.replacedBy;
+		return lf;
+	}
+
+
+	/**
+	 * Writes a text on the file, rolling it if needed.
+	 *
+	 * The text is encoded by the {@link LineEncoder} of the current thread.
+	 *
+	 * @param text text to be written (with line terminators)
+	 * @param level log level (the highest one, if the text has more logs)
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	void write(String text, Level level) throws IOException{
+		write(LineEncoder.get().encode(text), level);
+	}
+
+	/**
+	 * Writes some encoded logs on the file, rolling it if needed.
+	 *
+	 * @param data the encoded logs (with line terminators), from their
+	 * position to their limit
+	 * @param level log level (the highest one, if there are more logs)
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	synchronized void write(ByteBuffer data, Level level) throws IOException{
+		long now = System.currentTimeMillis();
+		prepare(now);
+		write(data, level, now);
+	}
+
+	/**
+	 * Opens the file, or rolls it, if needed before writing.
+	 *
+	 * Used, with {@link #write(ByteBuffer, Level, long)}, by the loggers
+	 * whose data depends on what has already been written on the file: both
+	 * the methods have to be invoked holding the lock of this object.
+	 *
+	 * @param now current time
+	 * @return the number of times the file has been opened; if it changes, the
+	 * next data is written at the beginning of a new file (or after the file
+	 * has been closed)
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	synchronized int prepare(long now) throws IOException{
+		try{
+			if (size<0)
+				start(now);
+			if ((maxSize>0 && size>=maxSize) || now>=nextRoll || (rollLock!=null && rollLock.isRolled(now))) {
+				if (rollLock!=null)
+					rollLock.lock();
+				try{
+					if (rollLock!=null && rollLock.isRolled()) {
+						// rolled by another process: the new file is opened
+						stop();
+						start(now);
+					} else {
+						boolean rolled = roll(now);
+						start(now);
+						// if the file can not be renamed, try again later
+						if (!rolled)
+							size = 0;
+					}
+				} finally {
+					if (rollLock!=null)
+						rollLock.unlock();
+				}
+			}
+		} catch(IOException e){
+			stop();
+			throw e;
+		}
+		return opened;
+	}
+
+	/**
+	 * Writes some data on the file, without rolling it.
+	 *
+	 * @param data the data, from its position to its limit
+	 * @param level log level (the highest one, if there are more logs)
+	 * @param now current time
+	 *
+	 * @throws IOException if I/O errors occour
+	 *
+	 * @see #prepare(long)
+	 */
+	synchronized void write(ByteBuffer data, Level level, long now) throws IOException{
+		try{
+			if (size<0)
+				start(now);
+			if (index!=null)
+				try{
+					index.add(size, now);
+				} catch(IOException e){
+					Utils.printException("error while writing the index of the log", e);
+					index.close();
+					index = null;
+				}
+			size += append(data, level, now);
+		} catch(IOException e){
+			stop();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the logs kept in memory, if any.
+	 */
+	synchronized void flush(){
+		if (size>=0)
+			try{
+				flushFile();
+			} catch(IOException e){
+				Utils.printException("error while writing the log", e);
+				stop();
+			}
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * If the file is used again, it is opened again.
+	 */
+	synchronized void close(){
+		if (size>=0)
+			try{
+				flushFile();
+			} catch(IOException e){
+				Utils.printException("error while writing the log", e);
+			}
+		stop();
+		if (rollLock!=null)
+			rollLock.close();
+	}
+
+
+	/**
+	 * Checks if the data is compressed while it is written: in this case, the
+	 * rolled files are not compressed again.
+	 *
+	 * @return {@code false}, for the files written as text
+	 */
+	protected boolean isCompressed(){
+		return false;
+	}
+
+	/**
+	 * Checks if the file is written also by other processes: in this case, the
+	 * rolling is coordinated with them, and no index is kept.
+	 *
+	 * @return {@code false}, for the files written only by this process
+	 */
+	protected boolean isShared(){
+		return false;
+	}
+
+	/**
+	 * Opens the file.
+	 *
+	 * @return the current size of the file
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	protected abstract long open() throws IOException;
+
+	/**
+	 * Appends some encoded logs to the file.
+	 *
+	 * All the data has to be written (or copied) before returning.
+	 *
+	 * @param data the data to be written
+	 * @param level log level
+	 * @param now current time
+	 * @return the number of bytes written
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	protected abstract int append(ByteBuffer data, Level level, long now) throws IOException;
+
+	/**
+	 * Writes the logs kept in memory, if any.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	protected abstract void flushFile() throws IOException;
+
+	/**
+	 * Closes the file, without writing the logs kept in memory.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	protected abstract void closeFile() throws IOException;
+
+
+	/**
+	 * Opens the file and computes the next roll time.
+	 *
+	 * If the file was written in a previous interval, it is rolled at the first
+	 * write.
+	 *
+	 * @param now current time
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void start(long now) throws IOException{
+		if (replacedBy!=null)
+			throw new IOException("the log file has been replaced");
+		// the file is not rolled by other processes while it is opened
+		if (rollLock!=null)
+			rollLock.lock();
+		try{
+			size = open();
+			if (rollLock!=null)
+				rollLock.opened(now);
+		} finally {
+			if (rollLock!=null)
+				rollLock.unlock();
+		}
+		opened++;
+		if (index!=null)
+			try{
+				index.open(size);
+			} catch(IOException e){
+				Utils.printException("error while opening the index of the log", e);
+				index.close();
+				index = null;
+			}
+		if (rollInterval>0) {
+			long from = size>0 ? Math.min(now, file.lastModified()) : now;
+			nextRoll = (from/rollInterval+1)*rollInterval;
+		}
+	}
+
+	/**
+	 * Closes the file (if open), ignoring errors.
+	 */
+	private void stop(){
+		if (size>=0)
+			try{
+				closeFile();
+			} catch(IOException e){ }
+		if (index!=null)
+			index.close();
+		size = -1;
+	}
+
+	/**
+	 * Rolls the file.
+	 *
+	 * The file is closed and renamed; compression and deletion of the old
+	 * files are done by a background thread. If the file is written also by
+	 * other processes, this method is invoked holding the lock of the rolling.
+	 *
+	 * @param now current time
+	 * @return {@code true} if the file has been rolled, {@code false} if it can
+	 * not be renamed
+	 *
+	 * @throws IOException if I/O errors occour while closing the file
+	 */
+	private boolean roll(long now) throws IOException{
+		flushFile();
+		closeFile();
+		size = -1;
+		if (index!=null)
+			index.close();
+
+		String base = file.getName() + "." + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now));
+		File rolled = new File(file.getAbsoluteFile().getParentFile(), base);
+		for (int i=1; rolled.exists(); i++)
+			rolled = new File(rolled.getParentFile(), base+"-"+i);
+
+		// the other processes open the file again, also if it is not renamed
+		if (rollLock!=null)
+			rollLock.rolled();
+		if (!file.renameTo(rolled)) {
+			Utils.printException("error while rolling the log", new IOException("can not rename "+file+" to "+rolled));
+			return false;
+		}
+		if (index!=null)
+			index.roll(rolled, "none".equals(compress));
+		if (rollLock!=null) {
+			// the other processes write on the rolled file until they notice
+			// the rolling
+			final Runnable task = new RolledFile(rolled);
+			getTimer().schedule(new TimerTask(){
+				@Override
+				public void run(){
+					submit(task);
+				}
+			}, SHARED_ROLLED_DELAY);
+		} else
+			submit(new RolledFile(rolled));
+		return true;
+	}
+
+	/**
+	 * Compresses a rolled file and deletes the oldest ones.
+	 */
+	private class RolledFile implements Runnable{
+		private final File rolled;
+
+		RolledFile(File rolled){
+			this.rolled = rolled;
+		}
+
+		@Override
+		public void run(){
+			try{
+				File compressed = null;
+				String c = isCompressed() ? "none" : compress;
+				if ("gzip".equals(c))
+					compressed = UtilsZIP.createGZip(rolled);
+				else if ("zip".equals(c))
+					compressed = UtilsZIP.createZip(rolled);
+				// reached only if the compression has been completed
+				if (compressed!=null && compressed.exists())
+					rolled.delete();
+			} catch(IOException e){
+				Utils.printException("error while compressing the log "+rolled, e);
+			}
+			if (maxFiles>0)
+				deleteOldFiles();
+		}
+	}
+
+	/**
+	 * Deletes the oldest rolled files, keeping the last {@code maxFiles}.
+	 */
+	private void deleteOldFiles(){
+		final Pattern rolledName = Pattern.compile(Pattern.quote(file.getName())+"\\.\\d{8}-\\d{6}(-\\d+)?(\\.gz|\\.zip)?");
+		File[] rolled = file.getAbsoluteFile().getParentFile().listFiles(new java.io.FileFilter(){
+			@Override
+			public boolean accept(File f){
+				return rolledName.matcher(f.getName()).matches();
+			}
+		});
+		if (rolled==null || rolled.length<=maxFiles)
+			return;
+		Arrays.sort(rolled, new Comparator<File>(){
+			@Override
+			public int compare(File f1, File f2){
+				long diff = f1.lastModified()-f2.lastModified();
+				return diff<0 ? -1 : (diff>0 ? 1 : f1.getName().compareTo(f2.getName()));
+			}
+		});
+		for (int i=0; i<rolled.length-maxFiles; i++) {
+			rolled[i].delete();
+			LogIndex.getFile(rolled[i]).delete();
+		}
+	}
+
+
+	/**
+	 * Parses a size, in bytes or with a {@code K}, {@code M} or {@code G}
+	 * suffix.
+	 *
+	 * @param s the size
+	 * @param def default value
+	 * @return the size in bytes, or the default value if the string is not
+	 * valid
+	 */
+	static long parseSize(String s, long def){
+		if (s==null) return def;
+		Matcher m = SIZE.matcher(s.trim());
+		if (!m.matches()) return def;
+		long value = Long.parseLong(m.group(1));
+		switch (Character.toUpperCase(m.group(2).length()>0 ? m.group(2).charAt(0) : ' ')) {
+			case 'G': return value<<30;
+			case 'M': return value<<20;
+			case 'K': return value<<10;
+			default:  return value;
+		}
+	}
+
+	/**
+	 * Parses a time interval, in milliseconds or with a {@code s}, {@code m},
+	 * {@code h} or {@code d} suffix.
+	 *
+	 * @param s the interval
+	 * @param def default value
+	 * @return the interval in milliseconds, or the default value if the string
+	 * is not valid
+	 */
+	static long parseTime(String s, long def){
+		if (s==null) return def;
+		Matcher m = TIME.matcher(s.trim());
+		if (!m.matches()) return def;
+		long value = Long.parseLong(m.group(1));
+		String unit = m.group(2)==null ? "ms" : m.group(2);
+		if ("s".equals(unit)) return value*1000L;
+		if ("m".equals(unit)) return value*60*1000L;
+		if ("h".equals(unit)) return value*60*60*1000L;
+		if ("d".equals(unit)) return value*24*60*60*1000L;
+		return value;
+	}
+
+	/**
+	 * Runs a task on the background thread of the log files.
+	 *
+	 * @param task the task
+	 */
+	static synchronized void submit(Runnable task){
+		if (background==null)
+			background = Executors.newSingleThreadExecutor(new ThreadFactory(){
+				@Override
+				public Thread newThread(Runnable r){
+					Thread t = new Thread(r, "LogFile-background");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		background.execute(task);
+	}
+
+	/**
+	 * Returns the timer used for the periodic tasks of the log files.
+	 *
+	 * @return the timer (its thread is a daemon)
+	 */
+	static synchronized Timer getTimer(){
+		if (timer==null)
+			timer = new Timer("LogFile-timer", true);
+		return timer;
+	}
+
+	/**
+	 * Closes all the log files.
+	 *
+	 * The logs still in the buffers of the {@link AsyncFileLogger}s are written
+	 * first.
+	 */
+	private static void closeAll(){
+		AsyncFileLogger.shutdownAll();
+		List<LogFile> all;
+		synchronized(files){
+			all = new ArrayList<LogFile>(files.values());
+		}
+		for (LogFile lf : all)
+			lf.close();
+	}
+
+}
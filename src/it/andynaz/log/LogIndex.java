@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sparse index of the time of the logs in a log file.
+ *
+ * The index is kept in a file next to the log file, with the same name and the
+ * "{@code .idx}" extension. Every time some KB of logs have been written, an
+ * entry with the current time and the position in the log file of the next
+ * log is added: all the logs before the position have been written before the
+ * time. An entry is made of two longs (big endian), the time (in milliseconds)
+ * and the position; the times of the entries never decrease.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ *
+ * @see LogIndexReader
+ */
+final class LogIndex{
+
+	/**
+	 * Size of an entry.
+	 */
+	static final int ENTRY = 16;
+
+	/**
+	 * Extension of the index files.
+	 */
+	static final String EXTENSION = ".idx";
+
+	private final File log;
+
+	/**
+	 * Bytes of logs between two entries.
+	 */
+	private final long interval;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private final ByteBuffer entry = ByteBuffer.allocate(ENTRY);
+
+	/**
+	 * Position in the log file from which the next entry is added.
+	 */
+	private long next;
+
+	/**
+	 * Time of the last entry.
+	 */
+	private long lastTime;
+
+
+	/**
+	 * Creates the index of a log file.
+	 *
+	 * @param log the log file
+	 * @param interval bytes of logs between two entries
+	 */
+	LogIndex(File log, long interval){
+		this.log = log;
+		this.interval = interval;
+	}
+
+	/**
+	 * Returns the index file of a log file.
+	 *
+	 * @param log the log file
+	 * @return the index file
+	 */
+	static File getFile(File log){
+		return new File(log.getPath()+EXTENSION);
+	}
+
+	/**
+	 * Opens the index, when the log file is opened.
+	 *
+	 * The entries after the end of the log file (if the log file has been
+	 * truncated or replaced) are removed, and an entry is added at the next
+	 * write.
+	 *
+	 * @param size current size of the log file
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	void open(long size) throws IOException{
+		raf = new RandomAccessFile(getFile(log), "rw");
+		channel = raf.getChannel();
+		long end = channel.size()/ENTRY*ENTRY;
+		lastTime = Long.MIN_VALUE;
+		while (end>0) {
+			entry.clear();
+			while (entry.hasRemaining() && channel.read(entry, end-ENTRY+entry.position())>=0);
+			if (entry.getLong(8)<=size) {
+				lastTime = entry.getLong(0);
+				break;
+			}
+			end -= ENTRY;
+		}
+		if (end<channel.size())
+			channel.truncate(end);
+		channel.position(end);
+		next = size;
+	}
+
+	/**
+	 * Adds an entry, if enough logs have been written after the last one.
+	 *
+	 * @param position position in the log file of the next log
+	 * @param time current time
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	void add(long position, long time) throws IOException{
+		if (position<next || channel==null)
+			return;
+		if (time<lastTime)
+			time = lastTime;
+		entry.clear();
+		entry.putLong(time).putLong(position).flip();
+		while (entry.hasRemaining())
+			channel.write(entry);
+		lastTime = time;
+		next = position+interval;
+	}
+
+	/**
+	 * Closes the index.
+	 */
+	void close(){
+		if (raf!=null)
+			try{
+				raf.close();
+			} catch(IOException e){ }
+		raf = null;
+		channel = null;
+	}
+
+	/**
+	 * Moves the index (closed) to the one of a rolled log file.
+	 *
+	 * @param rolled the rolled log file
+	 * @param keep {@code true} if the index has to be kept, {@code false} if it
+	 * has to be deleted (for instance, because the rolled file is compressed)
+	 */
+	void roll(File rolled, boolean keep){
+		File f = getFile(log);
+		if (!keep || !f.renameTo(getFile(rolled)))
+			f.delete();
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/**
+ * Reads the logs written in a time interval, using the index of the log file.
+ *
+ * The index is written by a {@link FileLogger} with the property "{@code
+ * log.fileLogger.index}" set to 'true' (see {@link LogIndex}). Both the index
+ * and the log file are mapped in memory: the position of the logs is found
+ * with a binary search on the index, and only the part of the log file with
+ * the logs required is read.
+ *
+ * <p>The time of the entries of the index is the time the logs have been
+ * written, and the index is sparse: the logs read are the ones written in the
+ * interval, plus some of the logs written just before and just after it (at
+ * most the ones between two entries, 64 KB by default). The logs written some
+ * time after they have been created (for instance, by an {@link
+ * AsyncFileLogger}) can be found after the end of the interval: in this case,
+ * the end of the interval should be extended by the delay. If the index does
+ * not exist, the whole file is read.</p>
+ *
+ * <p>It can be used from the command line:
+ * <pre>java it.andynaz.log.LogIndexReader file from to</pre>
+ * The times are in the format "{@code yyyy-MM-dd HH:mm:ss}", or in
+ * milliseconds; the logs are written on the standard output.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public final class LogIndexReader implements Closeable{
+
+	/**
+	 * Maximum size of the parts of the log file mapped (and decoded) at once.
+	 */
+	private static final int CHUNK = 8*1024*1024;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final Charset charset;
+
+	/**
+	 * The index mapped in memory ({@code null} if the index does not exist).
+	 */
+	private final MappedByteBuffer index;
+
+	/**
+	 * Number of entries of the index.
+	 */
+	private final int entries;
+
+
+	/**
+	 * Opens a log file and its index.
+	 *
+	 * @param log the log file
+	 * @param charset charset of the log file (the default one of the platform,
+	 * for the text logs; UTF-8, for the JSON logs)
+	 *
+	 * @throws IOException if the file can not be read
+	 */
+	public LogIndexReader(File log, Charset charset) throws IOException{
+		this.charset = charset;
+		File f = LogIndex.getFile(log);
+		if (f.length()>=LogIndex.ENTRY) {
+			RandomAccessFile in = new RandomAccessFile(f, "r");
+			try{
+				long size = Math.min(in.length()/LogIndex.ENTRY, Integer.MAX_VALUE/LogIndex.ENTRY)*LogIndex.ENTRY;
+				index = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+				entries = (int)(size/LogIndex.ENTRY);
+			} finally{
+				// the mapping is still valid
+				in.close();
+			}
+		} else {
+			index = null;
+			entries = 0;
+		}
+		raf = new RandomAccessFile(log, "r");
+		channel = raf.getChannel();
+	}
+
+	/**
+	 * Opens a log file and its index, with the default charset of the
+	 * platform.
+	 *
+	 * @param log the log file
+	 *
+	 * @throws IOException if the file can not be read
+	 *
+	 * @see #LogIndexReader(File, Charset)
+	 */
+	public LogIndexReader(File log) throws IOException{
+		this(log, Charset.defaultCharset());
+	}
+
+
+	/**
+	 * Returns the position in the log file of the logs written in a time
+	 * interval.
+	 *
+	 * @param from beginning of the interval (in milliseconds)
+	 * @param to end of the interval (in milliseconds)
+	 * @return the position of the first byte and the position after the last
+	 * byte
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	public long[] getRange(long from, long to) throws IOException{
+		long length = channel.size();
+
+		// the last entry before the interval
+		int lo = 0, hi = entries;
+		while (lo<hi) {
+			int mid = (lo+hi)>>>1;
+			if (getTime(mid)<from)
+				lo = mid+1;
+			else
+				hi = mid;
+		}
+		long start = lo>0 ? getPosition(lo-1) : 0;
+
+		// the first entry after the interval
+		hi = entries;
+		while (lo<hi) {
+			int mid = (lo+hi)>>>1;
+			if (getTime(mid)<=to)
+				lo = mid+1;
+			else
+				hi = mid;
+		}
+		long end = lo<entries ? getPosition(lo) : length;
+
+		end = Math.min(end, length);
+		return new long[]{Math.min(start, end), end};
+	}
+
+	/**
+	 * Maps in memory the logs written in a time interval.
+	 *
+	 * @param from beginning of the interval (in milliseconds)
+	 * @param to end of the interval (in milliseconds)
+	 * @return the logs (read only)
+	 *
+	 * @throws IOException if I/O errors occour, or if the logs are more than
+	 * 2 GB
+	 *
+	 * @see #getRange(long, long)
+	 */
+	public ByteBuffer map(long from, long to) throws IOException{
+		long[] range = getRange(from, to);
+		if (range[1]-range[0]>Integer.MAX_VALUE)
+			throw new IOException("too many logs: "+(range[1]-range[0])+" bytes");
+		return channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1]-range[0]);
+	}
+
+	/**
+	 * Reads the logs written in a time interval.
+	 *
+	 * @param from beginning of the interval (in milliseconds)
+	 * @param to end of the interval (in milliseconds)
+	 * @param out where the logs are written
+	 * @return the number of lines written
+	 *
+	 * @throws IOException if I/O errors occour
+	 *
+	 * @see #getRange(long, long)
+	 */
+	public long read(long from, long to, Appendable out) throws IOException{
+		long[] range = getRange(from, to);
+		long pos = range[0];
+		long lines = 0;
+		while (pos<range[1]) {
+			int len = (int)Math.min(CHUNK, range[1]-pos);
+			boolean last = pos+len>=range[1];
+			MappedByteBuffer bb = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+
+			// the chunk ends with a line; at the end of the file, the zeros left
+			// by a mapped file not closed are skipped
+			int end = len;
+			if (!last) {
+				while (end>0 && bb.get(end-1)!='\n')
+					end--;
+				if (end==0)
+					end = len;
+			} else {
+				while (end>0 && bb.get(end-1)==0)
+					end--;
+			}
+			for (int i=0; i<end; i++)
+				if (bb.get(i)=='\n')
+					lines++;
+			bb.limit(end);
+			out.append(charset.decode(bb));
+			if (last)
+				break;
+			pos += end;
+		}
+		return lines;
+	}
+
+	/**
+	 * Closes the log file.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	@Override
+	public void close() throws IOException{
+		raf.close();
+	}
+
+
+	private long getTime(int entry){
+		return index.getLong(entry*LogIndex.ENTRY);
+	}
+
+	private long getPosition(int entry){
+		return index.getLong(entry*LogIndex.ENTRY+8);
+	}
+
+	/**
+	 * Parses a time, in the format "{@code yyyy-MM-dd HH:mm:ss}" or in
+	 * milliseconds.
+	 */
+	private static long parseTime(String s) throws ParseException{
+		try{
+			return Long.parseLong(s.trim());
+		} catch(NumberFormatException e){
+			return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(s.trim()).getTime();
+		}
+	}
+
+
+	/**
+	 * Writes the logs of a file written in a time interval on the standard
+	 * output.
+	 *
+	 * @param args {@code file from to}
+	 */
+	public static void main(String[] args){
+		if (args.length!=3) {
+			System.err.println("usage: java "+LogIndexReader.class.getName()+" file from to");
+			System.exit(2);
+		}
+		long from, to;
+		try{
+			from = parseTime(args[1]);
+			to = parseTime(args[2]);
+		} catch(ParseException e){
+			System.err.println("invalid time: "+e.getMessage());
+			System.exit(2);
+			return;
+		}
+
+		int exit = 0;
+		try{
+			LogIndexReader reader = new LogIndexReader(new File(args[0]));
+			try{
+				Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 64*1024);
+				reader.read(from, to, out);
+				out.flush();
+			} finally{
+				reader.close();
+			}
+		} catch(IOException e){
+			System.err.println(args[0]+": "+e.getMessage());
+			exit = 1;
+		}
+		System.exit(exit);
+	}
+
+}
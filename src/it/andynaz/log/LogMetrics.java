@@ -0,0 +1,286 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of a logger.
+ *
+ * Each logger counts the logs it writes (by level), the bytes written and the
+ * duration of the writes (as a histogram); the loggers with a queue count also
+ * the logs in the queue and the ones discarded because the queue was full. The
+ * same values are counted for all the loggers together by the global metrics
+ * (see {@link #getGlobal()}). The logs discarded because of their level are
+ * counted only if the property "{@code log.metrics.filtered}" is 'true' (see
+ * {@link Logger#Logger(String, java.util.Properties)}): the count is done by
+ * the log methods, so checking the level of a log never touches the metrics.
+ *
+ * <p>The counters are split by thread (see {@link StripedCounters}), so
+ * threads logging at the same time do not contend for them.</p>
+ *
+ * <p>The metrics are published as MXBeans by the {@link LoggerMgr}: the global
+ * ones with the name "{@code it.andynaz.log:type=LogMetrics}", the ones of
+ * each logger created by the LoggerMgr with the name "{@code
+ * it.andynaz.log:type=LoggerMetrics,name=}<i>logger name</i>".</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public final class LogMetrics implements LogMetricsMXBean{
+
+	/**
+	 * Number of intervals of the latency histogram: the first one is up to 1
+	 * microsecond, each one is twice the previous one.
+	 */
+	private static final int BUCKETS = 24;
+	private static final int FIRST_BUCKET_BITS = 10;
+
+	private static final int LEVELS = Level.values().length;
+	private static final int FILTERED = LEVELS;
+	private static final int BYTES = LEVELS+1;
+	private static final int LATENCY = LEVELS+2;
+	private static final int QUEUED = LEVELS+3;
+	private static final int OVERFLOWS = LEVELS+4;
+	private static final int HISTOGRAM = LEVELS+5;
+
+	private static final LogMetrics global = new LogMetrics(null, null);
+	private static volatile boolean globalRegistered = false;
+
+	private final String name;
+	private final LogMetrics parent;
+	private final StripedCounters counters = new StripedCounters(HISTOGRAM+BUCKETS);
+
+
+	/**
+	 * Creates the metrics of a logger.
+	 *
+	 * @param name name of the logger
+	 */
+	LogMetrics(String name){
+		this(name, global);
+	}
+
+	private LogMetrics(String name, LogMetrics parent){
+		this.name = name;
+		this.parent = parent;
+	}
+
+	/**
+	 * Returns the metrics of all the loggers together.
+	 *
+	 * @return the global metrics
+	 */
+	public static LogMetrics getGlobal(){
+		return global;
+	}
+
+
+	/**
+	 * Counts a log written (or put in a queue).
+	 *
+	 * @param level log level
+	 */
+	void event(Level level){
+		counters.add(level.ordinal(), 1);
+		if (parent!=null)
+			parent.event(level);
+	}
+
+	/**
+	 * Counts a log discarded because of its level.
+	 */
+	void filtered(){
+		counters.add(FILTERED, 1);
+		if (parent!=null)
+			parent.filtered();
+	}
+
+	/**
+	 * Counts a write.
+	 *
+	 * @param bytes the number of bytes written
+	 * @param nanos the duration of the write
+	 */
+	void write(long bytes, long nanos){
+		counters.add(BYTES, bytes);
+		counters.add(LATENCY, nanos);
+		int bucket = 64 - Long.numberOfLeadingZeros(nanos) - FIRST_BUCKET_BITS;
+		counters.add(HISTOGRAM + Math.max(0, Math.min(BUCKETS-1, bucket)), 1);
+		if (parent!=null)
+			parent.write(bytes, nanos);
+	}
+
+	/**
+	 * Counts the logs put in a queue (or taken from it, if negative).
+	 *
+	 * @param n number of logs
+	 */
+	void queued(int n){
+		counters.add(QUEUED, n);
+		if (parent!=null)
+			parent.queued(n);
+	}
+
+	/**
+	 * Counts a log discarded because a queue was full.
+	 */
+	void overflow(){
+		counters.add(OVERFLOWS, 1);
+		if (parent!=null)
+			parent.overflow();
+	}
+
+
+	@Override
+	public String getLoggerName(){
+		return name;
+	}
+
+	@Override
+	public long getEvents(){
+		long n = 0;
+		for (int i=0; i<LEVELS; i++)
+			n += counters.sum(i);
+		return n;
+	}
+
+	@Override
+	public Map<String, Long> getEventsByLevel(){
+		Map<String, Long> events = new LinkedHashMap<String, Long>();
+		for (Level l : Level.values())
+			events.put(l.name(), counters.sum(l.ordinal()));
+		return events;
+	}
+
+	/**
+	 * Returns the number of logs written (or put in a queue) with a level.
+	 *
+	 * @param level the level
+	 * @return the number of logs
+	 */
+	public long getEvents(Level level){
+		return counters.sum(level.ordinal());
+	}
+
+	@Override
+	public long getFilteredEvents(){
+		return counters.sum(FILTERED);
+	}
+
+	@Override
+	public long getBytesWritten(){
+		return counters.sum(BYTES);
+	}
+
+	@Override
+	public long getWrites(){
+		long n = 0;
+		for (int i=0; i<BUCKETS; i++)
+			n += counters.sum(HISTOGRAM+i);
+		return n;
+	}
+
+	@Override
+	public long getWriteLatencyMeanNanos(){
+		long writes = getWrites();
+		return writes==0 ? 0 : counters.sum(LATENCY)/writes;
+	}
+
+	@Override
+	public long[] getWriteLatencyHistogram(){
+		long[] h = new long[BUCKETS];
+		for (int i=0; i<BUCKETS; i++)
+			h[i] = counters.sum(HISTOGRAM+i);
+		return h;
+	}
+
+	@Override
+	public long[] getWriteLatencyBoundsNanos(){
+		long[] b = new long[BUCKETS];
+		for (int i=0; i<BUCKETS-1; i++)
+			b[i] = 1L << (FIRST_BUCKET_BITS+i);
+		b[BUCKETS-1] = Long.MAX_VALUE;
+		return b;
+	}
+
+	@Override
+	public long getQueueDepth(){
+		return Math.max(0, counters.sum(QUEUED));
+	}
+
+	@Override
+	public long getQueueOverflows(){
+		return counters.sum(OVERFLOWS);
+	}
+
+	/**
+	 * Sets all the counters to 0.
+	 *
+	 * The logs in a queue are still counted.
+	 */
+	@Override
+	public void reset(){
+		long queued = counters.sum(QUEUED);
+		counters.reset();
+		counters.add(QUEUED, queued);
+	}
+
+
+	/**
+	 * Publishes the metrics of a logger, and the global ones, as MXBeans in the
+	 * platform MBean server.
+	 *
+	 * If the metrics of another logger with the same name are published, they
+	 * are replaced. Errors are ignored.
+	 *
+	 * @param metrics the metrics of the logger
+	 */
+	static void register(LogMetrics metrics){
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!globalRegistered)
+				synchronized(global){
+					ObjectName on = new ObjectName("it.andynaz.log:type=LogMetrics");
+					if (!server.isRegistered(on))
+						server.registerMBean(global, on);
+					globalRegistered = true;
+				}
+			if (metrics!=null && metrics!=global) {
+				String n = metrics.name==null ? "" : metrics.name;
+				ObjectName on = new ObjectName("it.andynaz.log:type=LoggerMetrics,name="+ObjectName.quote(n));
+				synchronized(global){
+					if (server.isRegistered(on))
+						server.unregisterMBean(on);
+					server.registerMBean(metrics, on);
+				}
+			}
+		} catch(Exception e){ }
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link LogMetrics}.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public interface LogMetricsMXBean{
+
+	/**
+	 * Returns the name of the logger.
+	 *
+	 * @return the name of the logger, or {@code null} for the metrics of all
+	 * the loggers
+	 */
+	String getLoggerName();
+
+	/**
+	 * Returns the number of logs written (or put in a queue).
+	 *
+	 * @return the number of logs
+	 */
+	long getEvents();
+
+	/**
+	 * Returns the number of logs written (or put in a queue) for each level.
+	 *
+	 * @return the number of logs, by level name
+	 */
+	Map<String, Long> getEventsByLevel();
+
+	/**
+	 * Returns the number of logs discarded because of their level.
+	 *
+	 * They are counted only if the property "{@code log.metrics.filtered}" is
+	 * 'true'.
+	 *
+	 * @return the number of logs
+	 */
+	long getFilteredEvents();
+
+	/**
+	 * Returns the number of bytes written.
+	 *
+	 * @return the number of bytes
+	 */
+	long getBytesWritten();
+
+	/**
+	 * Returns the number of writes.
+	 *
+	 * A write can contain more logs (for instance, for the loggers with a
+	 * queue).
+	 *
+	 * @return the number of writes
+	 */
+	long getWrites();
+
+	/**
+	 * Returns the average duration of a write.
+	 *
+	 * @return the duration in nanoseconds (0 if there are no writes)
+	 */
+	long getWriteLatencyMeanNanos();
+
+	/**
+	 * Returns the number of writes for each interval of duration.
+	 *
+	 * The i-th value is the number of writes that lasted less than the i-th
+	 * value of {@link #getWriteLatencyBoundsNanos()} (and at least the
+	 * previous one).
+	 *
+	 * @return the number of writes
+	 */
+	long[] getWriteLatencyHistogram();
+
+	/**
+	 * Returns the upper bounds of the intervals of the histogram.
+	 *
+	 * @return the bounds in nanoseconds
+	 *
+	 * @see #getWriteLatencyHistogram()
+	 */
+	long[] getWriteLatencyBoundsNanos();
+
+	/**
+	 * Returns the number of logs waiting in a queue.
+	 *
+	 * @return the number of logs (0 if the logger has no queue)
+	 */
+	long getQueueDepth();
+
+	/**
+	 * Returns the number of logs discarded because a queue was full.
+	 *
+	 * @return the number of logs (0 if the logger has no queue)
+	 */
+	long getQueueOverflows();
+
+	/**
+	 * Sets all the counters to 0.
+	 */
+	void reset();
+
+}
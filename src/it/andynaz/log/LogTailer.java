@@ -0,0 +1,405 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import it.andynaz.utils.Utils;
+
+/**
+ * Follows a log file, reading the logs while they are written (like {@code
+ * tail -f}).
+ *
+ * Only the bytes appended since the last read are read, through a channel and
+ * a buffer reused for all the reads; the complete lines are passed to a
+ * {@link LineListener}. The lines can be read when needed, with {@link
+ * #read(LineListener)}, or by a background thread that checks the file at a
+ * regular interval, with {@link #follow(LineListener, long)}.
+ *
+ * <p>The file can be rolled (renamed and created again, like a {@link
+ * FileLogger} does): the logs left in the old file are read, then the new file
+ * is read from its beginning. If the file is truncated, it is read again from
+ * its beginning. While the file does not exist, it is checked until it is
+ * created.</p>
+ *
+ * <p>It can be used from the command line:
+ * <pre>java it.andynaz.log.LogTailer [-n lines] file</pre>
+ * The last lines of the file (10 by default) and the new ones are written on
+ * the standard output, until the program is stopped.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public final class LogTailer implements Closeable{
+
+	/**
+	 * Receives the lines read.
+	 */
+	public interface LineListener{
+
+		/**
+		 * Receives a line.
+		 *
+		 * @param line the line, without the line terminator
+		 */
+		void line(String line);
+	}
+
+	private final File file;
+	private final Charset charset;
+
+	private FileInputStream in;
+	private FileChannel channel;
+
+	/**
+	 * Position in the file of the next byte to read.
+	 */
+	private long position;
+
+	/**
+	 * The bytes read and not passed to the listener yet (an incomplete line).
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(64*1024);
+
+	private Thread follower;
+	private volatile boolean closed;
+
+
+	/**
+	 * Starts following a file.
+	 *
+	 * @param file the file
+	 * @param lines number of lines already in the file to be read (0 to read
+	 * only the new ones, a negative number to read all the file)
+	 * @param charset charset of the file (the default one of the platform, for
+	 * the text logs; UTF-8, for the JSON logs)
+	 *
+	 * @throws IOException if the file exists, but it can not be read
+	 */
+	public LogTailer(File file, int lines, Charset charset) throws IOException{
+		this.file = file;
+		this.charset = charset;
+		if (file.exists()) {
+			open();
+			if (lines>=0)
+				position = findLines(lines);
+		}
+	}
+
+	/**
+	 * Starts following a file, with the default charset of the platform.
+	 *
+	 * Only the lines written from now on are read.
+	 *
+	 * @param file the file
+	 *
+	 * @throws IOException if the file exists, but it can not be read
+	 *
+	 * @see #LogTailer(File, int, Charset)
+	 */
+	public LogTailer(File file) throws IOException{
+		this(file, 0, Charset.defaultCharset());
+	}
+
+
+	/**
+	 * Reads the lines appended to the file since the last read.
+	 *
+	 * A line not complete yet is read the next time.
+	 *
+	 * @param listener receives the lines read
+	 * @return the number of lines read
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	public synchronized int read(LineListener listener) throws IOException{
+		if (closed)
+			return 0;
+		if (channel==null) {
+			if (!file.exists())
+				return 0;
+			open();
+		}
+
+		// the length of the file is taken before the size of the channel: if
+		// the channel is still open on the same file, the size is not lower
+		long length = file.exists() ? file.length() : -1;
+		long size = channel.size();
+		boolean rolled = length>=0 && (length>size || (length<position && size>=position));
+		if (size<position) {
+			// truncated
+			position = 0;
+			buffer.clear();
+		}
+
+		int lines = readTo(size, listener);
+		if (rolled) {
+			// the last line of the old file is complete, even without terminator
+			if (buffer.position()>0) {
+				listener.line(decode(buffer.array(), 0, buffer.position()));
+				lines++;
+			}
+			closeChannel();
+			open();
+			lines += readTo(channel.size(), listener);
+		}
+		return lines;
+	}
+
+	/**
+	 * Starts a background thread that passes the new lines to a listener.
+	 *
+	 * The thread stops when the tailer is closed.
+	 *
+	 * @param listener receives the lines read (in the background thread)
+	 * @param interval milliseconds between two checks of the file, when there
+	 * are no new lines
+	 *
+	 * @throws IllegalStateException if a thread has already been started
+	 */
+	public synchronized void follow(final LineListener listener, final long interval){
+		if (follower!=null) throw new IllegalStateException("already followed");
+		follower = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				while (!closed)
+					try{
+						if (read(listener)==0)
+							Thread.sleep(interval);
+					} catch(InterruptedException e){
+						return;
+					} catch(IOException e){
+						Utils.printException("error while reading the log "+file, e);
+						try{
+							Thread.sleep(interval);
+						} catch(InterruptedException ie){
+							return;
+						}
+					}
+			}
+		}, "LogTailer-"+file.getName());
+		follower.setDaemon(true);
+		follower.start();
+	}
+
+	/**
+	 * Returns the position in the file of the next byte to read.
+	 *
+	 * @return the position (after the lines already read)
+	 */
+	public synchronized long getPosition(){
+		return position-buffer.position();
+	}
+
+	/**
+	 * Stops following the file and closes it.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	@Override
+	public void close() throws IOException{
+		closed = true;
+		Thread t;
+		synchronized(this){
+			t = follower;
+		}
+		if (t!=null && t!=Thread.currentThread())
+			t.interrupt();
+		synchronized(this){
+			closeChannel();
+		}
+	}
+
+
+	/**
+	 * Opens the file, from its beginning.
+	 */
+	private void open() throws IOException{
+		in = new FileInputStream(file);
+		channel = in.getChannel();
+		position = 0;
+		buffer.clear();
+	}
+
+	private void closeChannel() throws IOException{
+		if (in!=null)
+			try{
+				in.close();
+			} finally{
+				in = null;
+				channel = null;
+			}
+	}
+
+	/**
+	 * Reads the file up to a position, passing the complete lines to the
+	 * listener.
+	 *
+	 * The zeros at the end of a file written by a {@link MappedFileLogger} are
+	 * not read.
+	 *
+	 * @param end where to stop reading
+	 * @param listener receives the lines
+	 * @return the number of lines read
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private int readTo(long end, LineListener listener) throws IOException{
+		int lines = 0;
+		while (position<end) {
+			if (!buffer.hasRemaining()) {
+				// a line longer than the buffer
+				ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity()*2);
+				buffer.flip();
+				bigger.put(buffer);
+				buffer = bigger;
+			}
+			int from = buffer.position();
+			if (end-position<buffer.remaining())
+				buffer.limit(from+(int)(end-position));
+			int n = channel.read(buffer, position);
+			buffer.limit(buffer.capacity());
+			if (n<=0)
+				break;
+
+			byte[] b = buffer.array();
+			int to = from+n;
+			for (int i=from; i<to; i++)
+				if (b[i]==0) {
+					to = i;
+					end = position+i-from;
+					break;
+				}
+			position += to-from;
+			buffer.position(to);
+
+			// the complete lines
+			int start = 0;
+			for (int i=from; i<to; i++)
+				if (b[i]=='\n') {
+					int len = i-start;
+					if (len>0 && b[i-1]=='\r')
+						len--;
+					listener.line(decode(b, start, len));
+					lines++;
+					start = i+1;
+				}
+			if (start>0) {
+				System.arraycopy(b, start, b, 0, to-start);
+				buffer.position(to-start);
+			}
+		}
+		return lines;
+	}
+
+	private String decode(byte[] b, int off, int len){
+		return new String(b, off, len, charset);
+	}
+
+	/**
+	 * Finds the beginning of the last lines of the file.
+	 *
+	 * @param lines number of lines
+	 * @return the position of the first of the lines
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private long findLines(int lines) throws IOException{
+		ByteBuffer bb = ByteBuffer.allocate(8192);
+		long pos = channel.size();
+		boolean data = false;
+		int found = 0;
+		while (pos>0) {
+			int len = (int)Math.min(bb.capacity(), pos);
+			bb.clear().limit(len);
+			pos -= len;
+			while (bb.hasRemaining() && channel.read(bb, pos+bb.position())>=0);
+			for (int i=len-1; i>=0; i--) {
+				byte c = bb.get(i);
+				if (!data) {
+					// the zeros at the end of the file, and the terminator of the
+					// last line
+					if (c==0)
+						continue;
+					data = true;
+					if (lines==0)
+						return pos+i+1;
+					if (c=='\n')
+						continue;
+				}
+				if (c=='\n' && ++found==lines)
+					return pos+i+1;
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Writes the last lines of a file, and the new ones, on the standard
+	 * output.
+	 *
+	 * @param args {@code [-n lines] file}
+	 */
+	public static void main(String[] args){
+		int lines = 10;
+		int first = 0;
+		if (args.length==3 && "-n".equals(args[0])) {
+			Integer n = Utils.parseInt(args[1]);
+			if (n!=null)
+				lines = n;
+			first = 2;
+		}
+		if (args.length!=first+1) {
+			System.err.println("usage: java "+LogTailer.class.getName()+" [-n lines] file");
+			System.exit(2);
+		}
+
+		final PrintStream out = System.out;
+		try{
+			LogTailer tailer = new LogTailer(new File(args[first]), lines, Charset.defaultCharset());
+			LineListener listener = new LineListener(){
+				@Override
+				public void line(String line){
+					out.println(line);
+				}
+			};
+			for (;;) {
+				if (tailer.read(listener)==0) {
+					out.flush();
+					Thread.sleep(200);
+				}
+			}
+		} catch(IOException e){
+			System.err.println(args[first]+": "+e.getMessage());
+			System.exit(1);
+		} catch(InterruptedException e){ }
+	}
+
+}
@@ -23,8 +23,8 @@
 package it.andynaz.log;
 
 import static java.lang.System.out;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Properties;
 import it.andynaz.utils.Utils;
 import it.andynaz.config.ConfigMgr;
@@ -48,17 +48,51 @@ import it.andynaz.config.ConfigMgr;
  * 
  * <p>Logs are written using the various {@code log()} methods: every method,
  * before writing the log, check if the log level if enough to write the
- * log.</p>
+ * log. To avoid building a log that would not be written, the {@link
+ * #isEnabled(Level)} method can be used, or the methods that build the log
+ * from a pattern ({@link #log(Level, String, Object...)}) or from a {@link
+ * MessageSupplier} ({@link #log(Level, MessageSupplier)}).</p>
  *
  * <p>Sub-classes can change the way a log is written (for instance, in a file
  * or on a database), only changing the {@link #log(String, Level)} method. For
  * other reasons, like efficiency, other methods can be overridden.</p>
  * 
  * @author andynaz
- * @version 2014/04/29
+ * @version 2026/10/17
  */
 public class Logger{
 	
+	/**
+	 * How the logs are written.
+	 */
+	public enum Layout{
+		/**
+		 * A line of text for each log, made of the prefix (see {@link
+		 * Logger#getPrefix(Level)}) and the text of the log.
+		 */
+		TEXT,
+
+		/**
+		 * A JSON object for each line, with the time, the level, the logger
+		 * name, the thread, the text of the log, the exception and the
+		 * key/value pairs as separate fields (see {@link
+		 * Logger#logFields(Level, String, Object...)}).
+		 */
+		JSON;
+
+		/**
+		 * Returns the layout with the given name (case insensitive).
+		 *
+		 * @param name the name of the layout
+		 * @return the layout
+		 *
+		 * @throws IllegalArgumentException if there is no layout with that name
+		 */
+		public static Layout parse(String name){
+			return valueOf(name.trim().toUpperCase());
+		}
+	}
+	
 	/**
 	 * Name of the logger.
 	 * 
@@ -81,9 +115,17 @@ public class Logger{
 	 *
 	 * The format is the one used by {@link SimpleDateFormat}. Dafaule value is
 	 * "yy-MM-dd HH:mm:ss".
+	 *
+	 * <p>The logs are written with a {@link CachedDateFormat} copy of this
+	 * format, made again when a new format is assigned.</p>
 	 */
 	protected SimpleDateFormat dateFormat = new SimpleDateFormat("yy-MM-dd HH:mm:ss");
 
+	/**
+	 * The copy of {@link #dateFormat} used to write the logs.
+	 */
+	private volatile CachedDateFormat cachedDateFormat;
+
 	/**
 	 * Indicates the level of the logging.
 	 *
@@ -91,8 +133,12 @@ public class Logger{
 	 *
 	 * <p>Only the logs with a level compatible (according to the {@link
 	 * Level#hasToLog(Level)} method) with this value will be logged.</p>
+	 * 
+	 * <p>It is the effective level of the logger, computed when the logger is
+	 * created (see {@link #Logger(String, Properties)}) and updated by {@link
+	 * #setLevel(Level)}.</p>
 	 */
-	protected Level level = Level.INFO;
+	protected volatile Level level = Level.INFO;
 
 	/**
 	 * Indicates if the level code has to be used in the prefix of the log.
@@ -101,6 +147,14 @@ public class Logger{
 	 */
 	protected boolean useLevel = false;
 
+	/**
+	 * Indicates if the context of the thread (see {@link LogContext}) has to
+	 * be written with the logs.
+	 *
+	 * Dafaule value is 'true'.
+	 */
+	protected boolean useContext = true;
+
 	/**
 	 * Indicates the separator to use in the prefix of the logs.
 	 *
@@ -108,6 +162,41 @@ public class Logger{
 	 */
 	protected String separator = "::";
 	
+	/**
+	 * Indicates how the logs are written.
+	 *
+	 * Dafaule value is {@link Layout#TEXT}.
+	 */
+	protected Layout layout = Layout.TEXT;
+	
+	/**
+	 * Metrics of the logger ({@code null} if they are disabled).
+	 */
+	protected final LogMetrics metrics;
+	
+	/**
+	 * Indicates if the logs discarded because of their level are counted by
+	 * the metrics.
+	 * 
+	 * Dafaule value is 'false'.
+	 */
+	private final boolean countFiltered;
+	
+	/**
+	 * Line terminator used in the logs.
+	 */
+	protected static final String NEW_LINE = System.getProperty("line.separator");
+	
+	/**
+	 * Buffers used to build the logs, one for each thread.
+	 */
+	private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>();
+	
+	/**
+	 * Maximum capacity of a buffer kept for reuse.
+	 */
+	private static final int MAX_BUFFER = 16*1024;
+	
 	
 	/**
 	 * Creates a Logger with a name and a specified configuration.
@@ -126,8 +215,13 @@ public class Logger{
 	 *   <dt>log.useDate</dt>    <dd>a boolean to indicates if the date has to be used in the log prefix</dd>
 	 *   <dt>log.dateFormat</dt> <dd>format for the date (suitable for a {@link SimpleDateFormat} object)</dd>
 	 *   <dt>log.level</dt>      <dd>log level: has to be one of the {@link Level} enum constants</dd>
+	 *   <dt>log.level.<i>name</i></dt> <dd>log level of the loggers with that name: if the name of the logger is made of more parts separated by '.', the level of the longest matching part is used (for instance, "{@code log.level.com.acme}" is used by a logger named "com.acme.db" if there is no "{@code log.level.com.acme.db}"); if there is none, "{@code log.level}" is used</dd>
 	 *   <dt>log.useLevel</dt>   <dd>a boolean to indicates if the level code has to be used in the log prefix</dd>
+	 *   <dt>log.useContext</dt> <dd>a boolean to indicates if the context of the thread (see {@link LogContext}) has to be written with the logs (default 'true')</dd>
 	 *   <dt>log.separator</dt>  <dd>a string indicating the separator of the variuos section of the log prefix</dd>
+	 *   <dt>log.layout</dt>     <dd>how the logs are written: {@code text} (default) or {@code json} (see {@link Layout})</dd>
+	 *   <dt>log.metrics</dt>    <dd>a boolean to indicates if the metrics of the logger are collected (default 'true', see {@link LogMetrics})</dd>
+	 *   <dt>log.metrics.filtered</dt> <dd>a boolean to indicates if the metrics count also the logs discarded because of their level (default 'false'); they are counted by the log methods, never by {@link #isEnabled(Level)}</dd>
 	 * </dl></p>
 	 * 
 	 * @param name name of the logger
@@ -137,6 +231,12 @@ public class Logger{
 		if (!Utils.isEmpty(name))
 			this.name = name;
 		
+		// --- metriche
+		this.metrics = props==null || !"false".equalsIgnoreCase(props.getProperty("log.metrics"))
+				? new LogMetrics(this.name) : null;
+		this.countFiltered = metrics!=null && props!=null
+				&& Boolean.parseBoolean(props.getProperty("log.metrics.filtered"));
+		
 		if (props==null) return;
 		
 		// --- formato data
@@ -146,10 +246,7 @@ public class Logger{
 			} catch(Exception e){ /*out.println("err: data"); throw e;*/ }
 
 		// --- livello
-		if (props.getProperty("log.level")!=null)
-			try{
-				this.level = Level.valueOf(props.getProperty("log.level"));
-			} catch(Exception e){ /*out.println("err: livello"); throw e;*/ }
+		this.level = getConfiguredLevel(props, this.name, this.level);
 
 		// --- log con data
 		if (props.getProperty("log.useDate")!=null)
@@ -159,9 +256,19 @@ public class Logger{
 		if (props.getProperty("log.useLevel")!=null)
 			this.useLevel = Boolean.parseBoolean(props.getProperty("log.useLevel"));
 
+		// --- log con contesto
+		if (props.getProperty("log.useContext")!=null)
+			this.useContext = Boolean.parseBoolean(props.getProperty("log.useContext"));
+
 		// --- formato data
 		if (props.getProperty("log.separator")!=null)
 			this.separator = props.getProperty("log.separator");
+
+		// --- layout
+		if (props.getProperty("log.layout")!=null)
+			try{
+				this.layout = Layout.parse(props.getProperty("log.layout"));
+			} catch(Exception e){ }
 	}
 	
 	/**
@@ -200,19 +307,85 @@ public class Logger{
 	}
 	
 	
+	/**
+	 * Returns the level of the logger.
+	 * 
+	 * @return the level of the logger
+	 */
+	public Level getLevel(){
+		return this.level;
+	}
+	
+	/**
+	 * Changes the level of the logger.
+	 * 
+	 * @param level the new level
+	 * 
+	 * @throws NullPointerException if {@code level} is {@code null}
+	 */
+	public void setLevel(Level level){
+		if (level==null) throw new NullPointerException("null level");
+		this.level = level;
+	}
+	
+	/**
+	 * Checks if a log with the given level would be written.
+	 * 
+	 * Can be used to avoid building a log that would not be written. The
+	 * check only reads the level of the logger: the logs not written are
+	 * counted by the log methods (see {@link LogMetrics}).
+	 * 
+	 * @param level log level
+	 * @return {@code true} if a log with this level is written, {@code false}
+	 * otherwise
+	 */
+	public boolean isEnabled(Level level){
+		return this.level.hasToLog(level);
+	}
+	
+	/**
+	 * Checks the level of a log in a log method.
+	 * 
+	 * Like {@link #isEnabled(Level)}, but the log that would not be written
+	 * is counted by the metrics, if "{@code log.metrics.filtered}" is 'true'.
+	 * 
+	 * @param level log level
+	 * @return {@code true} if a log with this level is written, {@code false}
+	 * otherwise
+	 */
+	final boolean accepts(Level level){
+		if (isEnabled(level))
+			return true;
+		if (countFiltered)
+			metrics.filtered();
+		return false;
+	}
+	
+	/**
+	 * Returns the metrics of the logger.
+	 * 
+	 * @return the metrics, or {@code null} if they are disabled
+	 */
+	public LogMetrics getMetrics(){
+		return this.metrics;
+	}
+	
 	/**
 	 * Writes a log with a specified level.
 	 * 
 	 * Depending on the log configuration, this method include the level code and
 	 * a separator before the log.
 	 * 
+	 * <p>The log is written by {@link #logEvent(Level, CharSequence, Throwable,
+	 * Object[]) logEvent}, with the layout of the logger. It is built and
+	 * encoded in buffers reused by the thread, so no object is created.</p>
+	 * 
 	 * @param log log to be written
 	 * @param level log level
 	 */
 	public void log(String log, Level level){
-		if (this.level.hasToLog(level)) {
-			out.println(getPrefix(level) + log);
-		}
+		if (accepts(level))
+			logEvent(level, log, null, null);
 	}
 
 	/**
@@ -226,6 +399,73 @@ public class Logger{
 		log(log, Level.INFO);
 	}
 	
+	/**
+	 * Writes a log built from a pattern and an argument.
+	 * 
+	 * The log is built only if it has to be written.
+	 * 
+	 * @param level log level
+	 * @param pattern pattern of the log
+	 * @param arg the argument
+	 * 
+	 * @see #log(Level, String, Object...)
+	 */
+	public void log(Level level, String pattern, Object arg){
+		if (accepts(level))
+			logFormatted(level, pattern, new Object[]{arg});
+	}
+	
+	/**
+	 * Writes a log built from a pattern and two arguments.
+	 * 
+	 * The log is built only if it has to be written.
+	 * 
+	 * @param level log level
+	 * @param pattern pattern of the log
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * 
+	 * @see #log(Level, String, Object...)
+	 */
+	public void log(Level level, String pattern, Object arg1, Object arg2){
+		if (accepts(level))
+			logFormatted(level, pattern, new Object[]{arg1, arg2});
+	}
+	
+	/**
+	 * Writes a log built from a pattern and some arguments.
+	 * 
+	 * Each "{@code {}}" in the pattern is replaced by the next argument (to
+	 * write "{@code {}}", use "<code>\\{}</code>"). If the last argument is
+	 * an exception, and it is not used by the pattern, its log is written after
+	 * the log of the pattern.
+	 * 
+	 * <p>The log is built only if it has to be written, so the cost of a log
+	 * that is not written is only the level check (and the array of arguments:
+	 * for one or two arguments, use the methods without varargs).</p>
+	 * 
+	 * @param level log level
+	 * @param pattern pattern of the log
+	 * @param args the arguments
+	 */
+	public void log(Level level, String pattern, Object... args){
+		if (accepts(level))
+			logFormatted(level, pattern, args);
+	}
+	
+	/**
+	 * Writes a log whose text is provided by a {@link MessageSupplier}.
+	 * 
+	 * The supplier is invoked only if the log has to be written.
+	 * 
+	 * @param level log level
+	 * @param supplier provides the text of the log
+	 */
+	public void log(Level level, MessageSupplier supplier){
+		if (accepts(level))
+			log(supplier.get(), level);
+	}
+	
 	/**
 	 * Writes the log of an exception.
 	 *
@@ -241,51 +481,443 @@ public class Logger{
 	 * Writes the log of an exception with a specificied level.
 	 * 
 	 * <p>It is written the exception type (with the message of the exception, if
-	 * present) and the stack trace.</p>
+	 * present) and the stack trace, followed by the suppressed exceptions and
+	 * by the causes. The frames a cause has in common with the exception that
+	 * encloses it are summarized by a "{@code ... N more}" line.</p>
+	 * 
+	 * <p>The whole exception is written as a single log, with the prefix
+	 * repeated at the beginning of each line. Identical exceptions logged in a
+	 * short time (for instance, the same error repeated in a loop) are rendered
+	 * only once.</p>
 	 *
 	 * @param e exception to be logged
 	 * @param level log level
 	 */
 	public void log(Exception e, Level level){
-		log(e.toString(), level);
-		for (StackTraceElement ste : e.getStackTrace())
-			log("    "+ste.toString(), level);
-		Throwable t = e.getCause();
-		if (t!=null && t instanceof Exception) {
-			log("  caused by:", level);
-			log((Exception)t, level);
+		logThrowable(e, level);
+	}
+	
+	/**
+	 * Writes the log of an exception (or of an error).
+	 * 
+	 * @param t exception to be logged
+	 * @param level log level
+	 * 
+	 * @see #log(Exception, Level)
+	 */
+	private void logThrowable(Throwable t, Level level){
+		if (!accepts(level))
+			return;
+		if (isStructured()) {
+			logEvent(level, null, t, null);
+			return;
 		}
+		String prefix = getPrefix(level);
+		StringBuilder sb = getBuffer();
+		ExceptionRenderer.render(sb, t, prefix);
+		String log = sb.toString();
+		releaseBuffer(sb);
+		log(log, level);
 	}
 	
+	/**
+	 * Builds a log from a pattern and writes it.
+	 * 
+	 * @param level log level
+	 * @param pattern pattern of the log
+	 * @param args the arguments
+	 * 
+	 * @see #log(Level, String, Object...)
+	 */
+	private void logFormatted(Level level, String pattern, Object[] args){
+		StringBuilder sb = getBuffer();
+		int used = format(sb, pattern, args);
+		Throwable t = null;
+		if (args!=null && used<args.length && args[args.length-1] instanceof Throwable)
+			t = (Throwable)args[args.length-1];
+		if (isStructured()) {
+			logEvent(level, sb, t, null);
+			releaseBuffer(sb);
+			return;
+		}
+		String log = sb.toString();
+		releaseBuffer(sb);
+		log(log, level);
+		if (t!=null)
+			logThrowable(t, level);
+	}
+	
+	/**
+	 * Writes a log with some key/value pairs.
+	 * 
+	 * With the {@link Layout#JSON JSON} layout the pairs are written as
+	 * separate fields; with the {@link Layout#TEXT TEXT} layout they are
+	 * written after the text, as "{@code key=value}".
+	 * 
+	 * @param level log level
+	 * @param message text of the log
+	 * @param keyValues the keys and the values, one after the other (for
+	 * instance {@code "user", name, "elapsed", ms})
+	 */
+	public void logFields(Level level, String message, Object... keyValues){
+		if (!accepts(level))
+			return;
+		if (isStructured()) {
+			logEvent(level, message, null, keyValues);
+			return;
+		}
+		StringBuilder sb = getBuffer();
+		sb.append(message);
+		appendFields(sb, keyValues);
+		String log = sb.toString();
+		releaseBuffer(sb);
+		log(log, level);
+	}
+	
+	/**
+	 * Writes a log, with the layout of the logger.
+	 * 
+	 * It is invoked by {@link #log(String, Level)} and, with the {@link
+	 * Layout#JSON JSON} layout, by all the other {@code log} methods; the level
+	 * has already been checked. The log is encoded and written by {@link
+	 * #logEncoded(ByteBuffer, Level) logEncoded}.
+	 * 
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 * 
+	 * @see #encode(Level, CharSequence, Throwable, Object[])
+	 */
+	protected void logEvent(Level level, CharSequence message, Throwable t, Object[] fields){
+		logEncoded(encode(level, message, t, fields), level);
+	}
+	
+	/**
+	 * Writes a log already encoded with the layout of the logger.
+	 * 
+	 * It is invoked by {@link #logEvent(Level, CharSequence, Throwable,
+	 * Object[]) logEvent}, and by {@link CompositeLogger} to write the same
+	 * encoded log with more loggers. The log is counted by the metrics; the
+	 * position of the buffer can be changed. This logger writes the log on the
+	 * standard output.
+	 * 
+	 * @param data the encoded log (with the line terminator), from its position
+	 * to its limit
+	 * @param level log level
+	 */
+	protected void logEncoded(ByteBuffer data, Level level){
+		if (metrics==null) {
+			out.write(data.array(), data.arrayOffset()+data.position(), data.remaining());
+			return;
+		}
+		metrics.event(level);
+		long start = System.nanoTime();
+		out.write(data.array(), data.arrayOffset()+data.position(), data.remaining());
+		metrics.write(data.remaining(), System.nanoTime()-start);
+	}
+	
+	/**
+	 * Checks if all the logs are passed to {@link #logEvent(Level,
+	 * CharSequence, Throwable, Object[]) logEvent} with their parts (text,
+	 * exception and key/value pairs) kept separate.
+	 * 
+	 * It is so with the {@link Layout#JSON JSON} layout; with the {@link
+	 * Layout#TEXT TEXT} layout, exceptions and key/value pairs are added to the
+	 * text before the log is written by {@link #log(String, Level)}.
+	 * 
+	 * @return {@code true} if the parts of the logs are kept separate
+	 */
+	boolean isStructured(){
+		return layout==Layout.JSON;
+	}
+	
+	/**
+	 * Checks if another logger can write the logs encoded by this logger.
+	 * 
+	 * It is so if the other logger writes all the logs by {@link
+	 * #logEncoded(ByteBuffer, Level) logEncoded} (it does not override {@link
+	 * #log(String, Level)} nor {@link #logEvent(Level, CharSequence,
+	 * Throwable, Object[]) logEvent}) and with the same layout (name, prefix
+	 * and {@link Layout}) of this logger.
+	 * 
+	 * @param logger the other logger
+	 * @return {@code true} if the logger can write the logs encoded by this one
+	 */
+	boolean sharesEncoding(Logger logger){
+		if (!writesEncoded(logger))
+			return false;
+		return logger.layout==layout
+				&& (name==null ? logger.name==null : name.equals(logger.name))
+				&& logger.useDate==useDate
+				&& (!useDate || logger.dateFormat.toPattern().equals(dateFormat.toPattern()))
+				&& logger.useLevel==useLevel
+				&& logger.useContext==useContext
+				&& logger.separator.equals(separator);
+	}
+	
+	/**
+	 * Checks if a logger writes all the logs by {@link #logEncoded(ByteBuffer,
+	 * Level) logEncoded}, encoded by its {@link #encode(Level, CharSequence,
+	 * Throwable, Object[]) encode} method.
+	 * 
+	 * It is so if the logger does not override {@link #log(String, Level)}
+	 * nor {@link #logEvent(Level, CharSequence, Throwable, Object[])
+	 * logEvent}.
+	 * 
+	 * @param logger the logger
+	 * @return {@code true} if the logger writes the logs it encodes
+	 */
+	static boolean writesEncoded(Logger logger){
+		return getDeclaringClass(logger.getClass(), "log", String.class, Level.class)==Logger.class
+				&& getDeclaringClass(logger.getClass(), "logEvent", Level.class, CharSequence.class, Throwable.class, Object[].class)==Logger.class;
+	}
+	
+	/**
+	 * Checks if a logger overrides {@link #log(String, Level)}.
+	 * 
+	 * @param logger the logger
+	 * @return {@code true} if the logger writes the logs by its own {@code
+	 * log} method
+	 */
+	static boolean overridesLog(Logger logger){
+		return getDeclaringClass(logger.getClass(), "log", String.class, Level.class)!=Logger.class;
+	}
+	
+	/**
+	 * Returns the class that declares a method.
+	 * 
+	 * @param c the class where the method is searched (with its super-classes)
+	 * @param method name of the method
+	 * @param params types of the parameters of the method
+	 * @return the class, or {@code null} if the method is not found
+	 */
+	private static Class<?> getDeclaringClass(Class<?> c, String method, Class<?>... params){
+		for (; c!=null; c = c.getSuperclass())
+			try{
+				c.getDeclaredMethod(method, params);
+				return c;
+			} catch(NoSuchMethodException e){ }
+		return null;
+	}
+	
+	/**
+	 * Writes a log with the public {@code log} methods of another logger.
+	 * 
+	 * Used to pass a log to a logger that builds it by itself (see {@link
+	 * #sharesEncoding(Logger)}).
+	 * 
+	 * @param logger the logger
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	static void forwardEvent(Logger logger, Level level, CharSequence message, Throwable t, Object[] fields){
+		if (fields!=null)
+			logger.logFields(level, String.valueOf(message), fields);
+		else if (t==null)
+			logger.log(String.valueOf(message), level);
+		else if (message!=null)
+			logger.log(level, message.toString().replace("{}", "\\{}"), t);
+		else if (t instanceof Exception)
+			logger.log((Exception)t, level);
+		else
+			logger.log(level, "", t);
+	}
+	
+	/**
+	 * Encodes a log with the layout of the logger.
+	 * 
+	 * The log is built and encoded in buffers reused by the thread: the
+	 * returned buffer is valid till the next log encoded by the same thread.
+	 * 
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 * @return the encoded log (with the line terminator), ready to be read
+	 */
+	protected ByteBuffer encode(Level level, CharSequence message, Throwable t, Object[] fields){
+		if (layout==Layout.JSON)
+			return JsonEncoder.get().encode(System.currentTimeMillis(), level, this.name, message, t, fields,
+					useContext ? LogContext.current() : null);
+		StringBuilder sb = getBuffer();
+		appendText(sb, level, message, t, fields);
+		ByteBuffer bb = LineEncoder.get().encode(sb);
+		releaseBuffer(sb);
+		return bb;
+	}
+	
+	/**
+	 * Appends a log to a buffer, with the {@link Layout#TEXT TEXT} layout.
+	 * 
+	 * @param sb the buffer
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	protected void appendText(StringBuilder sb, Level level, CharSequence message, Throwable t, Object[] fields){
+		int start = sb.length();
+		appendPrefix(sb, level);
+		int end = sb.length();
+		if (message!=null) {
+			sb.append(message);
+			appendFields(sb, fields);
+			sb.append(NEW_LINE);
+			if (t!=null)
+				sb.append(sb, start, end);
+		}
+		if (t!=null) {
+			ExceptionRenderer.render(sb, t, sb.substring(start, end));
+			sb.append(NEW_LINE);
+		}
+	}
+	
+	/**
+	 * Appends some key/value pairs to a buffer, as "{@code  key=value}".
+	 * 
+	 * @param sb the buffer
+	 * @param fields the keys and the values, one after the other ({@code null}
+	 * if none)
+	 */
+	static void appendFields(StringBuilder sb, Object[] fields){
+		if (fields==null)
+			return;
+		for (int i=0; i<fields.length; i+=2) {
+			sb.append(' ').append(fields[i]).append('=');
+			sb.append(i+1<fields.length ? fields[i+1] : null);
+		}
+	}
+	
+	/**
+	 * Appends a pattern to a buffer, replacing each "{@code {}}" with the next
+	 * argument.
+	 * 
+	 * A "{@code {}}" preceded by a backslash is written as is (without the
+	 * backslash). If there are more "{@code {}}" than arguments, the remaining
+	 * ones are written as is.
+	 * 
+	 * @param sb the buffer
+	 * @param pattern the pattern
+	 * @param args the arguments (can be {@code null})
+	 * @return the number of arguments used
+	 */
+	protected static int format(StringBuilder sb, String pattern, Object[] args){
+		if (pattern==null) {
+			sb.append((String)null);
+			return 0;
+		}
+		int n = args==null ? 0 : args.length;
+		int used = 0;
+		int from = 0;
+		int ndx;
+		while ((ndx=pattern.indexOf("{}", from))>=0) {
+			if (ndx>0 && pattern.charAt(ndx-1)=='\\') {
+				sb.append(pattern, from, ndx-1).append("{}");
+			} else if (used<n) {
+				sb.append(pattern, from, ndx).append(args[used++]);
+			} else {
+				break;
+			}
+			from = ndx+2;
+		}
+		sb.append(pattern, from, pattern.length());
+		return used;
+	}
+	
+	/**
+	 * Writes all the pending logs.
+	 * 
+	 * This logger writes every log immediately, so this method does nothing.
+	 * Loggers that buffer the logs should override it.
+	 */
+	public void flush(){ }
+	
+	/**
+	 * Releases the resources used by the logger.
+	 * 
+	 * Pending logs are written before closing. This logger does not hold any
+	 * resource, so this method does nothing.
+	 */
+	public void close(){ }
+	
 	/**
 	 * Returns the prefix to be written before the log.
 	 *
 	 * <p>The prefix is
-	 * <pre>[date+sep][level+sep][name+sep]</pre>
-	 * where each part is optional (depends on the logger configuration).</p>
+	 * <pre>[date+sep][level+sep][name+sep][context+sep]</pre>
+	 * where each part is optional (depends on the logger configuration, and
+	 * on the {@link LogContext context} of the thread).</p>
 	 * 
 	 * @param level the level from which take the code
-	 * @return a prefix in the form {@code [date+sep][level+sep]}[name+sep] (it
-	 * can be an empty string)
+	 * @return a prefix in the form {@code [date+sep][level+sep]}[name+sep][context+sep]
+	 * (it can be an empty string)
+	 * 
+	 * @see #appendPrefix(StringBuilder, Level)
 	 */
 	protected String getPrefix(Level level){
-		StringBuilder logPrefix = new StringBuilder();
+		StringBuilder sb = getBuffer();
+		appendPrefix(sb, level);
+		String prefix = sb.toString();
+		releaseBuffer(sb);
+		return prefix;
+	}
+	
+	/**
+	 * Appends the prefix to be written before the log to a buffer.
+	 * 
+	 * The prefix is the one described in {@link #getPrefix(Level)}; no object
+	 * is created if the buffer has enough capacity.
+	 * 
+	 * @param sb the buffer
+	 * @param level the level from which take the code
+	 */
+	protected void appendPrefix(StringBuilder sb, Level level){
+		appendPrefix(sb, level, System.currentTimeMillis(), this.name);
+		// context
+		if (this.useContext) {
+			LogContext context = LogContext.current();
+			if (context.size()>0) {
+				sb.append(context.getText());
+				sb.append(this.separator);
+			}
+		}
+	}
+	
+	/**
+	 * Appends to a buffer the prefix of a log written at a given time by a
+	 * logger with a given name.
+	 * 
+	 * Used to rebuild the logs written in other formats.
+	 * 
+	 * @param sb the buffer
+	 * @param level log level
+	 * @param time when the log was written (as {@link
+	 * System#currentTimeMillis()})
+	 * @param name name of the logger
+	 */
+	final void appendPrefix(StringBuilder sb, Level level, long time, String name){
 		// date
 		if (this.useDate) {
-			logPrefix.append(this.getDate());
-			logPrefix.append(this.separator);
+			getDateFormat().format(time, sb);
+			sb.append(this.separator);
 		}
 		// level
 		if (this.useLevel && level!=null) {
-			logPrefix.append(level.getCode());
-			logPrefix.append(this.separator);
+			sb.append(level.getCode());
+			sb.append(this.separator);
 		}
-		// date
-		if (!Utils.isEmpty(this.name)) {
-			logPrefix.append(this.name);
-			logPrefix.append(this.separator);
+		// name
+		if (!Utils.isEmpty(name)) {
+			sb.append(name);
+			sb.append(this.separator);
 		}
-		return logPrefix.toString();
 	}
 
 	/**
@@ -297,7 +929,100 @@ public class Logger{
 	 * @return a string with the date
 	 */
 	protected String getDate(){
-		return this.dateFormat.format(new Date());
+		return getDateFormat().format(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the format used to write the date.
+	 *
+	 * @return a copy of {@link #dateFormat}, which can be used by more threads
+	 * at the same time
+	 */
+	private CachedDateFormat getDateFormat(){
+		CachedDateFormat f = this.cachedDateFormat;
+		SimpleDateFormat d = this.dateFormat;
+		if (f==null || f.source!=d) {
+			f = new CachedDateFormat(d);
+			this.cachedDateFormat = f;
+		}
+		return f;
+	}
+	
+	/**
+	 * Returns the level configured for a logger.
+	 * 
+	 * The property "{@code log.level.}<i>name</i>" is used; if it is not
+	 * present, the last part of the name is removed (up to the last '.') and
+	 * the property is looked up again. If there is none, the property "{@code
+	 * log.level}" is used.
+	 * 
+	 * @param props the configuration
+	 * @param name the name of the logger (can be {@code null})
+	 * @param def the level to use if none is configured
+	 * @return the level of the logger
+	 */
+	static Level getConfiguredLevel(Properties props, String name, Level def){
+		if (!Utils.isEmpty(name)) {
+			String key = "log.level." + name;
+			while (true) {
+				Level l = parseLevel(props.getProperty(key));
+				if (l!=null)
+					return l;
+				int ndx = key.lastIndexOf('.');
+				if (ndx<="log.level".length())
+					break;
+				key = key.substring(0, ndx);
+			}
+		}
+		Level l = parseLevel(props.getProperty("log.level"));
+		return l!=null ? l : def;
+	}
+	
+	/**
+	 * Returns the level with the given name.
+	 * 
+	 * @param s the name of the level
+	 * @return the level, or {@code null} if the name is not valid
+	 */
+	private static Level parseLevel(String s){
+		if (s==null)
+			return null;
+		try{
+			return Level.valueOf(s.trim());
+		} catch(Exception e){
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns an empty buffer, to build a log.
+	 * 
+	 * The buffer belongs to the current thread, and it is reused for the
+	 * following logs: it has to be given back with {@link
+	 * #releaseBuffer(StringBuilder)} when it is not used any more. If the
+	 * buffer of the thread is already in use (for instance because a log is
+	 * done while building another one), a new buffer is returned.
+	 * 
+	 * @return an empty buffer
+	 */
+	protected static StringBuilder getBuffer(){
+		StringBuilder sb = buffers.get();
+		if (sb==null)
+			return new StringBuilder(256);
+		buffers.set(null);
+		return sb;
+	}
+	
+	/**
+	 * Gives back a buffer taken with {@link #getBuffer()}, so it can be reused.
+	 * 
+	 * @param sb the buffer
+	 */
+	protected static void releaseBuffer(StringBuilder sb){
+		if (sb.capacity()<=MAX_BUFFER) {
+			sb.setLength(0);
+			buffers.set(sb);
+		}
 	}
 	
 }
@@ -23,6 +23,17 @@
 package it.andynaz.log;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import it.andynaz.utils.Utils;
+import it.andynaz.config.ConfigListener;
 import it.andynaz.config.ConfigMgr;
 
 /**
@@ -31,20 +42,59 @@ import it.andynaz.config.ConfigMgr;
  * The default logger is the one specified by tha value "{@code
  * log.defaultLogger}" in the {@link ConfigMgr} class. The logger used should
  * have two constructors, the one with no arguments and another one with takes a
- * string.
+ * string; if it has also a constructor which takes a string and a {@link
+ * Properties} object, it is preferred.
  *
  * <p>The logger is created using the configuration stored in the {@link
  * ConfigMgr} class. If the class specified by the value "{@code defaultLogger}"
  * does not exist or it is not a subclass of {@link Logger}, a {@link Logger} is
  * created (the one that uses the standard output).</p>
  *
+ * <p>Loggers are kept in a registry: asking again for a logger with the same
+ * name returns the same instance. The logger class, its constructors and a copy
+ * of the configuration are looked up only once; when a "{@code log.*}"
+ * parameter of the configuration changes, they are looked up again and new
+ * loggers are created; the old ones are closed (the logs done with them are
+ * written directly, see {@link Logger#close()}).</p>
+ *
+ * <p>Changes of the levels ("{@code log.level}" and "{@code
+ * log.level.}<i>name</i>") are an exception: the level of all the loggers
+ * created by this class is updated, and no new logger is created.</p>
+ *
+ * <p>The metrics of the loggers created by this class, and the global ones,
+ * are published in the platform MBean server (see {@link LogMetrics}).</p>
+ *
  * @author andynaz
- * @version 2014/04/29
+ * @version 2026/10/17
  */
 public class LoggerMgr{
 	// hides the constructor
 	private LoggerMgr(){ }
 
+	/**
+	 * The loggers created with the current configuration.
+	 *
+	 * Replaced by a new one (empty) when the configuration changes.
+	 */
+	private static volatile Registry registry;
+
+	/**
+	 * All the loggers created (they are kept till they are used).
+	 */
+	private static final Map<Logger, Boolean> live = Collections.synchronizedMap(new WeakHashMap<Logger, Boolean>());
+
+	static {
+		ConfigMgr.addListener(new ConfigListener(){
+			@Override
+			public void configChanged(String name){
+				if (name.equals("log.level") || name.startsWith("log.level."))
+					updateLevels(name);
+				else if (name.startsWith("log."))
+					replaceRegistry();
+			}
+		});
+	}
+
 	/**
 	 * Returns a "default" logger without a name.
 	 * 
@@ -54,16 +104,7 @@ public class LoggerMgr{
 	 * errors
 	 */
 	public static Logger getLogger(){
-		try {
-			Class<Logger> logger = getLoggerClass();
-			Logger loggerInst = logger.newInstance();
-			if (loggerInst==null)
-				throw new Exception();
-			return loggerInst;
-		} catch (Exception ex) {
-			return new Logger();
-		}
-		
+		return getRegistry().getLogger(null);
 	}
 
 	/**
@@ -77,16 +118,64 @@ public class LoggerMgr{
 	 * name
 	 */
 	public static Logger getLogger(String name){
-		try {
-			Class<Logger> logger = getLoggerClass();
-			Constructor<Logger> c = logger.getConstructor(String.class);
-			Logger loggerInst = c.newInstance(name);
-			if (loggerInst==null)
-				throw new Exception();
-			return loggerInst;
-		} catch (Exception ex) {
-			return new Logger(name);
+		return getRegistry().getLogger(name);
+	}
+
+	/**
+	 * Returns the registry of the current configuration, creating it if
+	 * needed.
+	 *
+	 * @return the registry
+	 */
+	private static Registry getRegistry(){
+		Registry r = registry;
+		if (r==null)
+			synchronized(LoggerMgr.class){
+				r = registry;
+				if (r==null) {
+					r = new Registry();
+					registry = r;
+				}
+			}
+		return r;
+	}
+
+	/**
+	 * Discards the registry after a change of the configuration, closing its
+	 * loggers (the threads and the shutdown hooks of the loggers that have
+	 * them are released).
+	 * 
+	 * The loggers are closed before a new registry can be created, so the new
+	 * loggers do not find their files still used by the old ones (see {@link
+	 * FileLogger}).
+	 */
+	private static void replaceRegistry(){
+		synchronized(LoggerMgr.class){
+			Registry r = registry;
+			registry = null;
+			if (r!=null)
+				r.close();
+		}
+	}
+
+	/**
+	 * Updates the level of all the loggers after a change of the
+	 * configuration.
+	 *
+	 * @param name the name of the changed parameter
+	 */
+	private static void updateLevels(String name){
+		Registry r = registry;
+		if (r!=null)
+			r.configChanged(name);
+
+		Properties config = ConfigMgr.getConfigParams();
+		List<Logger> loggers;
+		synchronized(live){
+			loggers = new ArrayList<Logger>(live.keySet());
 		}
+		for (Logger l : loggers)
+			l.setLevel(Logger.getConfiguredLevel(config, l.name, Level.INFO));
 	}
 
 	/**
@@ -96,14 +185,127 @@ public class LoggerMgr{
 	 *
 	 * @return the class used to create the logger
 	 */
-	private static Class<Logger> getLoggerClass(){
-		Class<Logger> logger = Logger.class;
+	private static Class<? extends Logger> getLoggerClass(){
+		Class<? extends Logger> logger = Logger.class;
 		// try the one from the configuration
 		try {
-			Class<Logger> l = (Class<Logger>) Class.forName(ConfigMgr.getConfigParam("log.defaultLogger"));
-			logger = l;
+			logger = Class.forName(ConfigMgr.getConfigParam("log.defaultLogger")).asSubclass(Logger.class);
 		} catch (Exception ex) { }
 		return logger;
 	}
 
+
+	/**
+	 * The loggers created with a configuration, and what is needed to create
+	 * them.
+	 */
+	private static final class Registry{
+		private final ConcurrentMap<String, Logger> loggers = new ConcurrentHashMap<String, Logger>();
+		private final Properties config = ConfigMgr.getConfigParams();
+		private final Class<? extends Logger> loggerClass = getLoggerClass();
+		private final Constructor<? extends Logger> withProps = getConstructor(String.class, Properties.class);
+		private final Constructor<? extends Logger> withName = getConstructor(String.class);
+		private final Constructor<? extends Logger> noArgs = getConstructor();
+		private boolean closed = false;
+
+		/**
+		 * Returns the logger with a name, creating it if needed.
+		 *
+		 * @param name the name of the logger ({@code null} for the logger
+		 * without a name)
+		 * @return the logger
+		 */
+		Logger getLogger(String name){
+			String key = name==null ? "" : name;
+			Logger l = loggers.get(key);
+			if (l==null)
+				synchronized(this){
+					// replaced while the logger was looked up
+					if (closed)
+						return getRegistry().getLogger(name);
+					l = loggers.get(key);
+					if (l==null) {
+						l = create(name);
+						loggers.put(key, l);
+						live.put(l, Boolean.TRUE);
+						LogMetrics.register(l.getMetrics());
+					}
+				}
+			return l;
+		}
+
+		/**
+		 * Closes all the loggers of the registry.
+		 *
+		 * No more loggers are created by this registry.
+		 */
+		void close(){
+			List<Logger> all;
+			synchronized(this){
+				closed = true;
+				all = new ArrayList<Logger>(loggers.values());
+			}
+			for (Logger l : all)
+				try{
+					l.close();
+				} catch(RuntimeException e){ }
+		}
+
+		/**
+		 * Copies a changed parameter in the configuration of the registry.
+		 *
+		 * @param name the name of the parameter
+		 */
+		synchronized void configChanged(String name){
+			String value = ConfigMgr.getConfigParam(name);
+			if (value==null)
+				config.remove(name);
+			else
+				config.setProperty(name, value);
+		}
+
+		/**
+		 * Creates a logger.
+		 *
+		 * @param name the name of the logger ({@code null} for the logger
+		 * without a name)
+		 * @return the logger, or a {@link Logger} in case of errors
+		 */
+		private Logger create(String name){
+			try {
+				Logger loggerInst;
+				if (withProps!=null)
+					loggerInst = withProps.newInstance(name, config);
+				else if (name!=null && withName!=null)
+					loggerInst = withName.newInstance(name);
+				else if (name==null && noArgs!=null)
+					loggerInst = noArgs.newInstance();
+				else
+					throw new Exception();
+				if (loggerInst==null)
+					throw new Exception();
+				return loggerInst;
+			} catch (InvocationTargetException ex) {
+				Utils.printException("can not create the logger "+(name==null ? "" : name)+", the standard output is used", ex.getCause());
+				return new Logger(name, config);
+			} catch (Exception ex) {
+				return new Logger(name, config);
+			}
+		}
+
+		/**
+		 * Returns a public constructor of the logger class.
+		 *
+		 * @param types the types of the arguments
+		 * @return the constructor, or {@code null} if it does not exist
+		 */
+		private Constructor<? extends Logger> getConstructor(Class<?>... types){
+			try {
+				return loggerClass.getConstructor(types);
+			} catch (Exception ex) {
+				return null;
+			}
+		}
+	}
+
 }
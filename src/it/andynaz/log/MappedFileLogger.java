@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.util.Properties;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Memory-mapped File Logger.
+ *
+ * Writes the logs on a text file, like the {@link FileLogger}, but the file is
+ * mapped in memory: a log is encoded directly in the mapped region, without
+ * any system call. The file is extended by segments: when a segment is full,
+ * the next one is mapped.
+ *
+ * <p>While the logger is in use, the end of the file is filled with zeros (the
+ * unused part of the last segment). The file is truncated to the real length
+ * of the logs by {@link #close()}, which is invoked also when the JVM shuts
+ * down. If the JVM crashes, the zeros are removed the next time the file is
+ * opened by this logger.</p>
+ *
+ * <p>The logs are in memory shared with the operating system, so they are not
+ * lost if the program crashes; {@link #flush()} forces them on the disk.</p>
+ *
+ * <p>Only one program at a time should write on the file.</p>
+ * 
+ * <p>The mapped segments are released explicitly before the file is truncated
+ * or rolled. On Windows, if the JVM does not allow it, the file cannot be
+ * mapped: it is written with a buffer, like a persistent {@link FileLogger}
+ * (a message is written on the standard output).</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class MappedFileLogger extends FileLogger{
+
+	/**
+	 * Creates a MappedFileLogger with a name and a configuration.
+	 *
+	 * In addition to the properties used by {@link FileLogger} (the ones about
+	 * the buffer are not considered), the one used is:
+	 * <dl>
+	 *   <dt>log.mappedLogger.segmentSize</dt> <dd>size of the segments of the file mapped in memory, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 16 MB)</dd>
+	 * </dl>
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see FileLogger#FileLogger(String, Properties) for all the other
+	 * properties see the FileLogger constructor
+	 */
+	public MappedFileLogger(String name, Properties props){
+		super(name, props, LogFile.Mode.MAPPED);
+	}
+
+	/**
+	 * Creates a MappedFileLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #MappedFileLogger(String, Properties)
+	 */
+	public MappedFileLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a MappedFileLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #MappedFileLogger(String, Properties)
+	 */
+	public MappedFileLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a MappedFileLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #MappedFileLogger(String, Properties)
+	 */
+	public MappedFileLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+}
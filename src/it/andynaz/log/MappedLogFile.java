@@ -0,0 +1,254 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+/**
+ * A log file mapped in memory.
+ *
+ * The logs are copied directly in a mapped segment of the file; when the
+ * segment is full, the next one is mapped (extending the file). While the file
+ * is open, its end is filled with zeros: they are removed when the file is
+ * closed or, after a crash, when it is opened again.
+ *
+ * <p>The mapped segments are released explicitly (with the cleaner of the
+ * buffer, see {@link #unmap(MappedByteBuffer)}) before the file is truncated
+ * or renamed: on Windows, a file cannot be truncated or renamed while it is
+ * mapped. If the JVM does not allow to release them (see {@link
+ * #isSupported()}), the mapped mode is not used on Windows.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+class MappedLogFile extends LogFile{
+
+	/**
+	 * Size of a segment of the file mapped in memory.
+	 */
+	private long segmentSize = 16L*1024*1024;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+
+	/**
+	 * Position in the file of the mapped segment.
+	 */
+	private long segmentStart;
+
+	/**
+	 * Releases a mapped buffer: {@code Unsafe.invokeCleaner} (Java 9 and
+	 * later) or the cleaner of the buffer (up to Java 8); {@code null} if none
+	 * is available.
+	 */
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	private static final Method CLEANER;
+	private static final Method CLEAN;
+	static{
+		Object unsafe = null;
+		Method invokeCleaner = null, cleaner = null, clean = null;
+		try{
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+		} catch(Exception e){
+			invokeCleaner = null;
+			try{
+				cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+				clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			} catch(Exception ex){
+				cleaner = null;
+				clean = null;
+			}
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+		CLEANER = cleaner;
+		CLEAN = clean;
+	}
+
+
+	/**
+	 * Creates the log file.
+	 *
+	 * In addition to the properties used by {@link LogFile}, the one used is:
+	 * <dl>
+	 *   <dt>log.mappedLogger.segmentSize</dt> <dd>size of the segments mapped in memory, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 16 MB)</dd>
+	 * </dl>
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 */
+	MappedLogFile(File file, Properties props){
+		super(file, props);
+
+		// --- segment size
+		long size = parseSize(props.getProperty("log.mappedLogger.segmentSize"), 0);
+		if (size>=4096)
+			this.segmentSize = size;
+	}
+
+	/**
+	 * Checks if the file can be mapped in memory on this platform.
+	 *
+	 * It is not possible on Windows if the mapped segments cannot be released
+	 * explicitly, because the file could not be truncated nor rolled.
+	 *
+	 * @return {@code true} if the mapped mode can be used
+	 */
+	static boolean isSupported(){
+		return INVOKE_CLEANER!=null || CLEANER!=null
+				|| !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+	}
+
+	@Override
+	protected long open() throws IOException{
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		long end = findEnd();
+		map(end);
+		return end;
+	}
+
+	@Override
+	protected int append(ByteBuffer data, Level level, long now) throws IOException{
+		int len = data.remaining();
+		int limit = data.limit();
+		while (data.hasRemaining()) {
+			if (!mapped.hasRemaining())
+				map(segmentStart + mapped.position());
+			data.limit(data.position() + Math.min(data.remaining(), mapped.remaining()));
+			mapped.put(data);
+			data.limit(limit);
+		}
+		return len;
+	}
+
+	/**
+	 * Forces the logs on the disk.
+	 */
+	@Override
+	protected void flushFile(){
+		mapped.force();
+	}
+
+	/**
+	 * Closes the file, removing the unused part of the last segment.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	@Override
+	protected void closeFile() throws IOException{
+		try{
+			if (mapped!=null) {
+				long end = segmentStart + mapped.position();
+				MappedByteBuffer mb = mapped;
+				mapped = null;
+				unmap(mb);
+				channel.truncate(end);
+			}
+		} finally {
+			raf.close();
+			raf = null;
+			channel = null;
+		}
+	}
+
+
+	/**
+	 * Maps a segment of the file, extending it if needed.
+	 *
+	 * @param position position of the segment in the file
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private void map(long position) throws IOException{
+		MappedByteBuffer mb = mapped;
+		mapped = null;
+		if (mb!=null)
+			unmap(mb);
+		mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, segmentSize);
+		segmentStart = position;
+	}
+
+	/**
+	 * Releases a mapped segment, if the JVM allows it; otherwise it is
+	 * released by the garbage collector.
+	 *
+	 * The buffer must not be used any more.
+	 *
+	 * @param mb the mapped segment
+	 */
+	private static void unmap(MappedByteBuffer mb){
+		try{
+			if (INVOKE_CLEANER!=null) {
+				INVOKE_CLEANER.invoke(UNSAFE, mb);
+			} else if (CLEANER!=null) {
+				Object cleaner = CLEANER.invoke(mb);
+				if (cleaner!=null)
+					CLEAN.invoke(cleaner);
+			}
+		} catch(Exception e){ }
+	}
+
+	/**
+	 * Returns the end of the logs in the file.
+	 *
+	 * The zeros at the end of the file (left by a file not closed) are
+	 * skipped; only the last segment is checked.
+	 *
+	 * @return the position after the last byte that is not zero
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private long findEnd() throws IOException{
+		long end = channel.size();
+		long limit = Math.max(0, end-segmentSize);
+		ByteBuffer bb = ByteBuffer.allocate(8192);
+		while (end>limit) {
+			int len = (int)Math.min(bb.capacity(), end-limit);
+			bb.clear().limit(len);
+			long pos = end-len;
+			while (bb.hasRemaining() && channel.read(bb, pos+bb.position())>=0);
+			for (int i=len-1; i>=0; i--)
+				if (bb.get(i)!=0)
+					return pos+i+1;
+			end = pos;
+		}
+		return end;
+	}
+
+}
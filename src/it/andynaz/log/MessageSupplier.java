@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+/**
+ * Provides the text of a log.
+ *
+ * Used to build the text of a log only if the log has to be written (see
+ * {@link Logger#log(Level, MessageSupplier)}). With Java 8 or later, it can be
+ * written as a lambda expression:
+ * <pre>logger.log(Level.DEBUG, () -&gt; "state: " + dump(state));</pre>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public interface MessageSupplier{
+
+	/**
+	 * Returns the text of the log.
+	 *
+	 * @return the text of the log
+	 */
+	String get();
+
+}
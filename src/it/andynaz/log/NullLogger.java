@@ -22,6 +22,7 @@
 
 package it.andynaz.log;
 
+import java.nio.ByteBuffer;
 import java.util.Properties;
 
 /**
@@ -30,7 +31,7 @@ import java.util.Properties;
  * Used to suppress all logs in a program that uses the <i>andyLog</i> project.
  *
  * @author andynaz
- * @version 2013/12/18
+ * @version 2026/10/17
  */
 public class NullLogger extends Logger {
 	
@@ -61,6 +62,17 @@ public class NullLogger extends Logger {
 	 */
 	public NullLogger(String name, Properties props){ }
 	
+	/**
+	 * Returns {@code false}: no log is written.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @return {@code false}
+	 */
+	@Override
+	public boolean isEnabled(Level level){
+		return false;
+	}
+	
 	/**
 	 * Does nothing.
 	 * 
@@ -78,6 +90,46 @@ public class NullLogger extends Logger {
 	@Override
 	public void log(String log){ }
 	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @param pattern pattern of the log (will not be used)
+	 * @param arg argument (will not be used)
+	 */
+	@Override
+	public void log(Level level, String pattern, Object arg){ }
+	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @param pattern pattern of the log (will not be used)
+	 * @param arg1 first argument (will not be used)
+	 * @param arg2 second argument (will not be used)
+	 */
+	@Override
+	public void log(Level level, String pattern, Object arg1, Object arg2){ }
+	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @param pattern pattern of the log (will not be used)
+	 * @param args arguments (will not be used)
+	 */
+	@Override
+	public void log(Level level, String pattern, Object... args){ }
+	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @param supplier supplier of the log (will not be used)
+	 */
+	@Override
+	public void log(Level level, MessageSupplier supplier){ }
+	
 	/**
 	 * Does nothing.
 	 * 
@@ -95,4 +147,34 @@ public class NullLogger extends Logger {
 	@Override
 	public void log(Exception e, Level level){ }
 	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @param message log to write (will not be used)
+	 * @param keyValues key/value pairs of the log (will not be used)
+	 */
+	@Override
+	public void logFields(Level level, String message, Object... keyValues){ }
+	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param level level of the log (will not be used)
+	 * @param message log to write (will not be used)
+	 * @param t exception to log (will not be used)
+	 * @param fields key/value pairs of the log (will not be used)
+	 */
+	@Override
+	protected void logEvent(Level level, CharSequence message, Throwable t, Object[] fields){ }
+	
+	/**
+	 * Does nothing.
+	 * 
+	 * @param data encoded log to write (will not be used)
+	 * @param level level of the log (will not be used)
+	 */
+	@Override
+	protected void logEncoded(ByteBuffer data, Level level){ }
+	
 }
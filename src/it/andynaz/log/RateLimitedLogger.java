@@ -0,0 +1,529 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.lang.reflect.Constructor;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import it.andynaz.utils.Utils;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Logger that limits the number of logs written by another logger.
+ *
+ * Each log passes through two filters before being written by the wrapped
+ * logger:
+ * <ul>
+ *   <li><b>sampling</b>: for each {@link Level}, only one log every N can be
+ *   written (the first, the N+1-th, and so on);</li>
+ *   <li><b>rate limiting</b>: logs with the same template can be written at a
+ *   given rate, with bursts of a given size (a token bucket for each
+ *   template).</li>
+ * </ul>
+ * The template of a log is the pattern for the logs built from a pattern (see
+ * {@link #log(Level, String, Object...)}), the text for the other logs, the
+ * class of the exception or of the {@link MessageSupplier}. Up to 1024
+ * templates are tracked separately; when there are more, the new ones share a
+ * single limit.
+ *
+ * <p>The number of discarded logs is counted without locks. Periodically a
+ * summary is written, like "{@code suppressed 12345 similar events: ...}"; the
+ * summary is written by the first log (written or discarded) that arrives
+ * after the interval, and by {@link #flush()} and {@link #close()}.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class RateLimitedLogger extends Logger{
+
+	/**
+	 * Maximum number of templates with their own limit.
+	 */
+	private static final int MAX_TEMPLATES = 1024;
+
+	/**
+	 * The logger that writes the logs.
+	 */
+	protected final Logger logger;
+
+	/**
+	 * Maximum number of logs per second with the same template (0 for no
+	 * limit).
+	 *
+	 * Dafaule value is 100.
+	 */
+	protected double rate = 100;
+
+	/**
+	 * Maximum number of logs with the same template written all together.
+	 *
+	 * Dafaule value is the rate (at least 1).
+	 */
+	protected int burst;
+
+	/**
+	 * Milliseconds between two summaries of the discarded logs.
+	 *
+	 * Dafaule value is 10 seconds.
+	 */
+	protected long summaryInterval = 10000;
+
+	/**
+	 * For each level (by ordinal), one log every how many is written.
+	 */
+	private final int[] sampling = new int[Level.values().length];
+	private final AtomicLongArray sampled = new AtomicLongArray(sampling.length);
+	private final AtomicLongArray sampledOut = new AtomicLongArray(sampling.length);
+
+	private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+	private final Bucket others = new Bucket("(other events)", System.nanoTime());
+
+	/**
+	 * Nanoseconds between two logs with the same template, and tolerance
+	 * for the bursts.
+	 */
+	private final long interval;
+	private final long tolerance;
+
+	/**
+	 * When the next summary has to be written (as {@link System#nanoTime()}).
+	 */
+	private final AtomicLong nextSummary;
+
+
+	/**
+	 * Creates a RateLimitedLogger with a name and a configuration.
+	 *
+	 * The properties used are:
+	 * <dl>
+	 *   <dt>log.rateLimitedLogger.logger</dt>          <dd>class of the wrapped logger, with a public constructor with the name and the configuration (default {@link Logger})</dd>
+	 *   <dt>log.rateLimitedLogger.rate</dt>            <dd>maximum number of logs per second with the same template, 0 for no limit (default 100)</dd>
+	 *   <dt>log.rateLimitedLogger.burst</dt>           <dd>maximum number of logs with the same template written all together (default the rate)</dd>
+	 *   <dt>log.rateLimitedLogger.sample.LEVEL</dt>    <dd>for the logs with that level, one every how many is written (default 1, all)</dd>
+	 *   <dt>log.rateLimitedLogger.summaryInterval</dt> <dd>time between two summaries of the discarded logs, in milliseconds or with a {@code s}, {@code m}, {@code h} or {@code d} suffix (default 10 s)</dd>
+	 * </dl>
+	 * The wrapped logger is created with the same name and configuration.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see Logger#Logger(String, Properties) for all the other properties see
+	 * the Logger constructor
+	 */
+	public RateLimitedLogger(String name, Properties props){
+		this(name, props, createLogger(name, props));
+	}
+
+	/**
+	 * Creates a RateLimitedLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #RateLimitedLogger(String, Properties)
+	 */
+	public RateLimitedLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a RateLimitedLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #RateLimitedLogger(String, Properties)
+	 */
+	public RateLimitedLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a RateLimitedLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #RateLimitedLogger(String, Properties)
+	 */
+	public RateLimitedLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a RateLimitedLogger that wraps a logger.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger (the class of the wrapped
+	 * logger is not considered)
+	 * @param logger the logger that writes the logs
+	 *
+	 * @see #RateLimitedLogger(String, Properties)
+	 */
+	public RateLimitedLogger(String name, Properties props, Logger logger){
+		super(name, props);
+		this.logger = logger;
+
+		for (int i=0; i<sampling.length; i++)
+			sampling[i] = 1;
+		int b = 0;
+		if (props!=null) {
+			// --- rate and burst
+			try{
+				String s = props.getProperty("log.rateLimitedLogger.rate");
+				if (s!=null && Double.parseDouble(s)>=0)
+					this.rate = Double.parseDouble(s);
+			} catch(Exception e){ }
+			Integer i = Utils.parseInt(props.getProperty("log.rateLimitedLogger.burst"));
+			if (i!=null && i>0)
+				b = i;
+
+			// --- sampling
+			for (Level l : Level.values()) {
+				i = Utils.parseInt(props.getProperty("log.rateLimitedLogger.sample."+l.name()));
+				if (i!=null && i>0)
+					sampling[l.ordinal()] = i;
+			}
+
+			// --- summary interval
+			this.summaryInterval = Math.max(1, LogFile.parseTime(props.getProperty("log.rateLimitedLogger.summaryInterval"), this.summaryInterval));
+		}
+		this.burst = b>0 ? b : Math.max(1, (int)Math.ceil(this.rate));
+
+		this.interval = rate>0 ? (long)(1000000000L / rate) : 0;
+		this.tolerance = this.interval * (this.burst-1);
+		this.nextSummary = new AtomicLong(System.nanoTime() + summaryInterval*1000000L);
+	}
+
+	/**
+	 * Creates the wrapped logger.
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 * @return the logger of the class set in the configuration, or a {@link
+	 * Logger} in case of errors
+	 */
+	private static Logger createLogger(String name, Properties props){
+		try{
+			String cls = props.getProperty("log.rateLimitedLogger.logger");
+			if (cls!=null) {
+				Class<? extends Logger> c = Class.forName(cls.trim()).asSubclass(Logger.class);
+				if (c!=RateLimitedLogger.class) {
+					Constructor<? extends Logger> k = c.getConstructor(String.class, Properties.class);
+					return k.newInstance(name, props);
+				}
+			}
+		} catch(Exception e){ }
+		return new Logger(name, props);
+	}
+
+
+	/**
+	 * Returns the wrapped logger.
+	 *
+	 * @return the logger that writes the logs
+	 */
+	public Logger getLogger(){
+		return this.logger;
+	}
+
+	/**
+	 * Returns the level of the wrapped logger.
+	 *
+	 * @return the level of the logger
+	 */
+	@Override
+	public Level getLevel(){
+		return logger.getLevel();
+	}
+
+	/**
+	 * Changes the level of this and of the wrapped logger.
+	 *
+	 * @param level the new level
+	 *
+	 * @throws NullPointerException if {@code level} is {@code null}
+	 */
+	@Override
+	public void setLevel(Level level){
+		super.setLevel(level);
+		logger.setLevel(level);
+	}
+
+	@Override
+	public boolean isEnabled(Level level){
+		return logger.isEnabled(level);
+	}
+
+	/**
+	 * Returns the metrics of the wrapped logger.
+	 *
+	 * @return the metrics, or {@code null} if they are disabled
+	 */
+	@Override
+	public LogMetrics getMetrics(){
+		return logger.getMetrics();
+	}
+
+	/**
+	 * Writes a log, if it passes the sampling and the rate limit.
+	 *
+	 * @param log log to be written
+	 * @param level log level
+	 */
+	@Override
+	public void log(String log, Level level){
+		if (logger.accepts(level) && admit(log, level))
+			logger.log(log, level);
+	}
+
+	/**
+	 * Writes the log of an exception, if it passes the sampling and the rate
+	 * limit (the template is the class of the exception).
+	 *
+	 * @param e exception to be logged
+	 * @param level log level
+	 */
+	@Override
+	public void log(Exception e, Level level){
+		if (logger.accepts(level) && admit(e.getClass().getName(), level))
+			logger.log(e, level);
+	}
+
+	@Override
+	public void log(Level level, String pattern, Object arg){
+		if (logger.accepts(level) && admit(pattern, level))
+			logger.log(level, pattern, arg);
+	}
+
+	@Override
+	public void log(Level level, String pattern, Object arg1, Object arg2){
+		if (logger.accepts(level) && admit(pattern, level))
+			logger.log(level, pattern, arg1, arg2);
+	}
+
+	@Override
+	public void log(Level level, String pattern, Object... args){
+		if (logger.accepts(level) && admit(pattern, level))
+			logger.log(level, pattern, args);
+	}
+
+	/**
+	 * Writes a log with some key/value pairs, if it passes the sampling and the
+	 * rate limit (the template is the text of the log).
+	 *
+	 * @param level log level
+	 * @param message text of the log
+	 * @param keyValues the keys and the values, one after the other
+	 */
+	@Override
+	public void logFields(Level level, String message, Object... keyValues){
+		if (logger.accepts(level) && admit(message, level))
+			logger.logFields(level, message, keyValues);
+	}
+
+	/**
+	 * Writes a log whose text is provided by a {@link MessageSupplier}, if it
+	 * passes the sampling and the rate limit (the template is the class of the
+	 * supplier, so each call site has its own limit).
+	 *
+	 * @param level log level
+	 * @param supplier provides the text of the log
+	 */
+	@Override
+	public void log(Level level, MessageSupplier supplier){
+		if (logger.accepts(level) && admit(supplier.getClass().getName(), level))
+			logger.log(level, supplier);
+	}
+
+	/**
+	 * Writes the summary of the discarded logs, and the logs kept in memory by
+	 * the wrapped logger.
+	 */
+	@Override
+	public void flush(){
+		writeSummary(System.nanoTime());
+		logger.flush();
+	}
+
+	/**
+	 * Writes the summary of the discarded logs, and closes the wrapped logger.
+	 */
+	@Override
+	public void close(){
+		writeSummary(System.nanoTime());
+		logger.close();
+	}
+
+
+	/**
+	 * Returns the number of logs discarded so far and not yet reported by a
+	 * summary.
+	 *
+	 * @return the number of discarded logs
+	 */
+	public long getSuppressedCount(){
+		long n = others.suppressed.get();
+		for (Bucket b : buckets.values())
+			n += b.suppressed.get();
+		for (int i=0; i<sampledOut.length(); i++)
+			n += sampledOut.get(i);
+		return n;
+	}
+
+	/**
+	 * Checks if a log passes the sampling and the rate limit.
+	 *
+	 * @param template the template of the log
+	 * @param level log level
+	 * @return {@code true} if the log has to be written
+	 */
+	private boolean admit(String template, Level level){
+		long now = System.nanoTime();
+		if (now-nextSummary.get()>=0)
+			writeSummary(now);
+
+		int ndx = level.ordinal();
+		int n = sampling[ndx];
+		if (n>1 && sampled.getAndIncrement(ndx)%n!=0) {
+			sampledOut.incrementAndGet(ndx);
+			return false;
+		}
+
+		if (interval==0 || template==null)
+			return true;
+		Bucket b = getBucket(template, now);
+		if (b.acquire(now, interval, tolerance))
+			return true;
+		b.level = level;
+		b.suppressed.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Returns the token bucket of a template.
+	 *
+	 * @param template the template
+	 * @param now the current time (as {@link System#nanoTime()})
+	 * @return the bucket
+	 */
+	private Bucket getBucket(String template, long now){
+		Bucket b = buckets.get(template);
+		if (b==null) {
+			if (buckets.size()>=MAX_TEMPLATES)
+				return others;
+			b = new Bucket(template, now);
+			Bucket old = buckets.putIfAbsent(template, b);
+			if (old!=null)
+				b = old;
+		}
+		return b;
+	}
+
+	/**
+	 * Writes the summary of the discarded logs, if no other thread is writing
+	 * it.
+	 *
+	 * The templates with no discarded logs, and with the whole burst available,
+	 * are forgotten.
+	 *
+	 * @param now the current time (as {@link System#nanoTime()})
+	 */
+	private void writeSummary(long now){
+		long next = nextSummary.get();
+		if (!nextSummary.compareAndSet(next, now + summaryInterval*1000000L))
+			return;
+
+		for (Level l : Level.values()) {
+			long n = sampledOut.getAndSet(l.ordinal(), 0);
+			if (n>0)
+				logger.log("suppressed " + n + " " + l + " events (sampling 1 in " + sampling[l.ordinal()] + ")", l);
+		}
+		summarize(others);
+		for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext(); ) {
+			Bucket b = it.next();
+			if (!summarize(b) && b.tat.get()-now<=0)
+				it.remove();
+		}
+	}
+
+	/**
+	 * Writes the summary of the logs discarded by a bucket.
+	 *
+	 * @param b the bucket
+	 * @return {@code true} if the bucket discarded some logs
+	 */
+	private boolean summarize(Bucket b){
+		long n = b.suppressed.getAndSet(0);
+		if (n>0)
+			logger.log("suppressed " + n + " similar events: " + b.template, b.level);
+		return n>0;
+	}
+
+
+	/**
+	 * Token bucket of a template.
+	 *
+	 * The bucket is implemented keeping the time when the next log would be
+	 * allowed if the bucket was empty (the theoretical arrival time): a log
+	 * is allowed if that time is not later than now plus the time needed to
+	 * fill the burst.
+	 */
+	private static final class Bucket{
+		final String template;
+		final AtomicLong tat;
+		final AtomicLong suppressed = new AtomicLong();
+		volatile Level level = Level.INFO;
+
+		Bucket(String template, long now){
+			this.template = template;
+			this.tat = new AtomicLong(now);
+		}
+
+		/**
+		 * Takes a token, if available.
+		 *
+		 * @param now the current time (as {@link System#nanoTime()})
+		 * @param interval nanoseconds needed to add a token
+		 * @param tolerance nanoseconds needed to fill the burst (minus one
+		 * token)
+		 * @return {@code true} if the token was available
+		 */
+		boolean acquire(long now, long interval, long tolerance){
+			while (true) {
+				long t = tat.get();
+				long start = t-now<0 ? now : t;
+				if (start-now>tolerance)
+					return false;
+				if (tat.compareAndSet(t, start+interval))
+					return true;
+			}
+		}
+	}
+
+}
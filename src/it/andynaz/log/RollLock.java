@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Coordinates the rolling of a log file written by more processes.
+ *
+ * A lock file is kept next to the log file, with the same name and the "{@code
+ * .lock}" extension: the rolling is done holding a {@link FileLock} on it, so
+ * only one process renames the file. The lock file also holds a generation
+ * number (a big endian long), increased every time the file is rolled: a
+ * process whose generation is older is still writing on a rolled file, and
+ * has to open the log file again.
+ *
+ * <p>The lock is taken only to open and to roll the file, never to write the
+ * logs. Before each write, the generation is checked only every some logs or
+ * milliseconds, with a single read of the lock file.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class RollLock{
+
+	/**
+	 * Extension of the lock files.
+	 */
+	static final String EXTENSION = ".lock";
+
+	/**
+	 * Maximum number of writes between two checks of the generation.
+	 */
+	private static final int CHECK_WRITES = 64;
+
+	/**
+	 * Maximum milliseconds between two checks of the generation.
+	 */
+	private static final long CHECK_INTERVAL = 1000;
+
+	private final File file;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private FileLock lock;
+
+	/**
+	 * Number of {@link #lock()} not released yet.
+	 */
+	private int holds;
+
+	private final ByteBuffer value = ByteBuffer.allocate(8);
+
+	/**
+	 * Generation of the file open.
+	 */
+	private long generation;
+
+	/**
+	 * Writes since the last check of the generation.
+	 */
+	private int writes;
+
+	/**
+	 * Time of the last check of the generation.
+	 */
+	private long lastCheck;
+
+
+	/**
+	 * Creates the lock of a log file.
+	 *
+	 * @param log the log file
+	 */
+	RollLock(File log){
+		this.file = new File(log.getPath()+EXTENSION);
+	}
+
+	/**
+	 * Takes the lock, waiting for the other processes to release it.
+	 *
+	 * If the lock is already held, it is only counted: it has to be released
+	 * as many times as it is taken.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	void lock() throws IOException{
+		if (holds==0) {
+			open();
+			lock = channel.lock();
+		}
+		holds++;
+	}
+
+	/**
+	 * Releases the lock.
+	 */
+	void unlock(){
+		if (holds>0 && --holds==0 && lock!=null) {
+			try{
+				lock.release();
+			} catch(IOException e){ }
+			lock = null;
+		}
+	}
+
+	/**
+	 * Reads the generation of the file just opened; invoked holding the lock.
+	 *
+	 * @param now current time
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	void opened(long now) throws IOException{
+		generation = read();
+		writes = 0;
+		lastCheck = now;
+	}
+
+	/**
+	 * Increases the generation, after the file has been rolled; invoked
+	 * holding the lock.
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	void rolled() throws IOException{
+		long next = read()+1;
+		value.clear();
+		value.putLong(0, next);
+		while (value.hasRemaining())
+			channel.write(value, value.position());
+	}
+
+	/**
+	 * Checks if the file has been rolled by another process, before a write.
+	 *
+	 * The check is done only every some writes or milliseconds: the logs
+	 * written in the meantime go to the rolled file.
+	 *
+	 * @param now current time
+	 * @return {@code true} if the file has been rolled since it was opened
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	boolean isRolled(long now) throws IOException{
+		if (++writes<CHECK_WRITES && now-lastCheck<CHECK_INTERVAL)
+			return false;
+		writes = 0;
+		lastCheck = now;
+		return isRolled();
+	}
+
+	/**
+	 * Checks if the file has been rolled by another process.
+	 *
+	 * @return {@code true} if the file has been rolled since it was opened
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	boolean isRolled() throws IOException{
+		return read()!=generation;
+	}
+
+	/**
+	 * Closes the lock file, releasing the lock.
+	 */
+	void close(){
+		if (raf!=null)
+			try{
+				raf.close();
+			} catch(IOException e){ }
+		raf = null;
+		channel = null;
+		lock = null;
+		holds = 0;
+	}
+
+
+	private void open() throws IOException{
+		if (raf==null) {
+			raf = new RandomAccessFile(file, "rw");
+			channel = raf.getChannel();
+		}
+	}
+
+	/**
+	 * Reads the generation (0 if the lock file is empty).
+	 */
+	private long read() throws IOException{
+		open();
+		value.clear();
+		while (value.hasRemaining() && channel.read(value, value.position())>=0);
+		return value.position()==8 ? value.getLong(0) : 0;
+	}
+
+}
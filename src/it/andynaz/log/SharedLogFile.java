@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+/**
+ * A log file kept open and written also by other processes.
+ *
+ * The file is opened in append mode ({@code O_APPEND}): each write is put by
+ * the system at the end of the file, whatever the other processes have
+ * written. Nothing is kept in memory: each log (with all its lines, also the
+ * stack trace of an exception) is written with a single write, so the logs of
+ * the processes are never mixed. This is not guaranteed on network file
+ * systems (like NFS).
+ *
+ * <p>The file is rolled by one process at a time, holding the lock of a {@link
+ * RollLock}; the other processes open the new file at one of the next writes.
+ * The lock is never taken to write the logs.</p>
+ *
+ * <p>The size of the file includes the logs of the other processes, read every
+ * some writes, so the file is rolled at the size set also when more processes
+ * write on it.</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+class SharedLogFile extends LogFile{
+
+	/**
+	 * Maximum number of writes between two reads of the size of the file.
+	 */
+	private static final int SIZE_WRITES = 64;
+
+	/**
+	 * Indicates if the data has to be forced on the disk after every write.
+	 */
+	private boolean fsync = false;
+
+	private FileChannel channel;
+
+	/**
+	 * Size of the file, as known by {@link LogFile}.
+	 */
+	private long end;
+
+	/**
+	 * Writes since the last read of the size of the file.
+	 */
+	private int writes;
+
+
+	/**
+	 * Creates the log file.
+	 *
+	 * In addition to the properties used by {@link LogFile}, the ones used are:
+	 * <dl>
+	 *   <dt>log.fileLogger.fsync</dt> <dd>a boolean to indicates if the data has to be forced on the disk after every write (default 'false')</dd>
+	 * </dl>
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 */
+	SharedLogFile(File file, Properties props){
+		super(file, props);
+
+		// --- fsync
+		if (props.getProperty("log.fileLogger.fsync")!=null)
+			this.fsync = Boolean.parseBoolean(props.getProperty("log.fileLogger.fsync"));
+	}
+
+	@Override
+	protected boolean isShared(){
+		return true;
+	}
+
+	@Override
+	protected long open() throws IOException{
+		channel = new FileOutputStream(file, true).getChannel();
+		end = channel.size();
+		writes = 0;
+		return end;
+	}
+
+	@Override
+	protected int append(ByteBuffer data, Level level, long now) throws IOException{
+		int len = data.remaining();
+		// a single write, unless the system writes only a part of the data
+		while (data.hasRemaining())
+			channel.write(data);
+		if (fsync)
+			channel.force(false);
+		end += len;
+
+		// the logs written by the other processes
+		if (++writes>=SIZE_WRITES) {
+			writes = 0;
+			long others = Math.min(channel.size()-end, Integer.MAX_VALUE-len);
+			if (others>0) {
+				end += others;
+				len += (int)others;
+			}
+		}
+		return len;
+	}
+
+	@Override
+	protected void flushFile(){ }
+
+	@Override
+	protected void closeFile() throws IOException{
+		try{
+			channel.close();
+		} finally {
+			channel = null;
+		}
+	}
+
+}
@@ -0,0 +1,855 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import it.andynaz.utils.Utils;
+import it.andynaz.config.ConfigMgr;
+
+/**
+ * Logger that sends the logs to a collector, by TCP or UDP.
+ *
+ * The logs are built by the thread that logs and put in a buffer; a background
+ * thread sends them with a non-blocking channel, more logs with a single write
+ * (with UDP, one datagram for each log). The thread that logs never waits for
+ * the network.
+ *
+ * <p>If the connection is lost (or cannot be opened), the background thread
+ * tries to connect again, waiting more and more between two attempts (up to a
+ * maximum). The logs that cannot be sent (because the collector cannot be
+ * reached, or it is too slow and the buffer is full) are written on a spill
+ * file, if configured, or discarded. With TCP, the log that was being sent when
+ * the connection is lost could be received only in part by the collector, and
+ * written also on the spill file.</p>
+ *
+ * <p>The logs can be sent in two formats:
+ * <dl>
+ *   <dt>{@link Format#LINE LINE}</dt>     <dd>with the layout of the logger (see {@link Logger.Layout}), a line for each log;</dd>
+ *   <dt>{@link Format#SYSLOG SYSLOG}</dt> <dd>as syslog messages (RFC 5424), with the octet-counting framing (RFC 6587) by TCP.</dd>
+ * </dl></p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class SocketLogger extends Logger{
+
+	/**
+	 * Network protocol used to send the logs.
+	 */
+	public enum Protocol{
+		TCP,
+		UDP;
+
+		/**
+		 * Returns the protocol with the given name (case insensitive).
+		 *
+		 * @param name the name of the protocol
+		 * @return the protocol
+		 *
+		 * @throws IllegalArgumentException if there is no protocol with that
+		 * name
+		 */
+		public static Protocol parse(String name){
+			return valueOf(name.trim().toUpperCase());
+		}
+	}
+
+	/**
+	 * Format of the logs sent.
+	 */
+	public enum Format{
+		/**
+		 * A line for each log, with the layout of the logger.
+		 */
+		LINE,
+
+		/**
+		 * A syslog message (RFC 5424) for each log.
+		 */
+		SYSLOG;
+
+		/**
+		 * Returns the format with the given name (case insensitive).
+		 *
+		 * @param name the name of the format
+		 * @return the format
+		 *
+		 * @throws IllegalArgumentException if there is no format with that name
+		 */
+		public static Format parse(String name){
+			return valueOf(name.trim().toUpperCase());
+		}
+	}
+
+	/**
+	 * Bytes before each log in the buffer: the length of the log and the level.
+	 */
+	private static final int HEADER = 5;
+
+	/**
+	 * Maximum number of logs sent with a single write.
+	 */
+	private static final int MAX_BATCH = 1024;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Syslog severity of each level (by ordinal).
+	 */
+	private static final int[] SEVERITY = new int[Level.values().length];
+	static{
+		SEVERITY[Level.FINE.ordinal()] = 7;
+		SEVERITY[Level.DEBUG.ordinal()] = 7;
+		SEVERITY[Level.INFO.ordinal()] = 6;
+		SEVERITY[Level.WARNING.ordinal()] = 4;
+		SEVERITY[Level.ERROR.ordinal()] = 3;
+		SEVERITY[Level.FATAL.ordinal()] = 2;
+	}
+
+	private static final CachedDateFormat SYSLOG_DATE = new CachedDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", TimeZone.getTimeZone("UTC"));
+
+	/**
+	 * Host of the collector.
+	 *
+	 * Dafaule value is "localhost".
+	 */
+	protected String host = "localhost";
+
+	/**
+	 * Port of the collector.
+	 *
+	 * Dafaule value is 5140.
+	 */
+	protected int port = 5140;
+
+	/**
+	 * Protocol used to send the logs.
+	 *
+	 * Dafaule value is {@link Protocol#TCP}.
+	 */
+	protected Protocol protocol = Protocol.TCP;
+
+	/**
+	 * Format of the logs sent.
+	 *
+	 * Dafaule value is {@link Format#LINE}.
+	 */
+	protected Format format = Format.LINE;
+
+	/**
+	 * Syslog facility.
+	 *
+	 * Dafaule value is 1 (user-level messages).
+	 */
+	protected int facility = 1;
+
+	/**
+	 * Milliseconds after which a connection or a write that does not complete
+	 * is considered failed.
+	 *
+	 * Dafaule value is 5 seconds.
+	 */
+	protected long timeout = 5000;
+
+	/**
+	 * Maximum milliseconds between two attempts to connect.
+	 *
+	 * Dafaule value is 30 seconds.
+	 */
+	protected long maxBackoff = 30000;
+
+	/**
+	 * Logger that writes the logs that cannot be sent ({@code null} if they
+	 * are discarded).
+	 */
+	protected final FileLogger spill;
+
+	/**
+	 * Host name and process id used in the syslog messages.
+	 */
+	private final String hostName;
+	private final String procId;
+
+	/**
+	 * The logs waiting to be sent (a ring buffer), with their headers.
+	 */
+	private final byte[] queue;
+
+	/**
+	 * Position of the first log not taken by the background thread, of the
+	 * end of the last log, and of the end of the last log sent (or spilled);
+	 * they are not reduced to the size of the buffer.
+	 */
+	private long head, tail, done;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition drained = lock.newCondition();
+	private boolean closed;
+
+	/**
+	 * Logs taken by the background thread: the data, and length and level of
+	 * each log.
+	 */
+	private final ByteBuffer batch;
+	private final int[] lengths = new int[MAX_BATCH];
+	private final Level[] levels = new Level[MAX_BATCH];
+	private int batchCount;
+
+	private Selector selector;
+	private SelectableChannel channel;
+	private long backoff, nextConnect;
+
+	private long sent, spilled, discarded;
+
+	private final Thread sender;
+	private final Thread shutdownHook;
+
+
+	/**
+	 * Creates a SocketLogger with a name and a configuration.
+	 *
+	 * The properties used are:
+	 * <dl>
+	 *   <dt>log.socketLogger.host</dt>       <dd>host of the collector (default "localhost")</dd>
+	 *   <dt>log.socketLogger.port</dt>       <dd>port of the collector (default 5140)</dd>
+	 *   <dt>log.socketLogger.protocol</dt>   <dd>{@code tcp} (default) or {@code udp}</dd>
+	 *   <dt>log.socketLogger.format</dt>     <dd>{@code line} (default, with the layout of the logger) or {@code syslog}</dd>
+	 *   <dt>log.socketLogger.facility</dt>   <dd>syslog facility, from 0 to 23 (default 1)</dd>
+	 *   <dt>log.socketLogger.queueSize</dt>  <dd>size of the buffer of the logs waiting to be sent, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 1 MB)</dd>
+	 *   <dt>log.socketLogger.batchSize</dt>  <dd>maximum size of a single write, in bytes or with a {@code K}, {@code M} or {@code G} suffix (default 64 KB); bigger logs are not sent</dd>
+	 *   <dt>log.socketLogger.timeout</dt>    <dd>time after which a connection or a write that does not complete is considered failed, in milliseconds or with a {@code s}, {@code m}, {@code h} or {@code d} suffix (default 5 s)</dd>
+	 *   <dt>log.socketLogger.maxBackoff</dt> <dd>maximum time between two attempts to connect, in milliseconds or with a suffix (default 30 s)</dd>
+	 *   <dt>log.socketLogger.spillFile</dt>  <dd>path of the file where the logs that cannot be sent are written (default: they are discarded); it is written by a {@link FileLogger} with the same configuration</dd>
+	 * </dl>
+	 *
+	 * @param name name of the Logger
+	 * @param props configuration of the Logger
+	 *
+	 * @see Logger#Logger(String, Properties) for all the other properties see
+	 * the Logger constructor
+	 */
+	public SocketLogger(String name, Properties props){
+		super(name, props);
+
+		long queueSize = 1024*1024;
+		long batchSize = 64*1024;
+		FileLogger spillLogger = null;
+		if (props!=null) {
+			// --- collector
+			if (props.getProperty("log.socketLogger.host")!=null)
+				this.host = props.getProperty("log.socketLogger.host").trim();
+			Integer i = Utils.parseInt(props.getProperty("log.socketLogger.port"));
+			if (i!=null && i>0 && i<65536)
+				this.port = i;
+			if (props.getProperty("log.socketLogger.protocol")!=null)
+				try{
+					this.protocol = Protocol.parse(props.getProperty("log.socketLogger.protocol"));
+				} catch(Exception e){ }
+			if (props.getProperty("log.socketLogger.format")!=null)
+				try{
+					this.format = Format.parse(props.getProperty("log.socketLogger.format"));
+				} catch(Exception e){ }
+			i = Utils.parseInt(props.getProperty("log.socketLogger.facility"));
+			if (i!=null && i>=0 && i<24)
+				this.facility = i;
+
+			// --- buffer e tempi
+			queueSize = LogFile.parseSize(props.getProperty("log.socketLogger.queueSize"), queueSize);
+			batchSize = LogFile.parseSize(props.getProperty("log.socketLogger.batchSize"), batchSize);
+			this.timeout = LogFile.parseTime(props.getProperty("log.socketLogger.timeout"), timeout);
+			this.maxBackoff = LogFile.parseTime(props.getProperty("log.socketLogger.maxBackoff"), maxBackoff);
+
+			// --- spill
+			if (props.getProperty("log.socketLogger.spillFile")!=null) {
+				Properties p = new Properties();
+				for (String key : props.stringPropertyNames())
+					p.setProperty(key, props.getProperty(key));
+				p.setProperty("log.fileLogger.file", props.getProperty("log.socketLogger.spillFile"));
+				p.setProperty("log.metrics", "false");
+				spillLogger = new FileLogger(name, p);
+			}
+		}
+		this.spill = spillLogger;
+		this.batch = ByteBuffer.allocate((int)Math.max(1024, Math.min(batchSize, 64*1024*1024)));
+		this.queue = new byte[(int)Math.max(batch.capacity()+HEADER, Math.min(queueSize, Integer.MAX_VALUE-8))];
+
+		String h = "-";
+		try{
+			h = InetAddress.getLocalHost().getHostName();
+		} catch(Exception e){ }
+		this.hostName = h;
+		String pid = ManagementFactory.getRuntimeMXBean().getName();
+		this.procId = pid.indexOf('@')>0 ? pid.substring(0, pid.indexOf('@')) : "-";
+
+		this.sender = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				send();
+			}
+		}, "SocketLogger" + (Utils.isEmpty(this.name) ? "" : "-"+this.name));
+		this.sender.setDaemon(true);
+		this.sender.start();
+
+		this.shutdownHook = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				shutdown();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+	}
+
+	/**
+	 * Creates a SocketLogger with a name.
+	 *
+	 * It uses the configuration of the application (taken from {@link
+	 * ConfigMgr#getConfigParams()} method).
+	 *
+	 * @param name name of the Logger
+	 *
+	 * @see #SocketLogger(String, Properties)
+	 */
+	public SocketLogger(String name){
+		this(name, ConfigMgr.getConfigParams());
+	}
+
+	/**
+	 * Creates a SocketLogger with a configuration.
+	 *
+	 * @param props configuration of the Logger
+	 *
+	 * @see #SocketLogger(String, Properties)
+	 */
+	public SocketLogger(Properties props){
+		this(null, props);
+	}
+
+	/**
+	 * Creates a SocketLogger.
+	 *
+	 * It uses the configuration of the application.
+	 *
+	 * @see #SocketLogger(String, Properties)
+	 */
+	public SocketLogger(){
+		this(null, ConfigMgr.getConfigParams());
+	}
+
+
+	/**
+	 * Puts a log in the buffer of the logs to be sent.
+	 *
+	 * If the buffer is full, the log is written on the spill file (or
+	 * discarded).
+	 *
+	 * @param data the encoded log, from its position to its limit
+	 * @param level log level
+	 */
+	@Override
+	protected void logEncoded(ByteBuffer data, Level level){
+		if (metrics!=null)
+			metrics.event(level);
+		if (!offer(data, level))
+			spill(data, level);
+	}
+
+	/**
+	 * Builds a log and puts it in the buffer of the logs to be sent.
+	 *
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 */
+	@Override
+	protected void logEvent(Level level, CharSequence message, Throwable t, Object[] fields){
+		if (format==Format.SYSLOG)
+			logEncoded(encodeSyslog(level, message, t, fields), level);
+		else
+			logEncoded(encode(level, message, t, fields), level);
+	}
+
+	/**
+	 * The logs are always passed to {@link #logEvent(Level, CharSequence,
+	 * Throwable, Object[]) logEvent} with their parts kept separate, so each
+	 * of them is sent as a single message.
+	 *
+	 * @return {@code true}
+	 */
+	@Override
+	boolean isStructured(){
+		return true;
+	}
+
+	/**
+	 * Encodes a log as a syslog message.
+	 *
+	 * @param level log level
+	 * @param message text of the log ({@code null} if there is only the
+	 * exception)
+	 * @param t exception to be logged ({@code null} if none)
+	 * @param fields key/value pairs, one after the other ({@code null} if none)
+	 * @return the message (with the framing, for TCP)
+	 */
+	private ByteBuffer encodeSyslog(Level level, CharSequence message, Throwable t, Object[] fields){
+		StringBuilder sb = getBuffer();
+		sb.append('<').append(facility*8+SEVERITY[level.ordinal()]).append(">1 ");
+		SYSLOG_DATE.format(System.currentTimeMillis(), sb);
+		sb.append(' ').append(hostName).append(' ');
+		if (Utils.isEmpty(name))
+			sb.append('-');
+		else
+			for (int i=0; i<name.length() && i<48; i++)
+				sb.append(name.charAt(i)>' ' && name.charAt(i)<127 ? name.charAt(i) : '_');
+		sb.append(' ').append(procId).append(" - - ");
+		if (message!=null) {
+			sb.append(message);
+			appendFields(sb, fields);
+		}
+		if (t!=null) {
+			if (message!=null)
+				sb.append('\n');
+			ExceptionRenderer.render(sb, t, "");
+		}
+		byte[] msg = sb.toString().getBytes(UTF_8);
+		releaseBuffer(sb);
+
+		if (protocol==Protocol.UDP)
+			return ByteBuffer.wrap(msg);
+		byte[] len = (msg.length+" ").getBytes(UTF_8);
+		ByteBuffer bb = ByteBuffer.allocate(len.length+msg.length);
+		bb.put(len).put(msg).flip();
+		return bb;
+	}
+
+	/**
+	 * Puts a log in the buffer.
+	 *
+	 * @param data the encoded log
+	 * @param level log level
+	 * @return {@code false} if the log cannot be put in the buffer
+	 */
+	private boolean offer(ByteBuffer data, Level level){
+		int len = data.remaining();
+		if (len>batch.capacity())
+			return false;
+		lock.lock();
+		try{
+			if (closed || tail+HEADER+len-head>queue.length)
+				return false;
+			put(tail, (byte)(len>>>24));
+			put(tail+1, (byte)(len>>>16));
+			put(tail+2, (byte)(len>>>8));
+			put(tail+3, (byte)len);
+			put(tail+4, (byte)level.ordinal());
+			int from = (int)((tail+HEADER)%queue.length);
+			int first = Math.min(len, queue.length-from);
+			data.get(queue, from, first);
+			data.get(queue, 0, len-first);
+			if (head==tail)
+				notEmpty.signal();
+			tail += HEADER+len;
+			if (metrics!=null)
+				metrics.queued(1);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void put(long pos, byte b){
+		queue[(int)(pos%queue.length)] = b;
+	}
+
+	private int get(long pos){
+		return queue[(int)(pos%queue.length)] & 0xff;
+	}
+
+	/**
+	 * Writes a log that cannot be sent on the spill file, or discards it.
+	 *
+	 * A syslog message is written without the framing, as a line.
+	 *
+	 * @param data the encoded log
+	 * @param level log level
+	 */
+	private void spill(ByteBuffer data, Level level){
+		if (metrics!=null)
+			metrics.overflow();
+		lock.lock();
+		try{
+			if (spill!=null)
+				spilled++;
+			else
+				discarded++;
+		} finally {
+			lock.unlock();
+		}
+		if (spill==null)
+			return;
+		if (format==Format.SYSLOG)
+			spill.logEncoded(toLine(data), level);
+		else
+			spill.logEncoded(data, level);
+	}
+
+	/**
+	 * Turns a syslog message into a line: the octet-counting framing (with
+	 * TCP) is removed, and the line terminator is added.
+	 *
+	 * @param data the syslog message
+	 * @return the line
+	 */
+	private ByteBuffer toLine(ByteBuffer data){
+		if (protocol==Protocol.TCP)
+			while (data.hasRemaining() && data.get()!=' ') { }
+		byte[] nl = NEW_LINE.getBytes(UTF_8);
+		ByteBuffer line = ByteBuffer.allocate(data.remaining()+nl.length);
+		line.put(data).put(nl).flip();
+		return line;
+	}
+
+
+	/**
+	 * Sends the logs in the buffer (executed by the background thread).
+	 */
+	private void send(){
+		for (;;) {
+			lock.lock();
+			try{
+				while (head==tail && !closed)
+					notEmpty.await();
+				if (head==tail)
+					break;
+				take();
+			} catch(InterruptedException e){
+				break;
+			} finally {
+				lock.unlock();
+			}
+
+			int bytes = batch.limit();
+			long start = System.nanoTime();
+			int count = write();
+			if (metrics!=null && count>0)
+				metrics.write(bytes, System.nanoTime()-start);
+			for (int i=count, pos=offset(count); i<batchCount; pos+=lengths[i++]) {
+				batch.limit(pos+lengths[i]).position(pos);
+				spill(batch, levels[i]);
+			}
+
+			lock.lock();
+			try{
+				sent += count;
+				done = head;
+				drained.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		disconnect();
+	}
+
+	/**
+	 * Moves the logs from the buffer to the batch; used holding the lock.
+	 */
+	private void take(){
+		batch.clear();
+		batchCount = 0;
+		Level[] all = Level.values();
+		while (head<tail && batchCount<MAX_BATCH) {
+			int len = (get(head)<<24) | (get(head+1)<<16) | (get(head+2)<<8) | get(head+3);
+			if (len>batch.remaining())
+				break;
+			lengths[batchCount] = len;
+			levels[batchCount] = all[get(head+4)];
+			int from = (int)((head+HEADER)%queue.length);
+			int first = Math.min(len, queue.length-from);
+			batch.put(queue, from, first);
+			batch.put(queue, 0, len-first);
+			head += HEADER+len;
+			batchCount++;
+		}
+		batch.flip();
+		if (metrics!=null)
+			metrics.queued(-batchCount);
+	}
+
+	/**
+	 * Returns the position of a log in the batch.
+	 */
+	private int offset(int index){
+		int pos = 0;
+		for (int i=0; i<index; i++)
+			pos += lengths[i];
+		return pos;
+	}
+
+	/**
+	 * Sends the logs of the batch.
+	 *
+	 * @return the number of logs sent (the other ones have to be spilled)
+	 */
+	private int write(){
+		if (channel==null && !connect())
+			return 0;
+		int count = 0;
+		try{
+			if (protocol==Protocol.UDP) {
+				int pos = 0;
+				for (; count<batchCount; pos+=lengths[count++]) {
+					batch.limit(pos+lengths[count]).position(pos);
+					if (!write(batch))
+						break;
+				}
+			} else {
+				if (write(batch))
+					count = batchCount;
+				else
+					count = sentLogs(batch.position());
+			}
+			if (count<batchCount)
+				disconnect();
+			else
+				backoff = 0;
+		} catch(IOException e){
+			Utils.printException("error while sending the log to "+host+":"+port, e);
+			if (protocol==Protocol.TCP)
+				count = sentLogs(batch.position());
+			disconnect();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of logs completely sent.
+	 *
+	 * @param bytes bytes of the batch sent
+	 */
+	private int sentLogs(int bytes){
+		int count = 0;
+		for (int pos=0; count<batchCount && pos+lengths[count]<=bytes; pos+=lengths[count++]) { }
+		return count;
+	}
+
+	/**
+	 * Writes some data on the channel, waiting till the timeout if the channel
+	 * cannot accept it.
+	 *
+	 * @param data the data
+	 * @return {@code false} if the timeout expires
+	 *
+	 * @throws IOException if I/O errors occour
+	 */
+	private boolean write(ByteBuffer data) throws IOException{
+		long deadline = System.currentTimeMillis()+timeout;
+		SelectionKey key = channel.keyFor(selector);
+		while (data.hasRemaining()) {
+			int n = channel instanceof SocketChannel
+					? ((SocketChannel)channel).write(data)
+					: ((DatagramChannel)channel).write(data);
+			if (n>0)
+				continue;
+			long wait = deadline-System.currentTimeMillis();
+			if (wait<=0)
+				return false;
+			key.interestOps(SelectionKey.OP_WRITE);
+			selector.select(wait);
+			selector.selectedKeys().clear();
+		}
+		return true;
+	}
+
+	/**
+	 * Connects to the collector, if it is time to try.
+	 *
+	 * @return {@code true} if connected
+	 */
+	private boolean connect(){
+		long now = System.currentTimeMillis();
+		if (now<nextConnect)
+			return false;
+		try{
+			if (selector==null)
+				selector = Selector.open();
+			InetSocketAddress address = new InetSocketAddress(host, port);
+			if (protocol==Protocol.UDP) {
+				DatagramChannel dc = DatagramChannel.open();
+				channel = dc;
+				dc.configureBlocking(false);
+				dc.connect(address);
+				dc.register(selector, 0);
+			} else {
+				SocketChannel sc = SocketChannel.open();
+				channel = sc;
+				sc.configureBlocking(false);
+				sc.socket().setTcpNoDelay(true);
+				SelectionKey key = sc.register(selector, SelectionKey.OP_CONNECT);
+				if (!sc.connect(address)) {
+					selector.select(timeout);
+					selector.selectedKeys().clear();
+					if (!sc.finishConnect())
+						throw new IOException("connection timed out");
+				}
+				key.interestOps(0);
+			}
+			return true;
+		} catch(IOException e){
+			disconnect();
+			backoff = Math.min(maxBackoff, Math.max(100, backoff*2));
+			nextConnect = now+backoff;
+			Utils.printException("cannot connect to "+host+":"+port+", retry in "+backoff+" ms", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the channel, if open.
+	 */
+	private void disconnect(){
+		if (channel!=null)
+			try{
+				channel.close();
+				selector.selectNow();
+			} catch(IOException e){ }
+		channel = null;
+	}
+
+
+	/**
+	 * Waits until the logs put in the buffer so far have been sent (or
+	 * spilled), and writes the spill file.
+	 */
+	@Override
+	public void flush(){
+		lock.lock();
+		try{
+			long target = tail;
+			while (done<target && sender.isAlive())
+				drained.await(100, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		} finally {
+			lock.unlock();
+		}
+		if (spill!=null)
+			spill.flush();
+	}
+
+	/**
+	 * Sends the pending logs and stops the background thread.
+	 *
+	 * The logs written after this method are spilled.
+	 */
+	@Override
+	public void close(){
+		shutdown();
+		try{
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch(IllegalStateException e){ }
+	}
+
+	/**
+	 * Sends the pending logs (waiting at most the timeout) and stops the
+	 * background thread.
+	 */
+	private void shutdown(){
+		lock.lock();
+		try{
+			closed = true;
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+		try{
+			sender.join(timeout);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		if (spill!=null)
+			spill.close();
+	}
+
+
+	/**
+	 * Returns the number of logs sent so far.
+	 *
+	 * @return the logs sent
+	 */
+	public long getSentCount(){
+		lock.lock();
+		try{
+			return sent;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of logs that could not be sent, and have been written
+	 * on the spill file.
+	 *
+	 * @return the logs spilled
+	 */
+	public long getSpilledCount(){
+		lock.lock();
+		try{
+			return spilled;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of logs that could not be sent, and have been
+	 * discarded (because there is no spill file).
+	 *
+	 * @return the logs discarded
+	 */
+	public long getDiscardedCount(){
+		lock.lock();
+		try{
+			return discarded;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
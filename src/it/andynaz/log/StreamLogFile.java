@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+/**
+ * A log file opened and closed for every write.
+ *
+ * Nothing is kept in memory, so the file can be moved or deleted by other
+ * programs at any time.
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+class StreamLogFile extends LogFile{
+
+	/**
+	 * Creates the log file.
+	 *
+	 * @param file the file
+	 * @param props configuration
+	 *
+	 * @see LogFile#LogFile(File, Properties)
+	 */
+	StreamLogFile(File file, Properties props){
+		super(file, props);
+	}
+
+	@Override
+	protected long open(){
+		return file.length();
+	}
+
+	@Override
+	protected int append(ByteBuffer data, Level level, long now) throws IOException{
+		int len = data.remaining();
+		OutputStream out = new FileOutputStream(file, true);
+		try{
+			if (data.hasArray()) {
+				out.write(data.array(), data.arrayOffset()+data.position(), len);
+				data.position(data.limit());
+			} else {
+				byte[] b = new byte[len];
+				data.get(b);
+				out.write(b);
+			}
+		} finally {
+			out.close();
+		}
+		return len;
+	}
+
+	@Override
+	protected void flushFile(){ }
+
+	@Override
+	protected void closeFile(){ }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+
+package it.andynaz.log;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A group of counters updated by many threads.
+ *
+ * Each counter is split in more cells (stripes), and each thread updates the
+ * cell of its stripe, so threads on different stripes do not contend for the
+ * same memory; the value of a counter is the sum of its cells. The counters of
+ * a stripe are next to each other, and the stripes are separated by a padding
+ * to avoid false sharing between them.
+ *
+ * <p>It is a simpler version of {@code java.util.concurrent.atomic.LongAdder},
+ * which is not available before Java 8: the number of stripes is fixed
+ * (depending on the number of processors).</p>
+ *
+ * @author andynaz
+ * @version 2026/10/17
+ */
+final class StripedCounters{
+
+	/**
+	 * Number of stripes (a power of 2).
+	 */
+	private static final int STRIPES;
+
+	/**
+	 * Number of bits needed by the index of a stripe.
+	 */
+	private static final int STRIPE_BITS;
+	static {
+		int n = 1;
+		int bits = 0;
+		while (n<Runtime.getRuntime().availableProcessors() && n<32) {
+			n <<= 1;
+			bits++;
+		}
+		STRIPES = n;
+		STRIPE_BITS = bits;
+	}
+
+	/**
+	 * Longs between two stripes (a cache line).
+	 */
+	private static final int PADDING = 8;
+
+	private final int counters;
+	private final int rowSize;
+	private final AtomicLongArray cells;
+
+
+	/**
+	 * Creates a group of counters, all set to 0.
+	 *
+	 * @param counters the number of counters
+	 */
+	StripedCounters(int counters){
+		this.counters = counters;
+		this.rowSize = (counters+PADDING-1)/PADDING*PADDING + PADDING;
+		this.cells = new AtomicLongArray(STRIPES*rowSize);
+	}
+
+	/**
+	 * Adds a value to a counter.
+	 *
+	 * @param counter the index of the counter
+	 * @param x the value to add
+	 */
+	void add(int counter, long x){
+		cells.getAndAdd(stripe()*rowSize + counter, x);
+	}
+
+	/**
+	 * Returns the value of a counter.
+	 *
+	 * The value is not a snapshot: updates done while summing the cells may be
+	 * missed.
+	 *
+	 * @param counter the index of the counter
+	 * @return the value
+	 */
+	long sum(int counter){
+		long sum = 0;
+		for (int s=0; s<STRIPES; s++)
+			sum += cells.get(s*rowSize + counter);
+		return sum;
+	}
+
+	/**
+	 * Sets all the counters to 0.
+	 */
+	void reset(){
+		for (int s=0; s<STRIPES; s++)
+			for (int c=0; c<counters; c++)
+				cells.set(s*rowSize + c, 0);
+	}
+
+	/**
+	 * Returns the stripe of the current thread.
+	 *
+	 * @return the index of the stripe
+	 */
+	private static int stripe(){
+		if (STRIPE_BITS==0)
+			return 0;
+		return (int)((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> (64-STRIPE_BITS));
+	}
+
+}
@@ -30,7 +30,7 @@ import java.util.zip.*;
  * Useful methods to manage compressed files.
  * 
  * @author andynaz
- * @version 2014/04/29
+ * @version 2026/10/17
  */
 public class UtilsZIP {
 	// hides the contructors
@@ -41,7 +41,7 @@ public class UtilsZIP {
 	 * 
 	 * The compressed file has the same name of the original file, with the
 	 * {@code .zip} extension added. The file is create di the same posizion of
-	 * the original file.
+	 * the original file. If an error occours, the compressed file is deleted.
 	 * 
 	 * @param file file to be compressed
 	 * @return the compressed file
@@ -57,19 +57,15 @@ public class UtilsZIP {
 		if( file==null )
 			throw new NullPointerException("null file");
 			
-		File zipFile = null;
-		FileInputStream fileIS = null;
-		FileOutputStream fileOS = null;
+		File zipFile = new File(file.getParent(), file.getName()+".zip");
+		FileInputStream fileIS = new FileInputStream(file);
 		ZipOutputStream zipOS = null;
+		boolean done = false;
 
 		byte data[] = new byte[1024];
 
 		try {
-			fileIS = new FileInputStream(file);
-			
-			zipFile = new File(file.getParent(), file.getName()+".zip");
-			fileOS = new  FileOutputStream(zipFile);
-			zipOS = new ZipOutputStream(new BufferedOutputStream(fileOS));
+			zipOS = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile)));
 			
 			/* add zip entry */
 			ZipEntry entry = new ZipEntry(file.getName());
@@ -80,11 +76,57 @@ public class UtilsZIP {
 				zipOS.write(data, 0, count);
 			}
 			zipOS.closeEntry();
+			zipOS.close();
+			done = true;
 		} finally {
-			if (zipOS!=null) zipOS.close();
-			if (fileIS!=null) fileIS.close();
-			return zipFile;
+			if (!done) {
+				// the compressed file is not complete
+				if (zipOS!=null) try { zipOS.close(); } catch(IOException e) { }
+				zipFile.delete();
+			}
+			fileIS.close();
+		}
+		return zipFile;
+	}
+	
+	/**
+	 * Compresses a file in the gzip format.
+	 * 
+	 * The compressed file has the same name of the original file, with the
+	 * {@code .gz} extension added. The file is created in the same position of
+	 * the original file. The data is compressed while it is read, so the memory
+	 * used does not depend on the size of the file. If an error occours, the
+	 * compressed file is deleted.
+	 * 
+	 * @param file file to be compressed
+	 * @return the compressed file
+	 * 
+	 * @throws NullPointerException if {@code file==null}
+	 * @throws FileNotFoundException if the file does not exist
+	 * @throws IOException if I/O errors occour
+	 */
+	public static File createGZip(File file) throws IOException {
+		if( file==null )
+			throw new NullPointerException("null file");
+		
+		File gzFile = new File(file.getParent(), file.getName()+".gz");
+		FileInputStream fileIS = new FileInputStream(file);
+		OutputStream gzOS = null;
+		boolean done = false;
+		try {
+			gzOS = new FileOutputStream(gzFile);
+			gzOS = new GZIPOutputStream(gzOS, 8192);
+			UtilsIO.cp(fileIS, gzOS);
+			done = true;
+		} finally {
+			if (!done) {
+				// the compressed file is not complete
+				if (gzOS!=null) try { gzOS.close(); } catch(IOException e) { }
+				gzFile.delete();
+			}
+			fileIS.close();
 		}
+		return gzFile;
 	}
 
 }
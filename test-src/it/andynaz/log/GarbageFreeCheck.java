@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/**
+ * Checks that the log path is garbage-free.
+ * 
+ * For each kind of logger that writes the logs without creating objects (the
+ * base Logger on the console, the FileLogger with the file kept open and the
+ * MappedFileLogger), it counts the bytes allocated by the thread while doing
+ * many logs, after a warm-up. Only the date, refreshed once per second, can be
+ * created: a logger fails the check if it allocates, on average, a byte or
+ * more for each log.
+ * 
+ * <p>The allocated bytes are read by {@link
+ * com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}: if the JVM
+ * does not support it, the check is skipped.</p>
+ * 
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class GarbageFreeCheck{
+
+	/**
+	 * Logs done before counting the allocated bytes.
+	 */
+	private static final int WARM_UP = 200000;
+	
+	/**
+	 * Logs done while counting the allocated bytes.
+	 */
+	private static final int LOGS = 100000;
+	
+	/**
+	 * Maximum allocated bytes per log.
+	 */
+	private static final double MAX_BYTES = 1.0;
+	
+	
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args not used
+	 * @throws Exception if a logger cannot be created
+	 */
+	public static void main(String[] args) throws Exception{
+		com.sun.management.ThreadMXBean mx;
+		try {
+			mx = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+			mx.setThreadAllocatedMemoryEnabled(true);
+		} catch(Exception e){
+			System.err.println("GarbageFreeCheck: allocated bytes not supported, skipped");
+			return;
+		}
+		
+		Properties props = new Properties();
+		props.setProperty("log.useDate", "true");
+		props.setProperty("log.useLevel", "true");
+		File file = File.createTempFile("andyLog", ".log");
+		file.deleteOnExit();
+		props.setProperty("log.fileLogger.file", file.getPath());
+		props.setProperty("log.fileLogger.persistent", "true");
+		
+		// the console is discarded
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(new OutputStream(){
+			@Override
+			public void write(int b){ }
+			@Override
+			public void write(byte[] b, int off, int len){ }
+		}));
+		
+		int failed = 0;
+		try {
+			failed += check(mx, new Logger("console", props));
+			failed += check(mx, new FileLogger("file", props));
+			File mapped = File.createTempFile("andyLog", ".log");
+			mapped.deleteOnExit();
+			props.setProperty("log.fileLogger.file", mapped.getPath());
+			failed += check(mx, new MappedFileLogger("mapped", props));
+		} finally {
+			System.setOut(console);
+		}
+		if (failed>0) {
+			System.err.println("GarbageFreeCheck: " + failed + " logger(s) failed");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Counts the bytes allocated by a logger.
+	 * 
+	 * @param mx bean reading the allocated bytes
+	 * @param logger the logger (closed at the end)
+	 * @return {@code 1} if the logger allocates too much, {@code 0} otherwise
+	 */
+	private static int check(com.sun.management.ThreadMXBean mx, Logger logger){
+		String message = "a log with a constant text";
+		long thread = Thread.currentThread().getId();
+		try {
+			for (int i=0; i<WARM_UP; i++)
+				logger.log(message, Level.INFO);
+			long start = mx.getThreadAllocatedBytes(thread);
+			for (int i=0; i<LOGS; i++)
+				logger.log(message, Level.INFO);
+			double perLog = (double)(mx.getThreadAllocatedBytes(thread)-start) / LOGS;
+			String name = logger.getClass().getSimpleName();
+			if (perLog<MAX_BYTES) {
+				System.err.println("GarbageFreeCheck: " + name + " ok, " + perLog + " bytes per log");
+				return 0;
+			}
+			System.err.println("GarbageFreeCheck: " + name + " FAILED, " + perLog + " bytes per log");
+			return 1;
+		} finally {
+			logger.close();
+		}
+	}
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2013-2015 Andrea "andynaz" Agnesse
+ *
+ * This file is part of "andyLib".
+ *
+ * "andyLib" is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * "andyLib" is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * "andyLib".  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * author e-mail: andynaz@gmail.com
+ * author home page: http://andynaz.altervista.org
+ * program official page: http://andynaz.altervista.org/Progetti/andyLib.html
+ */
+
+package it.andynaz.log;
+
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks the SocketLogger against collectors running in the same process, on
+ * the loopback interface.
+ * 
+ * It checks that:
+ * <ul>
+ *   <li>the logs are sent by TCP, a line for each log, and by UDP, a datagram
+ *       for each log;</li>
+ *   <li>when the collector closes the connection, the logger connects again
+ *       and the next logs are received;</li>
+ *   <li>when the collector cannot be reached, the logs are written on the
+ *       spill file, and they are sent again when the collector is back
+ *       (after the backoff).;</li>
+ *   <li>the syslog messages that cannot be sent are written on the spill
+ *       file one per line, without the framing.</li>
+ * </ul>
+ * 
+ * @author andynaz
+ * @version 2026/10/17
+ */
+public class SocketLoggerCheck{
+
+	/**
+	 * Milliseconds to wait for the logs to be received.
+	 */
+	private static final long WAIT = 10000;
+	
+	private static int failed;
+	
+	
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args not used
+	 * @throws Exception if the collectors cannot be started
+	 */
+	public static void main(String[] args) throws Exception{
+		checkTcp();
+		checkReconnect();
+		checkSpill();
+		checkSyslogSpill();
+		checkUdp();
+		if (failed>0) {
+			System.err.println("SocketLoggerCheck: " + failed + " check(s) failed");
+			System.exit(1);
+		}
+		System.err.println("SocketLoggerCheck: ok");
+	}
+	
+	/**
+	 * Sends some logs by TCP.
+	 */
+	private static void checkTcp() throws IOException{
+		Collector c = new Collector(new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")));
+		SocketLogger logger = new SocketLogger("tcp", config(c.server.getLocalPort(), "tcp", null));
+		try {
+			for (int i=0; i<100; i++)
+				logger.log("tcp log " + i, Level.INFO);
+			logger.flush();
+			check(c.waitLines(100), "tcp: 100 logs received (" + c.lines().size() + ")");
+			check(logger.getSentCount()==100, "tcp: 100 logs sent (" + logger.getSentCount() + ")");
+			check(c.lines().get(99).endsWith("tcp log 99"), "tcp: last log is 'tcp log 99'");
+		} finally {
+			logger.close();
+			c.close();
+		}
+	}
+	
+	/**
+	 * Closes the connection from the collector, and checks that the logger
+	 * connects again.
+	 */
+	private static void checkReconnect() throws Exception{
+		Collector c = new Collector(new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")));
+		SocketLogger logger = new SocketLogger("reconnect", config(c.server.getLocalPort(), "tcp", null));
+		try {
+			logger.log("before", Level.INFO);
+			logger.flush();
+			check(c.waitLines(1), "reconnect: first log received");
+			c.dropConnections();
+			
+			// the first writes can still succeed, till the reset is noticed
+			long end = System.currentTimeMillis()+WAIT;
+			for (int i=0; c.connections()<2 && System.currentTimeMillis()<end; i++) {
+				logger.log("after " + i, Level.INFO);
+				logger.flush();
+				Thread.sleep(20);
+			}
+			check(c.connections()==2, "reconnect: connected again (" + c.connections() + " connections)");
+			logger.log("last", Level.INFO);
+			logger.flush();
+			check(c.waitLast("last"), "reconnect: log received after the reconnection");
+		} finally {
+			logger.close();
+			c.close();
+		}
+	}
+	
+	/**
+	 * Logs while the collector is down, and checks the spill file; then starts
+	 * the collector and checks that the logger connects after the backoff.
+	 */
+	private static void checkSpill() throws Exception{
+		ServerSocket probe = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		int port = probe.getLocalPort();
+		probe.close();
+		File spillFile = File.createTempFile("andyLog", ".spill");
+		spillFile.deleteOnExit();
+		
+		SocketLogger logger = new SocketLogger("spill", config(port, "tcp", spillFile));
+		Collector c = null;
+		try {
+			for (int i=0; i<20; i++)
+				logger.log("spilled " + i, Level.INFO);
+			logger.flush();
+			check(logger.getSpilledCount()==20, "spill: 20 logs spilled (" + logger.getSpilledCount() + ")");
+			check(logger.getSentCount()==0, "spill: no log sent (" + logger.getSentCount() + ")");
+			check(countLines(spillFile, "spilled ")==20, "spill: 20 logs in the spill file");
+			
+			ServerSocket server = new ServerSocket();
+			server.setReuseAddress(true);
+			server.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port));
+			c = new Collector(server);
+			long end = System.currentTimeMillis()+WAIT;
+			for (int i=0; c.lines().isEmpty() && System.currentTimeMillis()<end; i++) {
+				logger.log("back " + i, Level.INFO);
+				logger.flush();
+				Thread.sleep(50);
+			}
+			check(!c.lines().isEmpty(), "spill: logs sent when the collector is back");
+		} finally {
+			logger.close();
+			if (c!=null)
+				c.close();
+		}
+	}
+	
+	/**
+	 * Logs syslog messages while the collector is down, by TCP and UDP, and
+	 * checks that the spill file has a line for each of them.
+	 */
+	private static void checkSyslogSpill() throws Exception{
+		ServerSocket probe = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		int port = probe.getLocalPort();
+		probe.close();
+		for (String protocol : new String[]{"tcp", "udp"}) {
+			File spillFile = File.createTempFile("andyLog", ".spill");
+			spillFile.deleteOnExit();
+			Properties props = config(port, protocol, spillFile);
+			props.setProperty("log.socketLogger.format", "syslog");
+			// the logs are bigger than a write, so they are always spilled
+			props.setProperty("log.socketLogger.batchSize", "1K");
+			StringBuilder padding = new StringBuilder();
+			while (padding.length()<2000)
+				padding.append('x');
+			SocketLogger logger = new SocketLogger("syslog", props);
+			try {
+				for (int i=0; i<3; i++)
+					logger.log("syslog " + i + " " + padding, Level.INFO);
+				logger.flush();
+			} finally {
+				logger.close();
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(spillFile), "UTF-8"));
+			List<String> lines = new ArrayList<String>();
+			try {
+				for (String line=in.readLine(); line!=null; line=in.readLine())
+					lines.add(line);
+			} finally {
+				in.close();
+			}
+			long spilled = logger.getSpilledCount();
+			boolean ok = spilled==3 && lines.size()==3;
+			for (int i=0; ok && i<3; i++)
+				ok = lines.get(i).startsWith("<14>1 ") && lines.get(i).endsWith(" - - syslog " + i + " " + padding);
+			check(ok, "syslog spill (" + protocol + "): 3 logs spilled, one per line, without the framing (" + lines.size() + " lines)");
+		}
+	}
+	
+	/**
+	 * Sends some logs by UDP.
+	 */
+	private static void checkUdp() throws IOException{
+		DatagramSocket socket = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"));
+		socket.setSoTimeout((int)WAIT);
+		SocketLogger logger = new SocketLogger("udp", config(socket.getLocalPort(), "udp", null));
+		try {
+			for (int i=0; i<10; i++)
+				logger.log("udp log " + i, Level.INFO);
+			logger.flush();
+			byte[] buffer = new byte[65536];
+			int received = 0;
+			try {
+				for (; received<10; received++) {
+					DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+					socket.receive(packet);
+					String log = new String(buffer, 0, packet.getLength(), "UTF-8").trim();
+					if (!log.endsWith("udp log " + received))
+						break;
+				}
+			} catch(SocketTimeoutException e){ }
+			check(received==10, "udp: 10 datagrams received, one for each log (" + received + ")");
+		} finally {
+			logger.close();
+			socket.close();
+		}
+	}
+	
+	
+	// --- utilities
+	
+	private static Properties config(int port, String protocol, File spillFile){
+		Properties props = new Properties();
+		props.setProperty("log.socketLogger.host", "127.0.0.1");
+		props.setProperty("log.socketLogger.port", String.valueOf(port));
+		props.setProperty("log.socketLogger.protocol", protocol);
+		props.setProperty("log.socketLogger.timeout", "2s");
+		props.setProperty("log.socketLogger.maxBackoff", "200");
+		if (spillFile!=null) {
+			props.setProperty("log.socketLogger.spillFile", spillFile.getPath());
+			props.setProperty("log.fileLogger.persistent", "true");
+		}
+		return props;
+	}
+	
+	private static int countLines(File file, String text) throws IOException{
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			int count = 0;
+			for (String line=in.readLine(); line!=null; line=in.readLine())
+				if (line.contains(text))
+					count++;
+			return count;
+		} finally {
+			in.close();
+		}
+	}
+	
+	private static void check(boolean ok, String description){
+		if (!ok)
+			failed++;
+		System.err.println("SocketLoggerCheck: " + (ok ? "ok     " : "FAILED ") + description);
+	}
+	
+	
+	/**
+	 * A TCP collector: it accepts the connections, one at a time, and keeps the
+	 * lines received.
+	 */
+	private static class Collector implements Runnable{
+		
+		final ServerSocket server;
+		private final List<String> lines = new ArrayList<String>();
+		private int connections;
+		private Socket socket;
+		
+		Collector(ServerSocket server){
+			this.server = server;
+			Thread t = new Thread(this, "Collector");
+			t.setDaemon(true);
+			t.start();
+		}
+		
+		@Override
+		public void run(){
+			try {
+				for (;;) {
+					Socket s = server.accept();
+					synchronized(this){
+						socket = s;
+						connections++;
+					}
+					try {
+						BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), "UTF-8"));
+						for (String line=in.readLine(); line!=null; line=in.readLine())
+							synchronized(this){
+								lines.add(line);
+								notifyAll();
+							}
+					} catch(IOException e){
+					} finally {
+						s.close();
+					}
+				}
+			} catch(IOException e){ }
+		}
+		
+		synchronized List<String> lines(){
+			return new ArrayList<String>(lines);
+		}
+		
+		synchronized int connections(){
+			return connections;
+		}
+		
+		synchronized boolean waitLines(int n){
+			long end = System.currentTimeMillis()+WAIT;
+			try {
+				while (lines.size()<n && System.currentTimeMillis()<end)
+					wait(100);
+			} catch(InterruptedException e){ }
+			return lines.size()>=n;
+		}
+		
+		synchronized boolean waitLast(String text){
+			long end = System.currentTimeMillis()+WAIT;
+			try {
+				while ((lines.isEmpty() || !lines.get(lines.size()-1).endsWith(text)) && System.currentTimeMillis()<end)
+					wait(100);
+			} catch(InterruptedException e){ }
+			return !lines.isEmpty() && lines.get(lines.size()-1).endsWith(text);
+		}
+		
+		synchronized void dropConnections() throws IOException{
+			if (socket!=null)
+				socket.close();
+		}
+		
+		void close() throws IOException{
+			server.close();
+			dropConnections();
+		}
+	}
+}